@@ -17,21 +17,52 @@ CREATE TABLE departments (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
+-- Readings flagged by the streaming anomaly detector
+CREATE TABLE energy_anomalies (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    department_id BIGINT NOT NULL,
+    source_type ENUM('ELECTRICITY', 'TRANSPORT', 'WASTE', 'HEATING', 'COOLING') NOT NULL,
+    energy_data_id BIGINT,
+    reading_timestamp TIMESTAMP NOT NULL,
+    kwh_used DECIMAL(10,2) NOT NULL,
+    expected_kwh DECIMAL(10,2) NOT NULL,
+    score DOUBLE NOT NULL,
+    detected_at TIMESTAMP NOT NULL,
+    INDEX idx_anomaly_timestamp (reading_timestamp),
+    INDEX idx_anomaly_department_timestamp (department_id, reading_timestamp)
+);
+
+-- Replication lag heartbeats: written to the primary, read back from the read replica
+CREATE TABLE replica_heartbeats (
+    instance VARCHAR(100) PRIMARY KEY,
+    beat_millis BIGINT NOT NULL
+);
+
 -- 2. Energy Data Table
 -- Stores all energy consumption data from IoT sensors (simulated in prototype)
+-- Range-partitioned by month; partitioned tables need the timestamp in every unique key and cannot have foreign keys.
+-- Only the catch-all partition is created here: the monthly partitions (pYYYYMM, and p_history for older data) are
+-- created by the application's V2 Flyway migration and split out of pmax ahead of time by PartitionMaintenanceJob.
 CREATE TABLE energy_data (
-    id INT AUTO_INCREMENT PRIMARY KEY,
-    department_id INT NOT NULL,
+    id BIGINT AUTO_INCREMENT,
+    department_id BIGINT NOT NULL, -- References departments(id)
     kwh_used DECIMAL(10,2) NOT NULL,
-    source_type ENUM('electricity', 'transport', 'waste', 'heating', 'cooling') NOT NULL,
-    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    source_type ENUM('ELECTRICITY', 'TRANSPORT', 'WASTE', 'HEATING', 'COOLING') NOT NULL,
+    timestamp DATETIME(6) NOT NULL,
     cost_usd DECIMAL(8,2), -- Cost in USD for financial tracking
     carbon_kg DECIMAL(10,3), -- Carbon footprint in kg CO2
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    FOREIGN KEY (department_id) REFERENCES departments(id) ON DELETE CASCADE,
+    carbon_estimated BOOLEAN, -- carbon_kg came from the emission factor table, re-priced when it changes
+    cost_estimated BOOLEAN, -- cost_usd came from the tariff table, re-priced when it changes
+    meter_id VARCHAR(64), -- Sending meter, for readings that carry a sequence number
+    meter_sequence BIGINT, -- Per-meter sequence; a retried reading repeats it
+    created_at DATETIME(6),
+    PRIMARY KEY (id, timestamp),
     INDEX idx_department_timestamp (department_id, timestamp),
-    INDEX idx_source_type (source_type),
-    INDEX idx_timestamp (timestamp)
+    INDEX idx_timestamp (timestamp, id),
+    UNIQUE KEY uk_energy_data_meter_sequence (meter_id, meter_sequence, timestamp)
+)
+PARTITION BY RANGE COLUMNS (timestamp) (
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
 );
 
 -- 3. AI Suggestions Table
@@ -42,11 +73,63 @@ CREATE TABLE ai_suggestions (
     category ENUM('energy_saving', 'cost_reduction', 'sustainability', 'maintenance') NOT NULL,
     priority ENUM('low', 'medium', 'high') DEFAULT 'medium',
     estimated_savings_usd DECIMAL(8,2), -- Estimated financial savings
+    rule_key VARCHAR(100) UNIQUE, -- Rule and subject of generated suggestions; NULL for seed rows
+    department_id BIGINT,
     is_active BOOLEAN DEFAULT TRUE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 
+-- 4. Rollup Tables
+-- Hourly and daily sums of energy_data per department and source type, maintained by the compaction job
+CREATE TABLE energy_rollup_hourly (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    department_id BIGINT NOT NULL,
+    source_type VARCHAR(20) NOT NULL,
+    bucket_start DATETIME NOT NULL, -- Top of the hour
+    reading_count BIGINT NOT NULL,
+    total_kwh DECIMAL(16,2) NOT NULL,
+    total_carbon_kg DECIMAL(16,3) NOT NULL,
+    total_cost_usd DECIMAL(14,2) NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_rollup_hourly_bucket (department_id, source_type, bucket_start),
+    INDEX idx_rollup_hourly_bucket_start (bucket_start)
+);
+
+CREATE TABLE energy_rollup_daily (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    department_id BIGINT NOT NULL,
+    source_type VARCHAR(20) NOT NULL,
+    bucket_start DATETIME NOT NULL, -- Midnight
+    reading_count BIGINT NOT NULL,
+    total_kwh DECIMAL(16,2) NOT NULL,
+    total_carbon_kg DECIMAL(16,3) NOT NULL,
+    total_cost_usd DECIMAL(14,2) NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_rollup_daily_bucket (department_id, source_type, bucket_start),
+    INDEX idx_rollup_daily_bucket_start (bucket_start)
+);
+
+-- Quantile sketch of the reading sizes of a department per hour (all source types), for percentile queries
+CREATE TABLE energy_sketch_hourly (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    department_id BIGINT NOT NULL,
+    bucket_start DATETIME NOT NULL, -- Top of the hour
+    reading_count BIGINT NOT NULL,
+    total_kwh DECIMAL(16,2) NOT NULL,
+    sketch BLOB NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_sketch_hourly_bucket (department_id, bucket_start),
+    INDEX idx_sketch_hourly_bucket_start (bucket_start)
+);
+
+-- Compaction high-water mark: energy_data rows with id <= last_id are already in the rollups
+CREATE TABLE rollup_watermarks (
+    name VARCHAR(50) PRIMARY KEY,
+    last_id BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
 -- Insert sample departments for testing
 INSERT INTO departments (name, description, total_area_sqft) VALUES
 ('CSE', 'Computer Science & Engineering Department', 15000.00),
@@ -0,0 +1,104 @@
+package com.example.ecometer.benchmark;
+
+import com.example.ecometer.dto.EnergyDataRequest;
+import com.example.ecometer.entity.Department;
+import com.example.ecometer.entity.EnergyData;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic in-memory data for the benchmarks, so they run without a database.
+ */
+final class BenchmarkFixtures {
+
+    private static final long SEED = 42;
+    private static final EnergyData.SourceType[] SOURCE_TYPES = EnergyData.SourceType.values();
+
+    private BenchmarkFixtures() {
+    }
+
+    static List<Department> departments(int count) {
+        List<Department> departments = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Department department = new Department();
+            department.setId((long) i);
+            department.setName("Department " + i);
+            department.setDescription("Benchmark department " + i);
+            departments.add(department);
+        }
+        return departments;
+    }
+
+    /**
+     * Readings spread over the last 24 hours, with the scales energy_data stores.
+     */
+    static List<EnergyData> readings(List<Department> departments, int count) {
+        Random random = new Random(SEED);
+        LocalDateTime now = LocalDateTime.now();
+        List<EnergyData> readings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BigDecimal kwh = BigDecimal.valueOf(random.nextInt(100_000), 2);
+            EnergyData reading = new EnergyData();
+            reading.setId((long) i + 1);
+            reading.setDepartment(departments.get(random.nextInt(departments.size())));
+            reading.setSourceType(SOURCE_TYPES[random.nextInt(SOURCE_TYPES.length)]);
+            reading.setTimestamp(now.minusSeconds(random.nextInt(24 * 60 * 60 - 120)));
+            reading.setKwhUsed(kwh);
+            reading.setCarbonKg(kwh.multiply(new BigDecimal("0.45")).setScale(3, RoundingMode.HALF_UP));
+            reading.setCostUsd(kwh.multiply(new BigDecimal("0.12")).setScale(2, RoundingMode.HALF_UP));
+            reading.setCreatedAt(reading.getTimestamp());
+            readings.add(reading);
+        }
+        return readings;
+    }
+
+    static List<EnergyDataRequest> requests(int count) {
+        Random random = new Random(SEED);
+        List<EnergyDataRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            EnergyDataRequest request = new EnergyDataRequest();
+            request.setDepartmentId((long) random.nextInt(10) + 1);
+            request.setKwhUsed(BigDecimal.valueOf(random.nextInt(100_000), 3));
+            request.setSourceType(SOURCE_TYPES[random.nextInt(SOURCE_TYPES.length)].name().toLowerCase());
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    /**
+     * A seed file in the test-data.json format.
+     */
+    static byte[] seedFile(int departmentCount, int readingCount) {
+        Random random = new Random(SEED);
+        StringBuilder json = new StringBuilder(readingCount * 160);
+        json.append("{\"departments\":[");
+        for (int i = 1; i <= departmentCount; i++) {
+            if (i > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i).append(",\"name\":\"Department ").append(i)
+                    .append("\",\"description\":\"Benchmark department\",\"location\":\"Block A\",\"totalDevices\":100}");
+        }
+        json.append("],\"energyReadings\":[");
+        for (int i = 0; i < readingCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i + 1)
+                    .append(",\"department\":\"Department ").append(random.nextInt(departmentCount) + 1)
+                    .append("\",\"timestamp\":\"2024-11-08T").append(String.format("%02d:%02d:00", i / 60 % 24, i % 60))
+                    .append("\",\"consumption\":").append(BigDecimal.valueOf(random.nextInt(500_000), 2))
+                    .append(",\"cost\":").append(BigDecimal.valueOf(random.nextInt(60_000), 2))
+                    .append(",\"efficiency\":0.85}");
+        }
+        json.append("],\"aiSuggestions\":[{\"id\":1,\"title\":\"Optimize AC Usage\",\"description\":\"Raise set points\",")
+                .append("\"department\":\"Department 1\",\"potentialSavings\":\"15%\",\"priority\":\"HIGH\"}]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
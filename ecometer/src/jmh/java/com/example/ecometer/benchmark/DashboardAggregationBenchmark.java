@@ -0,0 +1,111 @@
+package com.example.ecometer.benchmark;
+
+import com.example.ecometer.entity.Department;
+import com.example.ecometer.entity.EnergyData;
+import com.example.ecometer.service.DashboardRollupEngine;
+import com.example.ecometer.service.DataVersion;
+import com.example.ecometer.service.EnergyDataIngestedEvent;
+import com.example.ecometer.service.FixedPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dashboard totals: the original per-request BigDecimal reductions over the last 24 hours of readings
+ * against a snapshot of the in-memory rollup, and the cost of folding readings into the rollup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DashboardAggregationBenchmark {
+
+    @Param({"1000", "100000"})
+    int readingCount;
+
+    private List<EnergyData> readings;
+    private long[] milliKwh;
+    private long[] milligrams;
+    private long[] microUsd;
+    private DashboardRollupEngine rollupEngine;
+
+    @Setup
+    public void setUp() {
+        List<Department> departments = BenchmarkFixtures.departments(10);
+        readings = BenchmarkFixtures.readings(departments, readingCount);
+        // No repository needed: the engine is fed through ingestion events only
+        rollupEngine = new DashboardRollupEngine(null, null, new DataVersion());
+        rollupEngine.onIngested(new EnergyDataIngestedEvent(readings));
+
+        milliKwh = new long[readingCount];
+        milligrams = new long[readingCount];
+        microUsd = new long[readingCount];
+        for (int i = 0; i < readingCount; i++) {
+            milliKwh[i] = FixedPoint.toMilliKwh(readings.get(i).getKwhUsed());
+            milligrams[i] = FixedPoint.toMilligrams(readings.get(i).getCarbonKg());
+            microUsd[i] = FixedPoint.toMicroUsd(readings.get(i).getCostUsd());
+        }
+    }
+
+    @Benchmark
+    public void streamReductions(Blackhole blackhole) {
+        blackhole.consume(readings.stream().map(EnergyData::getCarbonKg).reduce(BigDecimal.ZERO, BigDecimal::add));
+        blackhole.consume(readings.stream().map(EnergyData::getCostUsd).reduce(BigDecimal.ZERO, BigDecimal::add));
+        blackhole.consume(readings.stream().map(EnergyData::getKwhUsed).reduce(BigDecimal.ZERO, BigDecimal::add));
+
+        // Per-department group-by, as the database query did
+        Map<Long, BigDecimal[]> byDepartment = new TreeMap<>();
+        for (EnergyData reading : readings) {
+            BigDecimal[] sums = byDepartment.computeIfAbsent(reading.getDepartment().getId(),
+                    id -> new BigDecimal[] {BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO});
+            sums[0] = sums[0].add(reading.getKwhUsed());
+            sums[1] = sums[1].add(reading.getCarbonKg());
+            sums[2] = sums[2].add(reading.getCostUsd());
+        }
+        blackhole.consume(byDepartment);
+    }
+
+    @Benchmark
+    public void fixedPointReductions(Blackhole blackhole) {
+        long kwh = 0;
+        long carbon = 0;
+        long cost = 0;
+        for (int i = 0; i < milliKwh.length; i++) {
+            kwh += milliKwh[i];
+            carbon += milligrams[i];
+            cost += microUsd[i];
+        }
+        blackhole.consume(FixedPoint.kwh(kwh));
+        blackhole.consume(FixedPoint.carbonKg(carbon));
+        blackhole.consume(FixedPoint.costUsd(cost));
+    }
+
+    @Benchmark
+    public DashboardRollupEngine.Snapshot rollupSnapshot() {
+        return rollupEngine.snapshot();
+    }
+
+    @Benchmark
+    public DashboardRollupEngine.Snapshot rollupIngestAndSnapshot() {
+        DashboardRollupEngine engine = new DashboardRollupEngine(null, null, new DataVersion());
+        engine.onIngested(new EnergyDataIngestedEvent(readings));
+        return engine.snapshot();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.ecometer.benchmark;
+
+import com.example.ecometer.dto.EnergyDataRequest;
+import com.example.ecometer.entity.Department;
+import com.example.ecometer.service.EmissionFactorEngine;
+import com.example.ecometer.service.EnergyIngestionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-reading work on /api/data: building the EnergyData row, including the carbon and cost estimates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngestionEstimationBenchmark {
+
+    private static final int REQUESTS = 1024;
+
+    private List<EnergyDataRequest> requests;
+    private Department department;
+    private EnergyIngestionService ingestionService;
+
+    @Setup
+    public void setUp() throws IOException {
+        requests = BenchmarkFixtures.requests(REQUESTS);
+        department = BenchmarkFixtures.departments(1).get(0);
+        // toEnergyData does not touch the registry, writer, queue or spool; factors come from the bundled table
+        EmissionFactorEngine factorEngine = new EmissionFactorEngine(new ObjectMapper().findAndRegisterModules(),
+                new DefaultResourceLoader(), null, "classpath:emission-factors.json");
+        ingestionService = new EnergyIngestionService(null, null, null, factorEngine, null, null, null);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public void estimateReading(Blackhole blackhole) {
+        for (EnergyDataRequest request : requests) {
+            blackhole.consume(ingestionService.toEnergyData(request, department));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.ecometer.benchmark;
+
+import com.example.ecometer.entity.AiSuggestion;
+import com.example.ecometer.entity.Department;
+import com.example.ecometer.entity.EnergyData;
+import com.example.ecometer.service.SeedFileReader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding seed files: the original tree-based loader against the streaming {@link SeedFileReader}.
+ * Only parsing and row construction are measured; nothing is written.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SeedParsingBenchmark {
+
+    @Param({"10000", "100000"})
+    int readingCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] seedFile;
+    private SeedFileReader seedFileReader;
+
+    @Setup
+    public void setUp() {
+        seedFile = BenchmarkFixtures.seedFile(10, readingCount);
+        seedFileReader = new SeedFileReader(objectMapper, 5000);
+    }
+
+    @Benchmark
+    public void treeParse(Blackhole blackhole) throws IOException {
+        JsonNode rootNode = objectMapper.readTree(new ByteArrayInputStream(seedFile));
+
+        Map<String, Department> departmentsByName = new HashMap<>();
+        for (JsonNode deptNode : rootNode.get("departments")) {
+            Department dept = new Department();
+            dept.setName(deptNode.get("name").asText());
+            dept.setDescription(deptNode.get("description").asText());
+            departmentsByName.put(dept.getName(), dept);
+        }
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+        for (JsonNode energyReading : rootNode.get("energyReadings")) {
+            Department department = departmentsByName.get(energyReading.get("department").asText());
+            if (department != null) {
+                EnergyData energyData = new EnergyData();
+                energyData.setDepartment(department);
+                energyData.setTimestamp(LocalDateTime.parse(energyReading.get("timestamp").asText(), formatter));
+                energyData.setKwhUsed(BigDecimal.valueOf(energyReading.get("consumption").asDouble()));
+                energyData.setCostUsd(BigDecimal.valueOf(energyReading.get("cost").asDouble()));
+                energyData.setSourceType(EnergyData.SourceType.ELECTRICITY);
+                blackhole.consume(energyData);
+            }
+        }
+    }
+
+    @Benchmark
+    public long streamingParse(Blackhole blackhole) throws IOException {
+        return seedFileReader.read(new ByteArrayInputStream(seedFile), new HashMap<>(), new SeedFileReader.Handler() {
+            @Override
+            public void onDepartments(List<Department> departments) {
+                blackhole.consume(departments);
+            }
+
+            @Override
+            public void onReadings(List<EnergyData> readings) {
+                blackhole.consume(readings);
+            }
+
+            @Override
+            public void onSuggestions(List<AiSuggestion> suggestions) {
+                blackhole.consume(suggestions);
+            }
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.ecometer.benchmark;
+
+import com.example.ecometer.dto.DashboardResponse;
+import com.example.ecometer.dto.EnergyDataResponse;
+import com.example.ecometer.dto.SuggestionResponse;
+import com.example.ecometer.entity.Department;
+import com.example.ecometer.entity.EnergyData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response building and JSON serialization for /api/energy and /api/dashboard-data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000"})
+    int readingCount;
+
+    private ObjectMapper objectMapper;
+    private List<EnergyData> readings;
+    private DashboardResponse dashboard;
+
+    @Setup
+    public void setUp() {
+        // Same settings as the Spring Boot mapper: ISO dates rather than timestamps
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        List<Department> departments = BenchmarkFixtures.departments(10);
+        readings = BenchmarkFixtures.readings(departments, readingCount);
+
+        List<DashboardResponse.DepartmentSummary> summaries = new ArrayList<>();
+        for (Department department : departments) {
+            summaries.add(new DashboardResponse.DepartmentSummary(department.getName(),
+                    new BigDecimal("12345.67"), new BigDecimal("5555.551"), new BigDecimal("1481.48"), 1000));
+        }
+        List<SuggestionResponse> suggestions = List.of(
+                new SuggestionResponse(1L, "Optimize AC Usage: Raise set points", "ENERGY_SAVING", "HIGH", new BigDecimal("150.00")),
+                new SuggestionResponse(2L, "Motion Sensors: Automatic lighting", "ENERGY_SAVING", "MEDIUM", new BigDecimal("80.00")));
+        dashboard = new DashboardResponse(new BigDecimal("55555.510"), new BigDecimal("14814.80"),
+                new BigDecimal("123456.70"), summaries, suggestions);
+    }
+
+    @Benchmark
+    public List<EnergyDataResponse> buildEnergyDataResponses() {
+        List<EnergyDataResponse> responses = new ArrayList<>(readings.size());
+        for (EnergyData reading : readings) {
+            responses.add(new EnergyDataResponse(reading));
+        }
+        return responses;
+    }
+
+    @Benchmark
+    public byte[] buildAndSerializeEnergyDataResponses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(buildEnergyDataResponses());
+    }
+
+    @Benchmark
+    public byte[] serializeDashboardResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dashboard);
+    }
+}
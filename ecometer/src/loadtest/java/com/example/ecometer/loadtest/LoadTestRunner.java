@@ -0,0 +1,463 @@
+package com.example.ecometer.loadtest;
+
+import com.example.ecometer.EcometerApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Boots the application on an embedded H2 database and drives it with a synthetic meter fleet.
+ *
+ * Meters post readings to /api/data at a fixed total rate (open loop: requests are issued on schedule whether or
+ * not earlier ones have completed, up to max-in-flight), while dashboard readers poll /api/dashboard-data in a
+ * closed loop. Latency percentiles, error rates and sustained readings/s are printed and written as JSON.
+ *
+ * Run with: mvn -Ploadtest -DskipTests verify -Dloadtest.args="--departments=10 --meters=50 --rate=1000"
+ *
+ * With --compare=virtual the same load is run twice, on the base profiles and with the "virtual" profile added
+ * (virtual threads plus the database concurrency limiter; needs a Java 21+ runtime), and both results are reported.
+ */
+public final class LoadTestRunner {
+
+    private static final String[] SOURCE_TYPES = {"electricity", "heating", "cooling", "transport", "waste"};
+    private static final long TICK_MILLIS = 10;
+
+    private final Options options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client;
+    private final ExecutorService clientExecutor;
+    private String baseUrl;
+
+    private final Scenario ingest = new Scenario("ingest");
+    private final Scenario dashboard = new Scenario("dashboard");
+    private volatile boolean measuring;
+    private volatile boolean stopped;
+
+    private LoadTestRunner(Options options) {
+        this.options = options;
+        this.clientExecutor = Executors.newFixedThreadPool(options.clientThreads);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(clientExecutor)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        boolean failed = false;
+        if (options.compare.isEmpty()) {
+            Run run = execute(options, options.profiles);
+            result = run.result();
+            failed = run.failed();
+        } else {
+            // One run on the base profiles, then one per compared profile added on top, each in a fresh context
+            Map<String, Run> runs = new LinkedHashMap<>();
+            runs.put("baseline", execute(options, options.profiles));
+            for (String profile : options.compare) {
+                List<String> profiles = new ArrayList<>(options.profiles);
+                profiles.add(profile);
+                runs.put(profile, execute(options, profiles));
+            }
+            System.out.printf(Locale.ROOT, "%n%-10s %8s %14s %12s %12s %14s%n",
+                    "mode", "virtual", "readings/s", "ingest p99", "errors", "dashboard p99");
+            for (Map.Entry<String, Run> entry : runs.entrySet()) {
+                Map<String, Object> run = entry.getValue().result();
+                Map<?, ?> ingestSummary = (Map<?, ?>) run.get("ingest");
+                Map<?, ?> dashboardSummary = (Map<?, ?>) run.get("dashboard");
+                System.out.printf(Locale.ROOT, "%-10s %8s %14.1f %10.2fms %11.2f%% %12.2fms%n",
+                        entry.getKey(), run.get("virtualThreads"), (Double) run.get("readingsPerSecond"),
+                        (Double) ingestSummary.get("p99Ms"), (Double) ingestSummary.get("errorRate") * 100,
+                        (Double) dashboardSummary.get("p99Ms"));
+                result.put(entry.getKey(), run);
+                failed |= entry.getValue().failed();
+            }
+        }
+
+        Path output = Path.of(options.output);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output.toFile(), result);
+        System.out.println("Results written to " + output.toAbsolutePath());
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * Boots the application with the given profiles (unless a target URL was given) and runs the load against it.
+     */
+    private static Run execute(Options options, List<String> profiles) throws Exception {
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.target;
+        boolean virtualThreads = false;
+        if (baseUrl == null) {
+            SpringApplication application = new SpringApplication(EcometerApplication.class);
+            application.setAdditionalProfiles(profiles.toArray(String[]::new));
+            context = application.run("--server.port=0");
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+            virtualThreads = Threading.VIRTUAL.isActive(context.getEnvironment());
+            if (!virtualThreads && context.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+                System.out.println("Virtual threads were requested but need a Java 21+ runtime; running on platform threads");
+            }
+        }
+
+        LoadTestRunner runner = new LoadTestRunner(options);
+        try {
+            Map<String, Object> result = runner.run(baseUrl);
+            result.put("profiles", profiles);
+            result.put("virtualThreads", virtualThreads);
+            return new Run(result, runner.failed());
+        } finally {
+            runner.clientExecutor.shutdownNow();
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private Map<String, Object> run(String baseUrl) throws Exception {
+        this.baseUrl = baseUrl;
+        List<Meter> meters = createFleet();
+        System.out.printf(Locale.ROOT, "Load test against %s: %d meters in %d departments, %d readings/s, %d dashboard readers%n",
+                baseUrl, meters.size(), options.departments, options.rate, options.readers);
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        Semaphore inFlight = new Semaphore(options.maxInFlight);
+        double perTick = options.rate * TICK_MILLIS / 1000.0;
+        double[] carry = {0};
+        int[] nextMeter = {0};
+        scheduler.scheduleAtFixedRate(() -> {
+            carry[0] += perTick;
+            int due = (int) carry[0];
+            carry[0] -= due;
+            for (int i = 0; i < due; i++) {
+                Meter meter = meters.get(nextMeter[0]++ % meters.size());
+                if (!inFlight.tryAcquire()) {
+                    // The server is not keeping up; count the reading as failed rather than slowing the schedule
+                    ingest.record(0, false);
+                    continue;
+                }
+                postReading(meter).whenComplete((ok, error) -> inFlight.release());
+            }
+        }, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < options.readers; i++) {
+            Thread reader = new Thread(this::readDashboard, "dashboard-reader-" + i);
+            reader.setDaemon(true);
+            reader.start();
+            readers.add(reader);
+        }
+
+        Thread.sleep(options.warmup.toMillis());
+        ingest.reset();
+        dashboard.reset();
+        measuring = true;
+        long started = System.nanoTime();
+        Thread.sleep(options.duration.toMillis());
+        measuring = false;
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        stopped = true;
+        scheduler.shutdownNow();
+        for (Thread reader : readers) {
+            reader.join(5000);
+        }
+        return report(elapsedSeconds);
+    }
+
+    /**
+     * Creates the departments through the seed import endpoint and assigns meters to them.
+     */
+    private List<Meter> createFleet() throws IOException, InterruptedException {
+        ObjectNode seed = objectMapper.createObjectNode();
+        ArrayNode departments = seed.putArray("departments");
+        for (int i = 1; i <= options.departments; i++) {
+            departments.addObject().put("name", "Load Test Department " + i).put("description", "Synthetic department");
+        }
+        send(HttpRequest.newBuilder(URI.create(baseUrl + "/import-seed"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(seed))));
+
+        JsonNode existing = objectMapper.readTree(send(HttpRequest.newBuilder(URI.create(baseUrl + "/departments")).GET()));
+        List<Long> departmentIds = new ArrayList<>();
+        for (JsonNode department : existing) {
+            if (department.path("name").asText().startsWith("Load Test Department ")) {
+                departmentIds.add(department.path("id").asLong());
+            }
+        }
+        if (departmentIds.isEmpty()) {
+            throw new IllegalStateException("No load test departments found at " + baseUrl);
+        }
+
+        List<Meter> meters = new ArrayList<>();
+        for (Long departmentId : departmentIds) {
+            for (int m = 0; m < options.meters; m++) {
+                meters.add(new Meter("meter-" + departmentId + "-" + m, departmentId,
+                        SOURCE_TYPES[m % SOURCE_TYPES.length], new Random(departmentId * 1_000 + m)));
+            }
+        }
+        return meters;
+    }
+
+    private CompletableFuture<Boolean> postReading(Meter meter) {
+        ObjectNode reading = objectMapper.createObjectNode()
+                .put("meterId", meter.id)
+                .put("sequence", meter.nextSequence())
+                .put("readingTimestamp", LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS).toString())
+                .put("departmentId", meter.departmentId)
+                .put("kwhUsed", meter.nextKwh())
+                .put("sourceType", meter.sourceType);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/data"))
+                .timeout(options.requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(reading.toString()))
+                .build();
+        long sent = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    boolean ok = error == null && response.statusCode() / 100 == 2;
+                    ingest.record(System.nanoTime() - sent, ok);
+                    return ok;
+                });
+    }
+
+    private void readDashboard() {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/dashboard-data"))
+                .timeout(options.requestTimeout)
+                .GET()
+                .build();
+        while (!stopped) {
+            long sent = System.nanoTime();
+            boolean ok;
+            try {
+                ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+            } catch (IOException e) {
+                ok = false;
+            } catch (InterruptedException e) {
+                return;
+            }
+            dashboard.record(System.nanoTime() - sent, ok);
+            try {
+                Thread.sleep(options.readerInterval.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private String send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request.timeout(options.requestTimeout).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(request.build().uri() + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private Map<String, Object> report(double elapsedSeconds) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("departments", options.departments);
+        result.put("metersPerDepartment", options.meters);
+        result.put("targetRate", options.rate);
+        result.put("readers", options.readers);
+        result.put("durationSeconds", elapsedSeconds);
+        result.put("readingsPerSecond", ingest.succeeded.get() / elapsedSeconds);
+        result.put("ingest", ingest.summary(elapsedSeconds));
+        result.put("dashboard", dashboard.summary(elapsedSeconds));
+
+        System.out.printf(Locale.ROOT, "%n%-10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "scenario", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Scenario scenario : List.of(ingest, dashboard)) {
+            LatencyHistogram latencies = scenario.latencies;
+            System.out.printf(Locale.ROOT, "%-10s %10d %7.2f%% %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    scenario.name, scenario.total(), scenario.errorRate() * 100, scenario.total() / elapsedSeconds,
+                    latencies.quantile(0.50) / 1000.0, latencies.quantile(0.95) / 1000.0,
+                    latencies.quantile(0.99) / 1000.0, latencies.max() / 1000.0);
+        }
+        System.out.printf(Locale.ROOT, "Sustained readings/s: %.1f (target %d)%n",
+                ingest.succeeded.get() / elapsedSeconds, options.rate);
+        return result;
+    }
+
+    private boolean failed() {
+        return ingest.errorRate() > options.maxErrorRate;
+    }
+
+    private record Run(Map<String, Object> result, boolean failed) {
+    }
+
+    private final class Scenario {
+        private final String name;
+        private volatile LatencyHistogram latencies = new LatencyHistogram();
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        Scenario(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, boolean ok) {
+            if (!measuring) {
+                return;
+            }
+            if (ok) {
+                succeeded.incrementAndGet();
+                latencies.record(nanos / 1000);
+            } else {
+                failed.incrementAndGet();
+            }
+        }
+
+        void reset() {
+            latencies = new LatencyHistogram();
+            succeeded.set(0);
+            failed.set(0);
+        }
+
+        long total() {
+            return succeeded.get() + failed.get();
+        }
+
+        double errorRate() {
+            long total = total();
+            return total == 0 ? 0 : (double) failed.get() / total;
+        }
+
+        Map<String, Object> summary(double elapsedSeconds) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("requests", total());
+            summary.put("errors", failed.get());
+            summary.put("errorRate", errorRate());
+            summary.put("requestsPerSecond", total() / elapsedSeconds);
+            summary.put("p50Ms", latencies.quantile(0.50) / 1000.0);
+            summary.put("p95Ms", latencies.quantile(0.95) / 1000.0);
+            summary.put("p99Ms", latencies.quantile(0.99) / 1000.0);
+            summary.put("maxMs", latencies.max() / 1000.0);
+            return summary;
+        }
+    }
+
+    private static final class Meter {
+        private final String id;
+        private final long departmentId;
+        private final String sourceType;
+        private final Random random;
+        // Starts at the wall clock so a rerun against the same database does not repeat earlier sequences
+        private long sequence = System.currentTimeMillis() * 1_000;
+
+        Meter(String id, long departmentId, String sourceType, Random random) {
+            this.id = id;
+            this.departmentId = departmentId;
+            this.sourceType = sourceType;
+            this.random = random;
+        }
+
+        synchronized long nextSequence() {
+            return sequence++;
+        }
+
+        synchronized double nextKwh() {
+            return Math.round(random.nextDouble() * 5000) / 100.0;
+        }
+    }
+
+    /**
+     * Command line options, given as --name=value.
+     */
+    private static final class Options {
+        int departments = 10;
+        int meters = 20;
+        int rate = 500;
+        int readers = 10;
+        Duration readerInterval = Duration.ofMillis(500);
+        Duration warmup = Duration.ofSeconds(10);
+        Duration duration = Duration.ofSeconds(60);
+        Duration requestTimeout = Duration.ofSeconds(10);
+        int maxInFlight = 2000;
+        int clientThreads = 16;
+        double maxErrorRate = 0.01;
+        List<String> profiles = List.of("loadtest");
+        List<String> compare = List.of();
+        String target;
+        String output = "target/loadtest-result.json";
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (name) {
+                    case "departments" -> options.departments = Integer.parseInt(value);
+                    case "meters" -> options.meters = Integer.parseInt(value);
+                    case "rate" -> options.rate = Integer.parseInt(value);
+                    case "readers" -> options.readers = Integer.parseInt(value);
+                    case "reader-interval" -> options.readerInterval = duration(value);
+                    case "warmup" -> options.warmup = duration(value);
+                    case "duration" -> options.duration = duration(value);
+                    case "request-timeout" -> options.requestTimeout = duration(value);
+                    case "max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+                    case "client-threads" -> options.clientThreads = Integer.parseInt(value);
+                    case "max-error-rate" -> options.maxErrorRate = Double.parseDouble(value);
+                    case "profiles" -> options.profiles = List.of(value.split(","));
+                    case "compare" -> options.compare = List.of(value.split(","));
+                    case "target" -> options.target = value;
+                    case "output" -> options.output = value;
+                    default -> throw new IllegalArgumentException("Unknown option: --" + name);
+                }
+            }
+            if (!options.compare.isEmpty() && options.target != null) {
+                throw new IllegalArgumentException("--compare boots the application per mode and cannot be used with --target");
+            }
+            return options;
+        }
+
+        /** Accepts 500ms, 30s, 2m or a plain number of seconds. */
+        private static Duration duration(String value) {
+            if (value.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            }
+            if (value.endsWith("s")) {
+                return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            if (value.endsWith("m")) {
+                return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            return Duration.ofSeconds(Long.parseLong(value));
+        }
+    }
+}
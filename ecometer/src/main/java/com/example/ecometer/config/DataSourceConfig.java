@@ -0,0 +1,90 @@
+package com.example.ecometer.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * Routes read-only transactions to a replica when ecometer.datasource.replica.url is set, and wraps the
+     * DataSource in a {@link ConcurrencyLimitedDataSource} when ecometer.db.max-concurrency is above zero.
+     * The limiter goes outermost so it caps primary and replica connections together.
+     * Static so it can post-process the DataSource without initializing this configuration early.
+     */
+    @Bean
+    public static BeanPostProcessor dataSourcePostProcessor(Environment environment) {
+        int maxConcurrency = environment.getProperty("ecometer.db.max-concurrency", Integer.class, 0);
+        Duration acquireTimeout = environment.getProperty("ecometer.db.acquire-timeout", Duration.class, Duration.ofSeconds(5));
+        String replicaUrl = environment.getProperty("ecometer.datasource.replica.url", "");
+        Duration maxLag = environment.getProperty("ecometer.datasource.replica.max-lag", Duration.class, Duration.ofSeconds(5));
+        Map<String, HikariDataSource> replicas = new ConcurrentHashMap<>();
+        return new DestructionAwareBeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConcurrencyLimitedDataSource
+                        || bean instanceof ReplicaRoutingDataSource) {
+                    return bean;
+                }
+                if (!replicaUrl.isBlank()) {
+                    HikariDataSource replica = replicaDataSource(environment, replicaUrl);
+                    replicas.put(beanName, replica);
+                    dataSource = new ReplicaRoutingDataSource(dataSource, replica, maxLag);
+                }
+                if (maxConcurrency > 0) {
+                    dataSource = new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, acquireTimeout);
+                }
+                return dataSource;
+            }
+
+            // Spring closes the original pool; the replica pool is not a bean, so it is closed along with it
+            @Override
+            public void postProcessBeforeDestruction(Object bean, String beanName) {
+                HikariDataSource replica = replicas.remove(beanName);
+                if (replica != null) {
+                    replica.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Pool for the replica: the spring.datasource.hikari settings of the primary, with the replica's url and
+     * credentials (falling back to the primary's), read-only connections, a short connection timeout and its own
+     * pool name. The pool starts on first use, i.e. with the first lag check.
+     */
+    private static HikariDataSource replicaDataSource(Environment environment, String url) {
+        HikariDataSource replica = new HikariDataSource();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+        replica.setPoolName("replica");
+        replica.setJdbcUrl(url);
+        replica.setUsername(environment.getProperty("ecometer.datasource.replica.username",
+                environment.getProperty("spring.datasource.username")));
+        replica.setPassword(environment.getProperty("ecometer.datasource.replica.password",
+                environment.getProperty("spring.datasource.password")));
+        String driverClassName = environment.getProperty("spring.datasource.driver-class-name");
+        if (driverClassName != null && !driverClassName.isBlank()) {
+            replica.setDriverClassName(driverClassName);
+        }
+        Integer maximumPoolSize = environment.getProperty("ecometer.datasource.replica.maximum-pool-size", Integer.class);
+        if (maximumPoolSize != null) {
+            replica.setMaximumPoolSize(maximumPoolSize);
+        }
+        // Fail over to the primary quickly instead of waiting out the primary's connection timeout
+        replica.setConnectionTimeout(environment.getProperty("ecometer.datasource.replica.connection-timeout",
+                Duration.class, Duration.ofSeconds(2)).toMillis());
+        replica.setReadOnly(true);
+        return replica;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.ecometer.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Adds sampled timing to every repository: Spring Data repositories and the JDBC/EntityManager classes
+     * annotated with @Repository. Replaces Spring Boot's spring.data.repository.invocations, which is switched off
+     * in application.properties, so each call is timed once.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryTimingPostProcessor(ObjectProvider<MeterRegistry> meterRegistry,
+                                                                  Environment environment) {
+        double sampleRate = environment.getProperty("ecometer.metrics.hot-path-sample-rate", Double.class, 1.0);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (sampleRate <= 0 || bean instanceof FactoryBean || !isRepository(bean)) {
+                    return bean;
+                }
+                RepositoryTimingInterceptor interceptor = new RepositoryTimingInterceptor(beanName, meterRegistry, sampleRate);
+                if (bean instanceof Advised advised && !advised.isFrozen()) {
+                    advised.addAdvice(0, interceptor);
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.setProxyTargetClass(true);
+                proxyFactory.addAdvice(interceptor);
+                return proxyFactory.getProxy();
+            }
+        };
+    }
+
+    /**
+     * Saturation of the database concurrency limiter, next to the hikaricp.connections.* pool metrics.
+     */
+    @Bean
+    public MeterBinder databaseLimiterMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConcurrencyLimitedDataSource limiter) {
+                Gauge.builder("ecometer.db.limiter.available", limiter, ConcurrencyLimitedDataSource::getAvailablePermits)
+                        .description("Free database permits").register(registry);
+                Gauge.builder("ecometer.db.limiter.waiting", limiter, ConcurrencyLimitedDataSource::getQueueLength)
+                        .description("Callers waiting for a database permit").register(registry);
+                Gauge.builder("ecometer.db.limiter.max", limiter, ConcurrencyLimitedDataSource::getMaxConcurrency)
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Replica lag and routing state, plus hikaricp.* pool metrics for the replica pool (pool="replica"), which is
+     * not a bean of its own and so is not picked up by Spring Boot.
+     */
+    @Bean
+    public MeterBinder databaseReplicaMetrics(DataSource dataSource) {
+        return registry -> {
+            try {
+                if (!dataSource.isWrapperFor(ReplicaRoutingDataSource.class)) {
+                    return;
+                }
+                ReplicaRoutingDataSource routing = dataSource.unwrap(ReplicaRoutingDataSource.class);
+                Gauge.builder("ecometer.db.replica.lag", routing,
+                                r -> r.getLag() != null ? r.getLag().toMillis() / 1000.0 : Double.NaN)
+                        .description("Measured replication lag of the read replica").baseUnit("seconds").register(registry);
+                Gauge.builder("ecometer.db.replica.in-use", routing, r -> r.isReplicaUsable() ? 1 : 0)
+                        .description("1 while read-only transactions are routed to the replica").register(registry);
+                if (routing.getReplica() instanceof HikariDataSource replica && replica.getMetricsTrackerFactory() == null) {
+                    replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not unwrap the DataSource", e);
+            }
+        };
+    }
+
+    private static boolean isRepository(Object bean) {
+        return bean instanceof org.springframework.data.repository.Repository
+                || AnnotationUtils.findAnnotation(AopUtils.getTargetClass(bean), Repository.class) != null;
+    }
+}
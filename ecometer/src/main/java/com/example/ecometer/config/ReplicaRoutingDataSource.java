@@ -0,0 +1,111 @@
+package com.example.ecometer.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary.
+ *
+ * Connections are handed out lazily, so the read-only flag of the transaction is known by the time the first
+ * statement needs a physical connection; read-write transactions and plain auto-commit statements get a primary
+ * connection. The replica is only used while its measured lag (see ReplicaLagMonitor) is within max-lag and it
+ * accepts connections; otherwise read-only transactions fall back to the primary.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final Duration maxLag;
+
+    // Unknown until the first heartbeat has been read back, so the replica starts out unused
+    private volatile Duration lag;
+    private volatile boolean replicaUsable;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration maxLag) {
+        super(primary);
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLag = maxLag;
+        setReadOnlyDataSource(new ReadOnlyRoute());
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public DataSource getReplica() {
+        return replica;
+    }
+
+    public Duration getMaxLag() {
+        return maxLag;
+    }
+
+    /**
+     * Latest measured replica lag, or null while it is unknown or the replica is unreachable.
+     */
+    public Duration getLag() {
+        return lag;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public void recordLag(Duration measured) {
+        boolean usable = measured.compareTo(maxLag) <= 0;
+        if (usable != replicaUsable) {
+            if (usable) {
+                log.info("Replica lag {} ms is within {} ms, routing read-only transactions to the replica",
+                        measured.toMillis(), maxLag.toMillis());
+            } else {
+                log.warn("Replica lag {} ms exceeds {} ms, routing read-only transactions to the primary",
+                        measured.toMillis(), maxLag.toMillis());
+            }
+        }
+        lag = measured;
+        replicaUsable = usable;
+    }
+
+    public void markUnavailable(String reason) {
+        if (replicaUsable) {
+            log.warn("Replica unavailable ({}), routing read-only transactions to the primary", reason);
+        }
+        lag = null;
+        replicaUsable = false;
+    }
+
+    private final class ReadOnlyRoute extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (replicaUsable) {
+                try {
+                    return replica.getConnection();
+                } catch (SQLException e) {
+                    markUnavailable(e.getMessage());
+                }
+            }
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            if (replicaUsable) {
+                try {
+                    return replica.getConnection(username, password);
+                } catch (SQLException e) {
+                    markUnavailable(e.getMessage());
+                }
+            }
+            return primary.getConnection(username, password);
+        }
+    }
+}
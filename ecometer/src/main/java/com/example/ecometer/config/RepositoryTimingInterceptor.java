@@ -0,0 +1,87 @@
+package com.example.ecometer.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Times repository calls as ecometer.repository.invocations{repository, method, outcome}.
+ *
+ * Repositories sit on the ingestion and query hot paths, so only a sample of calls is timed
+ * (ecometer.metrics.hot-path-sample-rate, 1.0 = every call). Unsampled calls cost one random draw; the timer
+ * counts are then a sample too, while latency percentiles stay representative.
+ *
+ * Stream-returning queries only open a cursor when called; rows are fetched while the caller consumes the stream.
+ * Their timer therefore stops when the stream is closed (repository streams must be closed, see try-with-resources
+ * at the call sites), so the latency covers the whole read. A failure while consuming is still recorded as success.
+ */
+class RepositoryTimingInterceptor implements MethodInterceptor {
+
+    private final String repository;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final double sampleRate;
+    private final Map<Method, Timer[]> timers = new ConcurrentHashMap<>();
+
+    RepositoryTimingInterceptor(String repository, ObjectProvider<MeterRegistry> meterRegistry, double sampleRate) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return invocation.proceed();
+        }
+        Method method = invocation.getMethod();
+        if (method.getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        long started = System.nanoTime();
+        boolean success = false;
+        boolean streaming = false;
+        try {
+            Object result = invocation.proceed();
+            success = true;
+            if (result instanceof Stream<?> stream) {
+                streaming = true;
+                return stream.onClose(() -> record(method, true, started));
+            }
+            return result;
+        } finally {
+            if (!streaming) {
+                record(method, success, started);
+            }
+        }
+    }
+
+    private void record(Method method, boolean success, long started) {
+        // [0] success, [1] error; registered on first use of each method
+        Timer[] byOutcome = timers.computeIfAbsent(method, this::register);
+        byOutcome[success ? 0 : 1].record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer[] register(Method method) {
+        MeterRegistry registry = meterRegistry.getObject();
+        return new Timer[] {timer(registry, method, "success"), timer(registry, method, "error")};
+    }
+
+    private Timer timer(MeterRegistry registry, Method method, String outcome) {
+        return Timer.builder("ecometer.repository.invocations")
+                .description("Repository call latency (sampled)")
+                .tag("repository", repository)
+                .tag("method", method.getName())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
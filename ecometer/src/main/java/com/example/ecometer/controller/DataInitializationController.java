@@ -1,22 +1,20 @@
 package com.example.ecometer.controller;
 
-import com.example.ecometer.entity.Department;
-import com.example.ecometer.entity.EnergyData;
-import com.example.ecometer.entity.AiSuggestion;
 import com.example.ecometer.repository.DepartmentRepository;
 import com.example.ecometer.repository.EnergyDataRepository;
 import com.example.ecometer.repository.AiSuggestionRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.ecometer.service.BulkSeedImporter;
+import com.example.ecometer.service.DashboardRollupEngine;
+import com.example.ecometer.service.SuggestionsChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,6 +32,15 @@ public class DataInitializationController {
     @Autowired
     private AiSuggestionRepository aiSuggestionRepository;
 
+    @Autowired
+    private BulkSeedImporter bulkSeedImporter;
+
+    @Autowired
+    private DashboardRollupEngine dashboardRollupEngine;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @PostMapping("/initialize-test-data")
     public ResponseEntity<Map<String, Object>> initializeTestData() {
         Map<String, Object> response = new HashMap<>();
@@ -47,6 +54,8 @@ public class DataInitializationController {
             }
 
             loadTestDataFromJson();
+            dashboardRollupEngine.rebuild();
+            eventPublisher.publishEvent(new SuggestionsChangedEvent());
             
             response.put("message", "Test data loaded successfully!");
             response.put("success", true);
@@ -68,13 +77,13 @@ public class DataInitializationController {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            // Clear existing data
-            energyDataRepository.deleteAll();
-            aiSuggestionRepository.deleteAll();
-            departmentRepository.deleteAll();
+            // Clear existing data (rollups and their high-water mark are derived from energy_data)
+            bulkSeedImporter.truncate();
             
             // Load fresh test data
             loadTestDataFromJson();
+            dashboardRollupEngine.rebuild();
+            eventPublisher.publishEvent(new SuggestionsChangedEvent());
             
             response.put("message", "Database reset and test data loaded successfully!");
             response.put("success", true);
@@ -91,6 +100,41 @@ public class DataInitializationController {
         }
     }
 
+    /**
+     * POST /api/import-seed - Bulk-load a seed file in the test-data.json format from the request body.
+     * Streams the body, so multi-GB exports can be replayed. With truncate=true existing data is cleared first.
+     */
+    @PostMapping(value = "/import-seed", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> importSeed(InputStream body,
+                                                          @RequestParam(defaultValue = "false") boolean truncate) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            if (truncate) {
+                bulkSeedImporter.truncate();
+            }
+            BulkSeedImporter.Report report = bulkSeedImporter.importFrom(body);
+            dashboardRollupEngine.rebuild();
+            eventPublisher.publishEvent(new SuggestionsChangedEvent());
+
+            response.put("message", "Seed data imported successfully!");
+            response.put("success", true);
+            response.put("departments", report.getDepartments());
+            response.put("energyData", report.getReadings());
+            response.put("skippedEnergyData", report.getSkippedReadings());
+            response.put("aiSuggestions", report.getSuggestions());
+            response.put("elapsedMs", report.getElapsedMs());
+            response.put("readingsPerSecond", report.getReadingsPerSecond());
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            response.put("message", "Error importing seed data: " + e.getMessage());
+            response.put("success", false);
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
     @GetMapping("/data-status")
     public ResponseEntity<Map<String, Object>> getDataStatus() {
         Map<String, Object> response = new HashMap<>();
@@ -103,84 +147,9 @@ public class DataInitializationController {
         return ResponseEntity.ok(response);
     }
 
-    private void loadTestDataFromJson() throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
-        ClassPathResource resource = new ClassPathResource("test-data.json");
-        JsonNode rootNode = mapper.readTree(resource.getInputStream());
-
-        // Load Departments
-        JsonNode departmentsNode = rootNode.get("departments");
-        if (departmentsNode.isArray()) {
-            for (JsonNode deptNode : departmentsNode) {
-                Department dept = new Department();
-                dept.setName(deptNode.get("name").asText());
-                dept.setDescription(deptNode.get("description").asText());
-                // Note: The current Department entity doesn't have location, totalDevices, averageConsumption fields
-                // We'll only set the fields that exist
-                departmentRepository.save(dept);
-            }
-        }
-
-        // Load Energy Data
-        JsonNode energyNode = rootNode.get("energyReadings");
-        if (energyNode.isArray()) {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
-            for (JsonNode energyReading : energyNode) {
-                // Find department by name
-                String departmentName = energyReading.get("department").asText();
-                Department department = departmentRepository.findByName(departmentName).orElse(null);
-                if (department != null) {
-                    EnergyData energyData = new EnergyData();
-                    energyData.setDepartment(department);
-                    energyData.setTimestamp(LocalDateTime.parse(energyReading.get("timestamp").asText(), formatter));
-                    energyData.setKwhUsed(BigDecimal.valueOf(energyReading.get("consumption").asDouble()));
-                    energyData.setCostUsd(BigDecimal.valueOf(energyReading.get("cost").asDouble()));
-                    energyData.setSourceType(EnergyData.SourceType.ELECTRICITY); // Default to electricity
-                    energyDataRepository.save(energyData);
-                }
-            }
-        }
-
-        // Load AI Suggestions
-        JsonNode aiNode = rootNode.get("aiSuggestions");
-        if (aiNode.isArray()) {
-            for (JsonNode suggestion : aiNode) {
-                AiSuggestion aiSuggestion = new AiSuggestion();
-                // Map title and description to suggestionText
-                String suggestionText = suggestion.get("title").asText() + ": " + suggestion.get("description").asText();
-                aiSuggestion.setSuggestionText(suggestionText);
-                
-                // Set category based on the type of suggestion
-                aiSuggestion.setCategory(AiSuggestion.Category.ENERGY_SAVING);
-                
-                // Set priority - convert string to enum
-                String priorityStr = suggestion.get("priority").asText();
-                AiSuggestion.Priority priority;
-                switch (priorityStr.toUpperCase()) {
-                    case "HIGH":
-                        priority = AiSuggestion.Priority.HIGH;
-                        break;
-                    case "LOW":
-                        priority = AiSuggestion.Priority.LOW;
-                        break;
-                    default:
-                        priority = AiSuggestion.Priority.MEDIUM;
-                        break;
-                }
-                aiSuggestion.setPriority(priority);
-                
-                // Set estimated savings (convert percentage string to dollar amount)
-                String savingsStr = suggestion.get("potentialSavings").asText().replace("%", "");
-                try {
-                    double savingsPercent = Double.parseDouble(savingsStr);
-                    // Estimate dollar savings based on percentage (rough calculation)
-                    aiSuggestion.setEstimatedSavingsUsd(BigDecimal.valueOf(savingsPercent * 10));
-                } catch (NumberFormatException e) {
-                    aiSuggestion.setEstimatedSavingsUsd(BigDecimal.valueOf(100.00));
-                }
-                
-                aiSuggestionRepository.save(aiSuggestion);
-            }
+    private BulkSeedImporter.Report loadTestDataFromJson() throws IOException {
+        try (InputStream in = new ClassPathResource("test-data.json").getInputStream()) {
+            return bulkSeedImporter.importFrom(in);
         }
     }
 }
\ No newline at end of file
@@ -1,24 +1,58 @@
 package com.example.ecometer.controller;
 
+import com.example.ecometer.dto.AggregateResponse;
+import com.example.ecometer.dto.AnomalyResponse;
 import com.example.ecometer.dto.DashboardResponse;
+import com.example.ecometer.dto.EnergyDataBatchResponse;
 import com.example.ecometer.dto.EnergyDataRequest;
 import com.example.ecometer.dto.EnergyDataResponse;
+import com.example.ecometer.dto.PercentileResponse;
 import com.example.ecometer.dto.SuggestionResponse;
-import com.example.ecometer.entity.AiSuggestion;
 import com.example.ecometer.entity.Department;
 import com.example.ecometer.entity.EnergyData;
-import com.example.ecometer.repository.AiSuggestionRepository;
-import com.example.ecometer.repository.DepartmentRepository;
-import com.example.ecometer.repository.EnergyDataRepository;
+import com.example.ecometer.repository.EnergyAnomalyRepository;
+import com.example.ecometer.repository.EnergyDataPageRepository;
+import com.example.ecometer.service.AggregateQueryService;
+import com.example.ecometer.service.DashboardRollupEngine;
+import com.example.ecometer.service.DashboardStreamPublisher;
+import com.example.ecometer.service.DataVersion;
+import com.example.ecometer.service.DepartmentRegistry;
+import com.example.ecometer.service.EnergyExportService;
+import com.example.ecometer.service.EnergyIngestionService;
+import com.example.ecometer.service.IngestionSpool;
+import com.example.ecometer.service.PercentileQueryService;
+import com.example.ecometer.service.ReadingFrameDecoder;
+import com.example.ecometer.service.ResponseCache;
+import com.example.ecometer.service.SuggestionCache;
+import com.example.ecometer.service.SuggestionEngine;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.math.BigDecimal;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 import java.util.stream.Collectors;
 
 @RestController
@@ -28,109 +62,213 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"}) // Allow React app to call our API from both ports
 public class EcoMeterController {
     
-    private final EnergyDataRepository energyDataRepository;
-    private final DepartmentRepository departmentRepository;
-    private final AiSuggestionRepository aiSuggestionRepository;
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int SUGGESTION_SAMPLE_SIZE = 2;
+    
+    private final EnergyDataPageRepository energyDataPageRepository;
+    private final EnergyAnomalyRepository energyAnomalyRepository;
+    private final DepartmentRegistry departmentRegistry;
+    private final SuggestionCache suggestionCache;
+    private final SuggestionEngine suggestionEngine;
+    private final EnergyIngestionService energyIngestionService;
+    private final DashboardRollupEngine dashboardRollupEngine;
+    private final DashboardStreamPublisher dashboardStreamPublisher;
+    private final AggregateQueryService aggregateQueryService;
+    private final PercentileQueryService percentileQueryService;
+    private final EnergyExportService energyExportService;
+    private final ObjectMapper objectMapper;
+    private final DataVersion dataVersion;
+    private final ResponseCache responseCache;
+    
+    @Value("${ecometer.ingestion.stream-chunk-size:1000}")
+    private int streamChunkSize;
+    
+    @Value("${ecometer.ingestion.retry-after-seconds:1}")
+    private int retryAfterSeconds;
     
     /**
      * POST /api/data - Simulate IoT sensor sending data
-     * Accepts energy consumption data and saves it to database
+     * Accepts energy consumption data and saves it to database; an invalid reading gets 400 with the reason.
+     * In async ingestion mode the reading is queued and 202 is returned; 503 + Retry-After when the queue is full.
+     * Readings with a meterId and sequence are idempotent: a repeat returns 200 without storing a second row.
+     * With ecometer.ingestion.spool.enabled, readings arriving while the database is unreachable are spooled and get 202;
+     * 503 + Retry-After when the database is unreachable and the reading cannot be spooled (disabled or full)
      */
     @PostMapping("/data")
     public ResponseEntity<String> receiveEnergyData(@RequestBody EnergyDataRequest request) {
         try {
-            log.info("Received energy data: {}", request);
+            log.debug("Received energy data: {}", request);
             
-            // Find department
-            Department department = departmentRepository.findById(request.getDepartmentId())
-                    .orElseThrow(() -> new RuntimeException("Department not found with id: " + request.getDepartmentId()));
+            EnergyIngestionService.Outcome outcome = energyIngestionService.isWriteBehindEnabled()
+                    ? energyIngestionService.enqueue(request)
+                    : energyIngestionService.ingest(request);
             
-            // Create new energy data entry
-            EnergyData energyData = new EnergyData();
-            energyData.setDepartment(department);
-            energyData.setKwhUsed(request.getKwhUsed());
-            energyData.setSourceType(EnergyData.SourceType.valueOf(request.getSourceType().toUpperCase()));
-            energyData.setTimestamp(LocalDateTime.now());
-            energyData.setCostUsd(request.getCostUsd());
-            energyData.setCarbonKg(request.getCarbonKg());
+            return switch (outcome) {
+                case SAVED -> ResponseEntity.ok("Energy data saved successfully");
+                case QUEUED -> ResponseEntity.status(HttpStatus.ACCEPTED).body("Energy data accepted");
+                // Durably spooled on local disk; written once the database is reachable again
+                case SPOOLED -> ResponseEntity.status(HttpStatus.ACCEPTED).body("Energy data accepted");
+                // Retries of a delivered reading succeed, so the meter stops resending it
+                case DUPLICATE -> ResponseEntity.ok("Energy data already received");
+                case QUEUE_FULL -> serviceUnavailable().body("Ingestion queue is full, retry later");
+            };
             
-            // Calculate carbon footprint if not provided (simple estimation)
-            if (energyData.getCarbonKg() == null) {
-                // Average carbon intensity: 0.45 kg CO2 per kWh
-                energyData.setCarbonKg(request.getKwhUsed().multiply(new BigDecimal("0.45")));
+        } catch (IllegalArgumentException e) {
+            log.debug("Rejected energy data: {}", e.getMessage());
+            return ResponseEntity.badRequest().body("Invalid energy data: " + e.getMessage());
+        } catch (Exception e) {
+            if (IngestionSpool.isOutage(e)) {
+                log.warn("Database unavailable, energy data not saved: {}", e.getMessage());
+                return serviceUnavailable().body("Database unavailable, retry later");
+            }
+            log.error("Error saving energy data: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error saving energy data: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * POST /api/data/batch - Bulk sensor upload
+     * Accepts a JSON array of readings; departments are validated once per batch
+     * and rows are written with JDBC batch inserts; 503 + Retry-After when the database is unreachable and the
+     * batch cannot be spooled
+     */
+    @PostMapping(value = "/data/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<EnergyDataBatchResponse> receiveEnergyDataBatch(@RequestBody List<EnergyDataRequest> requests) {
+        try {
+            log.debug("Received energy data batch of {} readings", requests.size());
+            return ResponseEntity.ok(energyIngestionService.ingestBatch(requests));
+        } catch (Exception e) {
+            if (IngestionSpool.isOutage(e)) {
+                log.warn("Database unavailable, energy data batch not saved: {}", e.getMessage());
+                return serviceUnavailable().build();
             }
+            log.error("Error saving energy data batch: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * POST /api/data/batch - Bulk sensor upload as NDJSON (one reading per line)
+     * The stream is read and saved in chunks, so arbitrarily long uploads use bounded memory.
+     * A line that is not a valid reading ends the upload with 400: the readings before it are saved and the
+     * malformed one is reported as a rejection at its index
+     */
+    @PostMapping(value = "/data/batch", consumes = NDJSON_MEDIA_TYPE)
+    public ResponseEntity<EnergyDataBatchResponse> receiveEnergyDataStream(InputStream body) {
+        EnergyDataBatchResponse response = new EnergyDataBatchResponse();
+        Map<Long, Department> knownDepartments = new HashMap<>();
+        int offset = 0;
+        try (MappingIterator<EnergyDataRequest> readings = objectMapper.readerFor(EnergyDataRequest.class).readValues(body)) {
+            List<EnergyDataRequest> chunk = new ArrayList<>(streamChunkSize);
+            String malformed = null;
+            while (true) {
+                try {
+                    if (!readings.hasNextValue()) {
+                        break;
+                    }
+                    chunk.add(readings.nextValue());
+                } catch (JsonProcessingException e) {
+                    // The parser cannot resynchronize reliably after a bad line, so the rest of the body is dropped
+                    malformed = "Malformed reading: " + e.getOriginalMessage();
+                    break;
+                }
+                if (chunk.size() == streamChunkSize) {
+                    merge(response, energyIngestionService.ingestBatch(chunk, offset, knownDepartments));
+                    offset += chunk.size();
+                    chunk.clear();
+                }
+            }
+            merge(response, energyIngestionService.ingestBatch(chunk, offset, knownDepartments));
+            offset += chunk.size();
             
-            // Calculate cost if not provided (simple estimation)
-            if (energyData.getCostUsd() == null) {
-                // Average cost: $0.12 per kWh
-                energyData.setCostUsd(request.getKwhUsed().multiply(new BigDecimal("0.12")));
+            if (malformed != null) {
+                log.debug("Malformed NDJSON reading at index {}: {}", offset, malformed);
+                response.reject(offset, malformed);
+                return ResponseEntity.badRequest().body(response);
             }
+            log.debug("Received energy data stream: {} accepted, {} rejected", response.getAccepted(), response.getRejected());
+            return ResponseEntity.ok(response);
             
-            energyDataRepository.save(energyData);
+        } catch (Exception e) {
+            // Chunks before the failure are already committed; report them alongside the error
+            if (IngestionSpool.isOutage(e)) {
+                log.warn("Database unavailable, energy data stream stopped after {} readings: {}", offset, e.getMessage());
+                return serviceUnavailable().body(response);
+            }
+            log.error("Error saving energy data stream after {} readings: {}", offset, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    /**
+     * POST /api/data/batch - Bulk sensor upload in the binary frame format (see ReadingFrameDecoder)
+     * Each frame is validated and saved as one batch; rejection indexes count readings across all frames.
+     * A malformed frame ends the upload with 400, reporting the frames saved before it
+     */
+    @PostMapping(value = "/data/batch", consumes = ReadingFrameDecoder.MEDIA_TYPE)
+    public ResponseEntity<EnergyDataBatchResponse> receiveEnergyDataFrames(InputStream body) {
+        EnergyDataBatchResponse response = new EnergyDataBatchResponse();
+        Map<Long, Department> knownDepartments = new HashMap<>();
+        int offset = 0;
+        try {
+            ReadingFrameDecoder decoder = new ReadingFrameDecoder(body);
+            List<EnergyDataRequest> frame;
+            while ((frame = decoder.nextFrame()) != null) {
+                merge(response, energyIngestionService.ingestBatch(frame, offset, knownDepartments));
+                offset += frame.size();
+            }
             
-            return ResponseEntity.ok("Energy data saved successfully");
+            log.debug("Received energy data frames: {} accepted, {} rejected", response.getAccepted(), response.getRejected());
+            return ResponseEntity.ok(response);
             
+        } catch (IllegalArgumentException e) {
+            log.debug("Malformed reading frame after {} readings: {}", offset, e.getMessage());
+            response.reject(offset, e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
-            log.error("Error saving energy data: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error saving energy data: " + e.getMessage());
+            if (IngestionSpool.isOutage(e)) {
+                log.warn("Database unavailable, energy data frames stopped after {} readings: {}", offset, e.getMessage());
+                return serviceUnavailable().body(response);
+            }
+            log.error("Error saving energy data frames after {} readings: {}", offset, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
+    // 503 + Retry-After: the reading could be neither stored nor spooled, the sender should try again
+    private ResponseEntity.BodyBuilder serviceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+    }
+    
+    private void merge(EnergyDataBatchResponse total, EnergyDataBatchResponse chunk) {
+        total.accept(chunk.getAccepted());
+        total.duplicate(chunk.getDuplicates());
+        total.spool(chunk.getSpooled());
+        for (EnergyDataBatchResponse.Rejection rejection : chunk.getRejections()) {
+            total.reject(rejection.getIndex(), rejection.getReason());
         }
     }
     
     /**
      * GET /api/dashboard-data - Fetch dashboard data
-     * Returns aggregated data for the dashboard including totals and department breakdowns
+     * Returns aggregated data for the dashboard including totals and department breakdowns.
+     * Served from the response cache with an ETag; If-None-Match is answered with 304 while the data is unchanged
      */
     @GetMapping("/dashboard-data")
-    public ResponseEntity<DashboardResponse> getDashboardData() {
+    public ResponseEntity<byte[]> getDashboardData(WebRequest webRequest) {
         try {
-            log.info("Fetching dashboard data");
-            
-            // Get data from last 24 hours
-            LocalDateTime last24Hours = LocalDateTime.now().minusHours(24);
-            List<EnergyData> recentData = energyDataRepository.findRecentEnergyData(last24Hours);
-            
-            // Calculate totals
-            BigDecimal totalCarbonFootprint = recentData.stream()
-                    .map(EnergyData::getCarbonKg)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            log.debug("Fetching dashboard data");
             
-            BigDecimal totalCostUsd = recentData.stream()
-                    .map(EnergyData::getCostUsd)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            BigDecimal totalKwhUsed = recentData.stream()
-                    .map(EnergyData::getKwhUsed)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            // Get department summaries
-            List<Object[]> departmentSummaryData = energyDataRepository.getDepartmentSummary(last24Hours);
-            List<DashboardResponse.DepartmentSummary> departmentSummaries = departmentSummaryData.stream()
-                    .map(row -> new DashboardResponse.DepartmentSummary(
-                            (String) row[0], // department name
-                            (BigDecimal) row[1], // total kwh
-                            (BigDecimal) row[2], // total carbon kg
-                            (BigDecimal) row[3], // total cost usd
-                            recentData.size() // reading count (simplified)
-                    ))
-                    .collect(Collectors.toList());
-            
-            // Get AI suggestions (2 random ones)
-            List<AiSuggestion> suggestions = aiSuggestionRepository.findRandomActiveSuggestions();
-            List<SuggestionResponse> aiSuggestions = suggestions.stream()
-                    .map(this::convertToSuggestionResponse)
-                    .collect(Collectors.toList());
-            
-            DashboardResponse response = new DashboardResponse(
-                    totalCarbonFootprint,
-                    totalCostUsd,
-                    totalKwhUsed,
-                    departmentSummaries,
-                    aiSuggestions
-            );
-            
-            log.info("Dashboard data fetched successfully");
-            return ResponseEntity.ok(response);
+            // The 24-hour window slides with the clock and the suggestions are a random sample, hence the time bucket
+            String version = dataVersion.current(DataVersion.Kind.ENERGY) + "-"
+                    + dataVersion.current(DataVersion.Kind.DEPARTMENTS) + "-"
+                    + dataVersion.current(DataVersion.Kind.SUGGESTIONS) + "-"
+                    + responseCache.timeBucket();
+            return cachedJson(webRequest, "dashboard-data", version, this::buildDashboard);
             
         } catch (Exception e) {
             log.error("Error fetching dashboard data: {}", e.getMessage(), e);
@@ -138,21 +276,125 @@ public class EcoMeterController {
         }
     }
     
+    private DashboardResponse buildDashboard() {
+        // Last 24 hours, served from the in-memory rollup instead of scanning energy_data
+        DashboardRollupEngine.Snapshot snapshot = dashboardRollupEngine.snapshot();
+        List<DashboardResponse.DepartmentSummary> departmentSummaries = snapshot.getDepartments().stream()
+                .map(totals -> new DashboardResponse.DepartmentSummary(
+                        departmentRegistry.nameOf(totals.getDepartmentId()),
+                        totals.getTotalKwh(),
+                        totals.getTotalCarbonKg(),
+                        totals.getTotalCostUsd(),
+                        (int) totals.getReadingCount()
+                ))
+                .collect(Collectors.toList());
+        
+        // Get AI suggestions (2 random ones, sampled from the in-memory cache)
+        List<SuggestionResponse> aiSuggestions = suggestionCache.sample(SUGGESTION_SAMPLE_SIZE);
+        
+        return new DashboardResponse(
+                snapshot.getTotal().getTotalCarbonKg(),
+                snapshot.getTotal().getTotalCostUsd(),
+                snapshot.getTotal().getTotalKwh(),
+                departmentSummaries,
+                aiSuggestions
+        );
+    }
+    
+    /**
+     * GET /api/stream/dashboard - Live dashboard totals (Server-Sent Events)
+     * Sends a "snapshot" event on connect and periodically, and coalesced "update" events as readings arrive
+     */
+    @GetMapping(value = "/stream/dashboard", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDashboard() {
+        try {
+            return ResponseEntity.ok(dashboardStreamPublisher.subscribe());
+        } catch (Exception e) {
+            log.error("Error opening dashboard stream: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * GET /api/aggregates - Totals for an arbitrary time range
+     * Served from the daily/hourly rollup tables where they cover the range; only not-yet-compacted rows are read raw
+     */
+    @GetMapping("/aggregates")
+    public ResponseEntity<AggregateResponse> getAggregates(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long departmentId) {
+        try {
+            log.debug("Fetching aggregates from {} to {} (department: {})", from, to, departmentId);
+            return ResponseEntity.ok(aggregateQueryService.aggregate(from, to != null ? to : LocalDateTime.now(), departmentId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error fetching aggregates: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * GET /api/percentiles - Reading-size and hourly-demand percentiles for a time range and set of departments
+     * Merged from the hourly quantile sketches; departmentIds defaults to all, quantiles to 0.5,0.95,0.99
+     */
+    @GetMapping("/percentiles")
+    public ResponseEntity<PercentileResponse> getPercentiles(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) List<Long> departmentIds,
+            @RequestParam(required = false) List<Double> quantiles) {
+        try {
+            log.debug("Fetching percentiles from {} to {} (departments: {})", from, to, departmentIds);
+            return ResponseEntity.ok(percentileQueryService.percentiles(from, to != null ? to : LocalDateTime.now(),
+                    departmentIds, quantiles != null && !quantiles.isEmpty() ? quantiles : PercentileQueryService.DEFAULT_QUANTILES));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error fetching percentiles: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * GET /api/anomalies - Readings flagged as spikes against their department/source baseline, newest first
+     * Defaults to the last 24 hours
+     */
+    @GetMapping("/anomalies")
+    public ResponseEntity<List<AnomalyResponse>> getAnomalies(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) Long departmentId,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                return ResponseEntity.badRequest().build();
+            }
+            LocalDateTime from = since != null ? since : LocalDateTime.now().minusHours(24);
+            List<AnomalyResponse> anomalies = energyAnomalyRepository.findRecent(from, departmentId, PageRequest.of(0, limit))
+                    .stream()
+                    .map(a -> new AnomalyResponse(a.getId(), a.getDepartmentId(), departmentRegistry.nameOf(a.getDepartmentId()),
+                            a.getSourceType().toString(), a.getEnergyDataId(), a.getReadingTimestamp(), a.getKwhUsed(),
+                            a.getExpectedKwh(), a.getScore(), a.getDetectedAt()))
+                    .collect(Collectors.toList());
+            return ResponseEntity.ok(anomalies);
+        } catch (Exception e) {
+            log.error("Error fetching anomalies: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
     /**
      * GET /api/suggestions - Get AI suggestions
      * Returns AI-generated suggestions for energy savings
      */
     @GetMapping("/suggestions")
-    public ResponseEntity<List<SuggestionResponse>> getAiSuggestions() {
+    public ResponseEntity<byte[]> getAiSuggestions(WebRequest webRequest) {
         try {
-            log.info("Fetching AI suggestions");
+            log.debug("Fetching AI suggestions");
             
-            List<AiSuggestion> suggestions = aiSuggestionRepository.findRandomActiveSuggestions();
-            List<SuggestionResponse> response = suggestions.stream()
-                    .map(this::convertToSuggestionResponse)
-                    .collect(Collectors.toList());
-            
-            return ResponseEntity.ok(response);
+            String version = dataVersion.current(DataVersion.Kind.SUGGESTIONS) + "-" + responseCache.timeBucket();
+            return cachedJson(webRequest, "suggestions", version, () -> suggestionCache.sample(SUGGESTION_SAMPLE_SIZE));
             
         } catch (Exception e) {
             log.error("Error fetching AI suggestions: {}", e.getMessage(), e);
@@ -161,26 +403,31 @@ public class EcoMeterController {
     }
     
     /**
-     * Helper method to convert AiSuggestion entity to response DTO
+     * POST /api/suggestions/evaluate - Run the suggestion rules over the rollups now
+     * Returns the run's report, or 409 while a scheduled run is in progress
      */
-    private SuggestionResponse convertToSuggestionResponse(AiSuggestion suggestion) {
-        return new SuggestionResponse(
-                suggestion.getId(),
-                suggestion.getSuggestionText(),
-                suggestion.getCategory().toString(),
-                suggestion.getPriority().toString(),
-                suggestion.getEstimatedSavingsUsd()
-        );
+    @PostMapping("/suggestions/evaluate")
+    public ResponseEntity<SuggestionEngine.Report> evaluateSuggestions() {
+        try {
+            SuggestionEngine.Report report = suggestionEngine.evaluate();
+            return report != null ? ResponseEntity.ok(report) : ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (Exception e) {
+            log.error("Error evaluating suggestion rules: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
     }
     
     /**
      * GET /api/departments - Get all departments (helper endpoint)
      */
     @GetMapping("/departments")
-    public ResponseEntity<List<Department>> getAllDepartments() {
+    public ResponseEntity<byte[]> getAllDepartments(WebRequest webRequest) {
         try {
-            List<Department> departments = departmentRepository.findAll();
-            return ResponseEntity.ok(departments);
+            String version = String.valueOf(dataVersion.current(DataVersion.Kind.DEPARTMENTS));
+            return cachedJson(webRequest, "departments", version, departmentRegistry::findAll);
         } catch (Exception e) {
             log.error("Error fetching departments: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -188,26 +435,111 @@ public class EcoMeterController {
     }
     
     /**
-     * GET /api/energy - Get recent energy data (for real-time monitoring)
+     * GET /api/energy - Get recent energy data (for real-time monitoring and audits)
+     * Newest first, keyset-paginated: pass the X-Next-Cursor value of a response as {@code after} to get the next page
      */
     @GetMapping("/energy")
-    public ResponseEntity<List<EnergyDataResponse>> getRecentEnergyData(@RequestParam(defaultValue = "10") int limit) {
+    public ResponseEntity<List<EnergyDataResponse>> getRecentEnergyData(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Long departmentId,
+            @RequestParam(required = false) String sourceType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
         try {
-            log.info("Fetching recent energy data (limit: {})", limit);
+            log.debug("Fetching recent energy data (limit: {}, after: {})", limit, after);
             
-            // Get most recent energy data entries
-            List<EnergyData> recentData = energyDataRepository.findTop10ByOrderByCreatedAtDesc();
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                return ResponseEntity.badRequest().build();
+            }
+            LocalDateTime afterTimestamp = null;
+            Long afterId = null;
+            if (after != null) {
+                String[] cursor = after.split(",", 2);
+                afterTimestamp = LocalDateTime.parse(cursor[0]);
+                afterId = Long.parseLong(cursor[1]);
+            }
+            EnergyData.SourceType source = sourceType != null ? EnergyData.SourceType.valueOf(sourceType.toUpperCase()) : null;
             
-            // Convert to DTOs to avoid circular reference issues
-            List<EnergyDataResponse> response = recentData.stream()
-                    .map(EnergyDataResponse::new)
-                    .collect(Collectors.toList());
+            // Fetch one extra row to know whether another page follows
+            List<EnergyDataResponse> page = energyDataPageRepository.findPage(
+                    departmentId, source, from, to, afterTimestamp, afterId, limit + 1);
             
-            return ResponseEntity.ok(response);
+            if (page.size() <= limit) {
+                return ResponseEntity.ok(page);
+            }
+            page = page.subList(0, limit);
+            EnergyDataResponse last = page.get(limit - 1);
+            return ResponseEntity.ok()
+                    .header(NEXT_CURSOR_HEADER, last.getTimestamp() + "," + last.getId())
+                    .body(page);
             
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            log.warn("Invalid energy data query: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error fetching recent energy data: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * GET /api/energy/export - Download energy history as CSV or NDJSON
+     * Rows are streamed from a database cursor to the response, optionally gzip-compressed
+     */
+    @GetMapping("/energy/export")
+    public ResponseEntity<StreamingResponseBody> exportEnergyData(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long departmentId,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        EnergyExportService.Format exportFormat;
+        try {
+            exportFormat = EnergyExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        LocalDateTime rangeStart = from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0);
+        LocalDateTime rangeEnd = to != null ? to : LocalDateTime.now().plusDays(1);
+        log.debug("Exporting energy data as {} from {} to {} (department: {}, gzip: {})",
+                exportFormat, rangeStart, rangeEnd, departmentId, gzip);
+        
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024)) {
+                    energyExportService.export(gzipOut, exportFormat, rangeStart, rangeEnd, departmentId);
+                }
+            } else {
+                energyExportService.export(out, exportFormat, rangeStart, rangeEnd, departmentId);
+            }
+        };
+        
+        String extension = exportFormat == EnergyExportService.Format.CSV ? "csv" : "ndjson";
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat == EnergyExportService.Format.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"energy-export." + extension + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+    
+    /**
+     * Serves a JSON body from the response cache. Revalidation is forced with no-cache, so clients always send
+     * If-None-Match and get a 304 without a body while the version is unchanged.
+     */
+    private ResponseEntity<byte[]> cachedJson(WebRequest webRequest, String key, String version, Supplier<?> renderer) {
+        ResponseCache.Entry entry = responseCache.get(key, version, renderer);
+        if (webRequest.checkNotModified(entry.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(entry.etag())
+                .body(entry.body());
+    }
+}
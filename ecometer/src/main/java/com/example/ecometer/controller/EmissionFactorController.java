@@ -0,0 +1,77 @@
+package com.example.ecometer.controller;
+
+import com.example.ecometer.service.EmissionFactorEngine;
+import com.example.ecometer.service.FactorRecomputeJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/emission-factors")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class EmissionFactorController {
+
+    private final EmissionFactorEngine emissionFactorEngine;
+    private final FactorRecomputeJob factorRecomputeJob;
+
+    /**
+     * GET /api/emission-factors - Current factor table, its version and the state of the last recompute
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getFactors() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("version", emissionFactorEngine.getVersion());
+        response.put("table", emissionFactorEngine.getTable());
+        response.put("recomputeRunning", factorRecomputeJob.isRunning());
+        response.put("lastRecompute", factorRecomputeJob.getLastReport());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * POST /api/emission-factors/reload - Re-read the factor table now instead of waiting for the file watcher.
+     * A changed table re-prices stored estimates in the background when ecometer.factors.recompute-on-change is set.
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Object>> reload() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("changed", emissionFactorEngine.reload());
+            response.put("version", emissionFactorEngine.getVersion());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("message", "Invalid emission factor table: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Error reloading emission factors: {}", e.getMessage(), e);
+            response.put("message", "Error reloading emission factors: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * POST /api/emission-factors/recompute?from=...&to=... - Re-price stored estimates with the current table
+     * Runs in the background; progress is reported by GET /api/emission-factors
+     */
+    @PostMapping("/recompute")
+    public ResponseEntity<Map<String, Object>> recompute(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        Map<String, Object> response = new HashMap<>();
+        if (factorRecomputeJob.start(from, to)) {
+            response.put("message", "Recompute started");
+        } else {
+            response.put("message", "A recompute is already running; a full pass will follow it");
+        }
+        response.put("version", emissionFactorEngine.getVersion());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.ecometer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AggregateResponse {
+    // Effective range after aligning to whole hours
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private BigDecimal totalKwh;
+    private BigDecimal totalCarbonKg;
+    private BigDecimal totalCostUsd;
+    private Long readingCount;
+    private List<DashboardResponse.DepartmentSummary> departmentSummaries;
+    // Storage tiers that were read: "daily", "hourly" and/or "raw"
+    private List<String> sources;
+}
@@ -0,0 +1,25 @@
+package com.example.ecometer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnomalyResponse {
+    private Long id;
+    private Long departmentId;
+    private String departmentName;
+    private String sourceType;
+    private Long energyDataId;
+    private LocalDateTime timestamp;
+    private BigDecimal kwhUsed;
+    private BigDecimal expectedKwh;
+    // Standard deviations above the baseline
+    private Double score;
+    private LocalDateTime detectedAt;
+}
@@ -0,0 +1,51 @@
+package com.example.ecometer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Payload of the /api/stream/dashboard events.
+ * A "snapshot" event carries every department; an "update" event only the departments whose totals changed
+ * and the readings ingested since the previous event.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DashboardStreamUpdate {
+    private BigDecimal totalCarbonFootprint;
+    private BigDecimal totalCostUsd;
+    private BigDecimal totalKwhUsed;
+    private List<DepartmentTotals> departmentSummaries;
+    private List<Reading> readings;
+    private Integer omittedReadings;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DepartmentTotals {
+        private Long departmentId;
+        private String departmentName;
+        private BigDecimal totalKwh;
+        private BigDecimal totalCarbonKg;
+        private BigDecimal totalCostUsd;
+        private Long readingCount;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Reading {
+        private Long id;
+        private Long departmentId;
+        private String sourceType;
+        private LocalDateTime timestamp;
+        private BigDecimal kwhUsed;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.ecometer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Emission factors and tariffs as loaded from emission-factors.json.
+ * The defaults apply to every reading no rule covers.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmissionFactorTable {
+    private BigDecimal defaultCarbonKgPerKwh;
+    private BigDecimal defaultCostUsdPerKwh;
+    private List<Rule> rules = new ArrayList<>();
+
+    /**
+     * Overrides the carbon factor and/or tariff for the readings it matches. Unset criteria match everything.
+     * When several rules match, the most specific one wins (department and source type, then department,
+     * then source type); between equally specific rules the later one in the list wins.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rule {
+        private String name;
+        private String sourceType;
+        private Long departmentId;
+        // Effective interval, start inclusive and end exclusive
+        private LocalDateTime effectiveFrom;
+        private LocalDateTime effectiveTo;
+        // Time-of-use window in hours of the day, start inclusive and end exclusive; may wrap past midnight (22 to 6)
+        private Integer fromHour;
+        private Integer toHour;
+        private BigDecimal carbonKgPerKwh;
+        private BigDecimal costUsdPerKwh;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.ecometer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnergyDataBatchResponse {
+    private int accepted;
+    private int rejected;
+    // Retried readings the meter had already delivered; neither stored again nor errors
+    private int duplicates;
+    // Readings accepted into the local spool while the database was unreachable; stored once it is back
+    private int spooled;
+    private List<Rejection> rejections = new ArrayList<>();
+    
+    public void accept(int count) {
+        this.accepted += count;
+    }
+    
+    public void duplicate(int count) {
+        this.duplicates += count;
+    }
+    
+    public void spool(int count) {
+        this.spooled += count;
+    }
+    
+    public void reject(int index, String reason) {
+        this.rejected++;
+        this.rejections.add(new Rejection(index, reason));
+    }
+    
+    // Only rejected items are listed; every other index in the batch was accepted
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rejection {
+        private int index;
+        private String reason;
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Data
 @NoArgsConstructor
@@ -15,4 +16,9 @@ public class EnergyDataRequest {
     private String sourceType; // Will be converted to enum
     private BigDecimal costUsd;
     private BigDecimal carbonKg;
+    // Optional: meters that retry send their id and a per-meter increasing sequence so repeats are stored once
+    private String meterId;
+    private Long sequence;
+    // Optional: when the reading was taken (server-local time); defaults to the time it is received
+    private LocalDateTime readingTimestamp;
 }
\ No newline at end of file
@@ -24,6 +24,13 @@ public class EnergyDataResponse {
     private Long departmentId;
     private String departmentName;
     
+    // Constructor used by JPQL projections, which select the enum rather than its name
+    public EnergyDataResponse(Long id, BigDecimal kwhUsed, EnergyData.SourceType sourceType, LocalDateTime timestamp,
+                              BigDecimal costUsd, BigDecimal carbonKg, LocalDateTime createdAt,
+                              Long departmentId, String departmentName) {
+        this(id, kwhUsed, sourceType.toString(), timestamp, costUsd, carbonKg, createdAt, departmentId, departmentName);
+    }
+    
     // Constructor to convert from EnergyData entity
     public EnergyDataResponse(EnergyData energyData) {
         this.id = energyData.getId();
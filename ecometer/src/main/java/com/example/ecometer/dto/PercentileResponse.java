@@ -0,0 +1,42 @@
+package com.example.ecometer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PercentileResponse {
+    // Effective range after aligning to whole hours
+    private LocalDateTime from;
+    private LocalDateTime to;
+    // Percentiles are within this relative error of the exact values
+    private Double relativeAccuracy;
+    // Hourly sketches merged to answer the query
+    private Long buckets;
+    // All requested departments together
+    private DepartmentPercentiles total;
+    private List<DepartmentPercentiles> departments;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DepartmentPercentiles {
+        private Long departmentId;
+        private String departmentName;
+        private Long readingCount;
+        // kWh per reading: smallest, largest and the requested percentiles keyed "p50", "p95", ...
+        private BigDecimal minReadingKwh;
+        private BigDecimal maxReadingKwh;
+        private Map<String, BigDecimal> readingKwh;
+        // kWh per hour, over the hours with readings: the peak and the requested percentiles
+        private BigDecimal peakHourlyKwh;
+        private Map<String, BigDecimal> hourlyKwh;
+    }
+}
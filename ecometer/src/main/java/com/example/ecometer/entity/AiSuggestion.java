@@ -35,6 +35,13 @@ public class AiSuggestion {
     @Column(name = "estimated_savings_usd", precision = 8, scale = 2)
     private BigDecimal estimatedSavingsUsd;
     
+    // Set on rows generated by the SuggestionEngine: the rule and its subject, e.g. "baseload:12"; null for seed rows
+    @Column(name = "rule_key", length = 100, unique = true)
+    private String ruleKey;
+    
+    @Column(name = "department_id")
+    private Long departmentId;
+    
     @Column(name = "is_active", nullable = false)
     private Boolean isActive = true;
     
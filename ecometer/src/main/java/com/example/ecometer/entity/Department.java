@@ -1,5 +1,6 @@
 package com.example.ecometer.entity;
 
+import com.example.ecometer.service.DepartmentRegistryListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -14,6 +15,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "departments")
+@EntityListeners(DepartmentRegistryListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
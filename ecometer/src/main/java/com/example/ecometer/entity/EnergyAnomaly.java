@@ -0,0 +1,55 @@
+package com.example.ecometer.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A reading that stood out from the baseline of its department and source type when it was ingested.
+ */
+@Entity
+@Table(name = "energy_anomalies", indexes = {
+        @Index(name = "idx_anomaly_timestamp", columnList = "reading_timestamp"),
+        @Index(name = "idx_anomaly_department_timestamp", columnList = "department_id, reading_timestamp")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnergyAnomaly {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "department_id", nullable = false)
+    private Long departmentId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "source_type", nullable = false)
+    private EnergyData.SourceType sourceType;
+    
+    // energy_data.id of the reading; no foreign key, since raw partitions may be dropped by retention
+    @Column(name = "energy_data_id")
+    private Long energyDataId;
+    
+    @Column(name = "reading_timestamp", nullable = false)
+    private LocalDateTime readingTimestamp;
+    
+    @Column(name = "kwh_used", nullable = false, precision = 10, scale = 2)
+    private BigDecimal kwhUsed;
+    
+    // Baseline mean at the time of the reading
+    @Column(name = "expected_kwh", nullable = false, precision = 10, scale = 2)
+    private BigDecimal expectedKwh;
+    
+    // Distance above the baseline mean, in baseline standard deviations
+    @Column(nullable = false)
+    private Double score;
+    
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt;
+}
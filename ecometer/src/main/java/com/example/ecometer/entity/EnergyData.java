@@ -10,8 +10,17 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+/**
+ * Schema is managed by the Flyway migrations; on MySQL and PostgreSQL the table is range-partitioned by month on
+ * timestamp, which is why the primary and unique keys there include it.
+ */
 @Entity
-@Table(name = "energy_data")
+@Table(name = "energy_data", indexes = {
+        @Index(name = "idx_department_timestamp", columnList = "department_id, timestamp"),
+        @Index(name = "idx_timestamp", columnList = "timestamp, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_energy_data_meter_sequence", columnNames = {"meter_id", "meter_sequence", "timestamp"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -42,6 +51,23 @@ public class EnergyData {
     @Column(name = "carbon_kg", precision = 10, scale = 3)
     private BigDecimal carbonKg;
     
+    // Set when carbon_kg / cost_usd were estimated from the emission factor table instead of sent by the sensor;
+    // only estimated values are re-priced when the table changes
+    @Column(name = "carbon_estimated")
+    private Boolean carbonEstimated;
+    
+    @Column(name = "cost_estimated")
+    private Boolean costEstimated;
+    
+    // Set for readings from meters that send a sequence number; the unique key (which has to include the
+    // partitioning column) stops retried readings with the same reading timestamp from being stored twice
+    // (rows without a meter id are never considered duplicates)
+    @Column(name = "meter_id", length = 64)
+    private String meterId;
+    
+    @Column(name = "meter_sequence")
+    private Long meterSequence;
+    
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,57 @@
+package com.example.ecometer.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Columns shared by the hourly and daily rollup tables.
+ * One row holds the sums of all energy_data readings of a department and source type within one bucket.
+ */
+@MappedSuperclass
+@Getter
+@Setter
+public abstract class EnergyRollup {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "department_id", nullable = false)
+    private Long departmentId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "source_type", nullable = false)
+    private EnergyData.SourceType sourceType;
+    
+    // Start of the bucket (top of the hour or midnight, server local time)
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+    
+    @Column(name = "reading_count", nullable = false)
+    private Long readingCount = 0L;
+    
+    @Column(name = "total_kwh", nullable = false, precision = 16, scale = 2)
+    private BigDecimal totalKwh = BigDecimal.ZERO;
+    
+    @Column(name = "total_carbon_kg", nullable = false, precision = 16, scale = 3)
+    private BigDecimal totalCarbonKg = BigDecimal.ZERO;
+    
+    @Column(name = "total_cost_usd", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalCostUsd = BigDecimal.ZERO;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    public void add(long readings, BigDecimal kwh, BigDecimal carbonKg, BigDecimal costUsd) {
+        this.readingCount += readings;
+        this.totalKwh = this.totalKwh.add(kwh);
+        this.totalCarbonKg = this.totalCarbonKg.add(carbonKg);
+        this.totalCostUsd = this.totalCostUsd.add(costUsd);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.ecometer.entity;
+
+import jakarta.persistence.*;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "energy_rollup_hourly",
+       uniqueConstraints = @UniqueConstraint(name = "uk_rollup_hourly_bucket", columnNames = {"department_id", "source_type", "bucket_start"}),
+       indexes = @Index(name = "idx_rollup_hourly_bucket_start", columnList = "bucket_start"))
+@NoArgsConstructor
+public class EnergyRollupHourly extends EnergyRollup {
+}
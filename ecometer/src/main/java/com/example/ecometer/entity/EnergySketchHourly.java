@@ -0,0 +1,47 @@
+package com.example.ecometer.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Quantile sketch of the kWh of every reading of a department within one hour, all source types together,
+ * maintained by the rollup compaction next to energy_rollup_hourly (see QuantileSketch for the encoding).
+ */
+@Entity
+@Table(name = "energy_sketch_hourly",
+       uniqueConstraints = @UniqueConstraint(name = "uk_sketch_hourly_bucket", columnNames = {"department_id", "bucket_start"}),
+       indexes = @Index(name = "idx_sketch_hourly_bucket_start", columnList = "bucket_start"))
+@Data
+@NoArgsConstructor
+public class EnergySketchHourly {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "department_id", nullable = false)
+    private Long departmentId;
+    
+    // Top of the hour, server local time
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+    
+    @Column(name = "reading_count", nullable = false)
+    private Long readingCount = 0L;
+    
+    // Demand of the hour: the department's kWh over all source types
+    @Column(name = "total_kwh", nullable = false, precision = 16, scale = 2)
+    private BigDecimal totalKwh = BigDecimal.ZERO;
+    
+    @Column(nullable = false, length = 65535)
+    private byte[] sketch;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
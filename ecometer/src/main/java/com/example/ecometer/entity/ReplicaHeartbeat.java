@@ -0,0 +1,25 @@
+package com.example.ecometer.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Heartbeat written to the primary and read back from the read replica to measure replication lag.
+ * One row per writing instance; beatMillis is the writer's clock in epoch milliseconds.
+ */
+@Entity
+@Table(name = "replica_heartbeats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicaHeartbeat {
+    
+    @Id
+    @Column(length = 100)
+    private String instance;
+    
+    @Column(name = "beat_millis", nullable = false)
+    private Long beatMillis;
+}
@@ -0,0 +1,37 @@
+package com.example.ecometer.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * High-water mark of the rollup compaction: every energy_data row with id <= lastId has been folded into the rollups.
+ */
+@Entity
+@Table(name = "rollup_watermarks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupWatermark {
+    
+    public static final String ENERGY_DATA = "energy_data";
+    
+    @Id
+    @Column(length = 50)
+    private String name;
+    
+    @Column(name = "last_id", nullable = false)
+    private Long lastId = 0L;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    public RollupWatermark(String name) {
+        this.name = name;
+    }
+}
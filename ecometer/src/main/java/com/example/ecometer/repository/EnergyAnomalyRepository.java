@@ -0,0 +1,22 @@
+package com.example.ecometer.repository;
+
+import com.example.ecometer.entity.EnergyAnomaly;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@Transactional(readOnly = true)
+public interface EnergyAnomalyRepository extends JpaRepository<EnergyAnomaly, Long> {
+    
+    @Query("SELECT a FROM EnergyAnomaly a " +
+           "WHERE a.readingTimestamp >= :since " +
+           "AND (:departmentId IS NULL OR a.departmentId = :departmentId) " +
+           "ORDER BY a.readingTimestamp DESC, a.id DESC")
+    List<EnergyAnomaly> findRecent(LocalDateTime since, Long departmentId, Pageable page);
+}
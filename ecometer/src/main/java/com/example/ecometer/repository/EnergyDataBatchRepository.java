@@ -0,0 +1,189 @@
+package com.example.ecometer.repository;
+
+import com.example.ecometer.entity.EnergyData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Plain JDBC writer for energy_data.
+ * EnergyData uses IDENTITY keys, which stops Hibernate from batching inserts,
+ * so bulk writes go through JdbcTemplate batches instead (one round trip per batch).
+ */
+@Repository
+public class EnergyDataBatchRepository {
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO energy_data (department_id, kwh_used, source_type, timestamp, cost_usd, carbon_kg, " +
+            "carbon_estimated, cost_estimated, meter_id, meter_sequence, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    
+    public EnergyDataBatchRepository(JdbcTemplate jdbcTemplate,
+                                     @Value("${ecometer.ingestion.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Inserts the rows in JDBC batches and copies the generated ids back onto them.
+     */
+    @Transactional
+    public int insertAll(List<EnergyData> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<EnergyData> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[] {"id"}),
+                    setter(chunk, createdAt), keyHolder);
+            assignIds(chunk, keyHolder);
+        }
+        return rows.size();
+    }
+
+    /**
+     * Inserts the rows in JDBC batches without reading generated keys back, for bulk loads that do not need the ids.
+     */
+    @Transactional
+    public int insertAllWithoutKeys(List<EnergyData> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<EnergyData> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            jdbcTemplate.batchUpdate(INSERT_SQL, setter(chunk, createdAt));
+        }
+        return rows.size();
+    }
+
+    /**
+     * Returns which of the given readings are already stored, matched on the full dedup key
+     * (meter_id, meter_sequence, timestamp).
+     * Only called after the unique key rejected a write, so this is off the normal ingestion path.
+     * Not read-only: the answer must come from the primary, a lagging replica may not have the conflicting rows yet.
+     */
+    @Transactional
+    public Set<MeterReadingKey> findStoredReadings(Set<MeterReadingKey> keys) {
+        Set<MeterReadingKey> stored = new HashSet<>();
+        if (keys.isEmpty()) {
+            return stored;
+        }
+        List<String> meters = keys.stream().map(MeterReadingKey::meterId).distinct().toList();
+        List<Long> sequences = keys.stream().map(MeterReadingKey::sequence).distinct().toList();
+        List<Timestamp> timestamps = keys.stream().map(key -> Timestamp.valueOf(key.timestamp())).distinct().toList();
+        List<Object> args = new ArrayList<>(meters.size() + sequences.size() + timestamps.size());
+        args.addAll(meters);
+        args.addAll(sequences);
+        args.addAll(timestamps);
+        // Matches a superset of the keys (any meter x any sequence x any timestamp); the exact keys are picked out
+        // below. The timestamp condition also prunes the lookup to the partitions the readings fall in.
+        String sql = "SELECT meter_id, meter_sequence, timestamp FROM energy_data WHERE meter_id IN ("
+                + placeholders(meters.size()) + ") AND meter_sequence IN (" + placeholders(sequences.size())
+                + ") AND timestamp IN (" + placeholders(timestamps.size()) + ")";
+        jdbcTemplate.query(sql, rs -> {
+            MeterReadingKey key = new MeterReadingKey(rs.getString(1), rs.getLong(2),
+                    rs.getTimestamp(3).toLocalDateTime());
+            if (keys.contains(key)) {
+                stored.add(key);
+            }
+        }, args.toArray());
+        return stored;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private BatchPreparedStatementSetter setter(List<EnergyData> chunk, Timestamp createdAt) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                bind(ps, chunk.get(i), createdAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size();
+            }
+        };
+    }
+
+    private void bind(PreparedStatement ps, EnergyData row, Timestamp createdAt) throws SQLException {
+        ps.setLong(1, row.getDepartment().getId());
+        ps.setBigDecimal(2, row.getKwhUsed());
+        ps.setString(3, row.getSourceType().name());
+        ps.setTimestamp(4, Timestamp.valueOf(row.getTimestamp()));
+        if (row.getCostUsd() != null) {
+            ps.setBigDecimal(5, row.getCostUsd());
+        } else {
+            ps.setNull(5, Types.DECIMAL);
+        }
+        if (row.getCarbonKg() != null) {
+            ps.setBigDecimal(6, row.getCarbonKg());
+        } else {
+            ps.setNull(6, Types.DECIMAL);
+        }
+        setFlag(ps, 7, row.getCarbonEstimated());
+        setFlag(ps, 8, row.getCostEstimated());
+        if (row.getMeterId() != null) {
+            ps.setString(9, row.getMeterId());
+            ps.setLong(10, row.getMeterSequence());
+        } else {
+            ps.setNull(9, Types.VARCHAR);
+            ps.setNull(10, Types.BIGINT);
+        }
+        ps.setTimestamp(11, createdAt);
+    }
+
+    private void setFlag(PreparedStatement ps, int index, Boolean flag) throws SQLException {
+        if (flag != null) {
+            ps.setBoolean(index, flag);
+        } else {
+            ps.setNull(index, Types.BOOLEAN);
+        }
+    }
+
+    private void assignIds(List<EnergyData> chunk, KeyHolder keyHolder) {
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != chunk.size()) {
+            return;
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            Object id = keys.get(i).values().iterator().next();
+            if (id instanceof Number number) {
+                chunk.get(i).setId(number.longValue());
+            }
+        }
+    }
+
+    /**
+     * The columns of uk_energy_data_meter_sequence for one reading.
+     */
+    public record MeterReadingKey(String meterId, long sequence, LocalDateTime timestamp) {
+
+        public static MeterReadingKey of(EnergyData row) {
+            return new MeterReadingKey(row.getMeterId(), row.getMeterSequence(), row.getTimestamp());
+        }
+    }
+}
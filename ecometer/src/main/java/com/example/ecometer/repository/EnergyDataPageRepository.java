@@ -0,0 +1,67 @@
+package com.example.ecometer.repository;
+
+import com.example.ecometer.dto.EnergyDataResponse;
+import com.example.ecometer.entity.EnergyData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset (seek) pagination over energy_data, newest first.
+ *
+ * Pages are addressed by the (timestamp, id) of the last row of the previous page instead of an offset,
+ * so every page is an index range scan of the same size no matter how deep it is. Only the filters that
+ * are actually set are added to the statement, which keeps the predicates index-friendly on both dialects.
+ * Rows are projected straight into EnergyDataResponse with the department name joined in the same query.
+ */
+@Repository
+public class EnergyDataPageRepository {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Transactional(readOnly = true)
+    public List<EnergyDataResponse> findPage(Long departmentId, EnergyData.SourceType sourceType,
+                                             LocalDateTime from, LocalDateTime to,
+                                             LocalDateTime afterTimestamp, Long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.example.ecometer.dto.EnergyDataResponse(" +
+                "ed.id, ed.kwhUsed, ed.sourceType, ed.timestamp, ed.costUsd, ed.carbonKg, ed.createdAt, d.id, d.name) " +
+                "FROM EnergyData ed JOIN ed.department d WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        
+        if (departmentId != null) {
+            jpql.append(" AND d.id = :departmentId");
+            params.put("departmentId", departmentId);
+        }
+        if (sourceType != null) {
+            jpql.append(" AND ed.sourceType = :sourceType");
+            params.put("sourceType", sourceType);
+        }
+        if (from != null) {
+            jpql.append(" AND ed.timestamp >= :from");
+            params.put("from", from);
+        }
+        if (to != null) {
+            jpql.append(" AND ed.timestamp < :to");
+            params.put("to", to);
+        }
+        if (afterTimestamp != null && afterId != null) {
+            jpql.append(" AND (ed.timestamp < :afterTimestamp OR (ed.timestamp = :afterTimestamp AND ed.id < :afterId))");
+            params.put("afterTimestamp", afterTimestamp);
+            params.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY ed.timestamp DESC, ed.id DESC");
+        
+        TypedQuery<EnergyDataResponse> query = entityManager.createQuery(jpql.toString(), EnergyDataResponse.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
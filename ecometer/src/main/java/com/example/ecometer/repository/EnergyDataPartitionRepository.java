@@ -0,0 +1,145 @@
+package com.example.ecometer.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+
+import java.sql.DatabaseMetaData;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Monthly range partitions of energy_data, as laid out by the V2 migration of each database vendor.
+ *
+ * MySQL: partitions pYYYYMM, p_history for everything older and pmax (MAXVALUE); new months are split out of pmax.
+ * PostgreSQL: partition tables energy_data_pYYYYMM, energy_data_history and energy_data_default.
+ * Other databases (the H2 load-test profile) have no partitions and every method is a no-op.
+ */
+@Repository
+@Slf4j
+public class EnergyDataPartitionRepository {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    public enum Vendor {
+        MYSQL, POSTGRESQL, OTHER
+    }
+
+    /**
+     * One partition; {@code month} is null for the history partition that holds everything before the first month.
+     */
+    public record Partition(String name, YearMonth month) {
+        public boolean isHistory() {
+            return month == null;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Vendor vendor;
+
+    public EnergyDataPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Vendor vendor() {
+        if (vendor == null) {
+            vendor = detectVendor();
+        }
+        return vendor;
+    }
+
+    /**
+     * Monthly and history partitions, oldest first; empty when energy_data is not partitioned.
+     * The catch-all partition (pmax / energy_data_default) is left out.
+     */
+    public List<Partition> findPartitions() {
+        List<String> names = switch (vendor()) {
+            case MYSQL -> jdbcTemplate.queryForList(
+                    "SELECT partition_name FROM information_schema.partitions " +
+                    "WHERE table_schema = DATABASE() AND table_name = 'energy_data' AND partition_name IS NOT NULL",
+                    String.class);
+            case POSTGRESQL -> jdbcTemplate.queryForList(
+                    "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                    "WHERE i.inhparent = 'energy_data'::regclass", String.class);
+            case OTHER -> List.of();
+        };
+        String monthPrefix = vendor() == Vendor.MYSQL ? "p" : "energy_data_p";
+        String historyName = vendor() == Vendor.MYSQL ? "p_history" : "energy_data_history";
+        List<Partition> partitions = new ArrayList<>();
+        for (String name : names) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (lower.equals(historyName)) {
+                partitions.add(new Partition(name, null));
+            } else if (lower.startsWith(monthPrefix) && lower.length() == monthPrefix.length() + 6
+                    && lower.substring(monthPrefix.length()).chars().allMatch(Character::isDigit)) {
+                partitions.add(new Partition(name, YearMonth.parse(lower.substring(monthPrefix.length()), SUFFIX)));
+            }
+        }
+        partitions.sort(Comparator.comparing(Partition::month, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return partitions;
+    }
+
+    /**
+     * Adds the partition for {@code month}. On MySQL months must be added in order, after the latest existing one.
+     */
+    public void createMonth(YearMonth month) {
+        String from = "'" + month.atDay(1) + "'";
+        String to = "'" + month.plusMonths(1).atDay(1) + "'";
+        switch (vendor()) {
+            case MYSQL -> jdbcTemplate.execute("ALTER TABLE energy_data REORGANIZE PARTITION pmax INTO (" +
+                    "PARTITION p" + month.format(SUFFIX) + " VALUES LESS THAN (" + to + "), " +
+                    "PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+            case POSTGRESQL -> jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS energy_data_p" + month.format(SUFFIX) +
+                    " PARTITION OF energy_data FOR VALUES FROM (" + from + ") TO (" + to + ")");
+            case OTHER -> {
+            }
+        }
+    }
+
+    /**
+     * Highest id stored in the partition, or null when it is empty.
+     */
+    public Long findMaxId(Partition partition) {
+        return switch (vendor()) {
+            case MYSQL -> jdbcTemplate.queryForObject(
+                    "SELECT MAX(id) FROM energy_data PARTITION (" + partition.name() + ")", Long.class);
+            case POSTGRESQL -> jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + partition.name(), Long.class);
+            case OTHER -> null;
+        };
+    }
+
+    /**
+     * Removes the partition and all its rows; a metadata operation instead of a row-by-row delete.
+     */
+    public void drop(Partition partition) {
+        switch (vendor()) {
+            case MYSQL -> jdbcTemplate.execute("ALTER TABLE energy_data DROP PARTITION " + partition.name());
+            case POSTGRESQL -> jdbcTemplate.execute("DROP TABLE " + partition.name());
+            case OTHER -> {
+            }
+        }
+    }
+
+    private Vendor detectVendor() {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                    DatabaseMetaData::getDatabaseProductName);
+            if ("MySQL".equalsIgnoreCase(product)) {
+                return Vendor.MYSQL;
+            }
+            if ("PostgreSQL".equalsIgnoreCase(product)) {
+                return Vendor.POSTGRESQL;
+            }
+            return Vendor.OTHER;
+        } catch (MetaDataAccessException e) {
+            log.warn("Could not determine the database vendor, partition maintenance disabled: {}", e.getMessage());
+            return Vendor.OTHER;
+        }
+    }
+}
@@ -1,14 +1,22 @@
 package com.example.ecometer.repository;
 
+import com.example.ecometer.dto.EnergyDataResponse;
 import com.example.ecometer.entity.EnergyData;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
+@Transactional(readOnly = true)
 public interface EnergyDataRepository extends JpaRepository<EnergyData, Long> {
     
     List<EnergyData> findByTimestampAfter(LocalDateTime timestamp);
@@ -24,5 +32,36 @@ public interface EnergyDataRepository extends JpaRepository<EnergyData, Long> {
            "GROUP BY d.id, d.name")
     List<Object[]> getDepartmentSummary(LocalDateTime startTime);
     
-    List<EnergyData> findTop10ByOrderByCreatedAtDesc();
-}
\ No newline at end of file
+    // Flat rows (id, departmentId, sourceType, timestamp, kwh, carbonKg, costUsd) for rebuilding in-memory rollups
+    @Query("SELECT ed.id, ed.department.id, ed.sourceType, ed.timestamp, ed.kwhUsed, ed.carbonKg, ed.costUsd " +
+           "FROM EnergyData ed WHERE ed.timestamp >= :startTime")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamReadingsSince(LocalDateTime startTime);
+    
+    // Rows not yet folded into the rollup tables, in id order, with their createdAt: the compaction stops at the
+    // first row that has not settled, so that a transaction still committing a lower id is not skipped by the
+    // high-water mark
+    @Query("SELECT ed.id, ed.department.id, ed.sourceType, ed.timestamp, ed.kwhUsed, ed.carbonKg, ed.costUsd, " +
+           "ed.createdAt " +
+           "FROM EnergyData ed " +
+           "WHERE ed.id > :afterId " +
+           "ORDER BY ed.id")
+    List<Object[]> findUnfoldedReadings(Long afterId, Pageable page);
+    
+    @Query("SELECT ed.department.id, COUNT(ed), SUM(ed.kwhUsed), SUM(ed.carbonKg), SUM(ed.costUsd) " +
+           "FROM EnergyData ed " +
+           "WHERE ed.id > :afterId AND ed.timestamp >= :from AND ed.timestamp < :to " +
+           "AND (:departmentId IS NULL OR ed.department.id = :departmentId) " +
+           "GROUP BY ed.department.id")
+    List<Object[]> sumUnfoldedByDepartment(Long afterId, LocalDateTime from, LocalDateTime to, Long departmentId);
+    
+    // Forward-only export cursor; rows are DTOs, so nothing accumulates in the persistence context
+    @Query("SELECT new com.example.ecometer.dto.EnergyDataResponse(" +
+           "ed.id, ed.kwhUsed, ed.sourceType, ed.timestamp, ed.costUsd, ed.carbonKg, ed.createdAt, d.id, d.name) " +
+           "FROM EnergyData ed JOIN ed.department d " +
+           "WHERE ed.timestamp >= :from AND ed.timestamp < :to " +
+           "AND (:departmentId IS NULL OR d.id = :departmentId) " +
+           "ORDER BY ed.timestamp, ed.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<EnergyDataResponse> streamForExport(LocalDateTime from, LocalDateTime to, Long departmentId);
+}
@@ -0,0 +1,32 @@
+package com.example.ecometer.repository;
+
+import com.example.ecometer.entity.EnergyRollupDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Transactional(readOnly = true)
+public interface EnergyRollupDailyRepository extends JpaRepository<EnergyRollupDaily, Long> {
+    
+    List<EnergyRollupDaily> findByBucketStartIn(Collection<LocalDateTime> bucketStarts);
+    
+    @Query("SELECT r.departmentId, SUM(r.readingCount), SUM(r.totalKwh), SUM(r.totalCarbonKg), SUM(r.totalCostUsd) " +
+           "FROM EnergyRollupDaily r " +
+           "WHERE r.bucketStart >= :from AND r.bucketStart < :to " +
+           "AND (:departmentId IS NULL OR r.departmentId = :departmentId) " +
+           "GROUP BY r.departmentId")
+    List<Object[]> sumByDepartment(LocalDateTime from, LocalDateTime to, Long departmentId);
+    
+    // Rows (departmentId, sourceType, kwh, costUsd) for all departments, for the suggestion rules
+    @Query("SELECT r.departmentId, r.sourceType, SUM(r.totalKwh), SUM(r.totalCostUsd) " +
+           "FROM EnergyRollupDaily r " +
+           "WHERE r.bucketStart >= :from AND r.bucketStart < :to " +
+           "GROUP BY r.departmentId, r.sourceType")
+    List<Object[]> sumByDepartmentAndSourceType(LocalDateTime from, LocalDateTime to);
+}
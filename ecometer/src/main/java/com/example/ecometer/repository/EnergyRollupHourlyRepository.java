@@ -0,0 +1,37 @@
+package com.example.ecometer.repository;
+
+import com.example.ecometer.entity.EnergyRollupHourly;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Transactional(readOnly = true)
+public interface EnergyRollupHourlyRepository extends JpaRepository<EnergyRollupHourly, Long> {
+    
+    List<EnergyRollupHourly> findByBucketStartIn(Collection<LocalDateTime> bucketStarts);
+    
+    @Query("SELECT r.departmentId, SUM(r.readingCount), SUM(r.totalKwh), SUM(r.totalCarbonKg), SUM(r.totalCostUsd) " +
+           "FROM EnergyRollupHourly r " +
+           "WHERE r.bucketStart >= :from AND r.bucketStart < :to " +
+           "AND (:departmentId IS NULL OR r.departmentId = :departmentId) " +
+           "GROUP BY r.departmentId")
+    List<Object[]> sumByDepartment(LocalDateTime from, LocalDateTime to, Long departmentId);
+    
+    // Flat rows (departmentId, sourceType, readingCount, totalKwh) in time order, for restoring anomaly baselines
+    @Query("SELECT r.departmentId, r.sourceType, r.readingCount, r.totalKwh " +
+           "FROM EnergyRollupHourly r WHERE r.bucketStart >= :from ORDER BY r.bucketStart")
+    List<Object[]> findTotalsSince(LocalDateTime from);
+    
+    // Rows (departmentId, hourOfDay, kwh, costUsd) summed per department and hour of the day, for the suggestion rules
+    @Query("SELECT r.departmentId, EXTRACT(HOUR FROM r.bucketStart), SUM(r.totalKwh), SUM(r.totalCostUsd) " +
+           "FROM EnergyRollupHourly r " +
+           "WHERE r.bucketStart >= :from AND r.bucketStart < :to " +
+           "GROUP BY r.departmentId, EXTRACT(HOUR FROM r.bucketStart)")
+    List<Object[]> sumByDepartmentAndHourOfDay(LocalDateTime from, LocalDateTime to);
+}
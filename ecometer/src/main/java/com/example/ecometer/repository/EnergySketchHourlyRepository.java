@@ -0,0 +1,33 @@
+package com.example.ecometer.repository;
+
+import com.example.ecometer.entity.EnergySketchHourly;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+@Transactional(readOnly = true)
+public interface EnergySketchHourlyRepository extends JpaRepository<EnergySketchHourly, Long> {
+    
+    List<EnergySketchHourly> findByBucketStartIn(Collection<LocalDateTime> bucketStarts);
+    
+    // Flat rows (departmentId, bucketStart, totalKwh, sketch), streamed so a long range is merged without holding it
+    @Query("SELECT s.departmentId, s.bucketStart, s.totalKwh, s.sketch FROM EnergySketchHourly s " +
+           "WHERE s.bucketStart >= :from AND s.bucketStart < :to")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamRange(LocalDateTime from, LocalDateTime to);
+    
+    @Query("SELECT s.departmentId, s.bucketStart, s.totalKwh, s.sketch FROM EnergySketchHourly s " +
+           "WHERE s.bucketStart >= :from AND s.bucketStart < :to AND s.departmentId IN :departmentIds")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<Object[]> streamRange(LocalDateTime from, LocalDateTime to, Collection<Long> departmentIds);
+}
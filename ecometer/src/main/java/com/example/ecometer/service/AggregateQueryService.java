@@ -0,0 +1,157 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.dto.AggregateResponse;
+import com.example.ecometer.dto.DashboardResponse;
+import com.example.ecometer.repository.EnergyDataRepository;
+import com.example.ecometer.repository.EnergyRollupDailyRepository;
+import com.example.ecometer.repository.EnergyRollupHourlyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Answers range aggregates from the coarsest storage that covers each part of the range:
+ * whole days from energy_rollup_daily, the remaining hours from energy_rollup_hourly, and only
+ * rows above the compaction high-water mark (not yet folded) from energy_data.
+ *
+ * All statements of a query run in one read-only transaction, so with a read replica configured they are
+ * answered by the same database and the mark always matches the rollups it is combined with.
+ */
+@Service
+@Slf4j
+public class AggregateQueryService {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final EnergyRollupDailyRepository dailyRepository;
+    private final EnergyRollupHourlyRepository hourlyRepository;
+    private final EnergyDataRepository energyDataRepository;
+    private final DepartmentRegistry departmentRegistry;
+    private final RollupCompactionJob rollupCompactionJob;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public AggregateQueryService(EnergyRollupDailyRepository dailyRepository,
+                                 EnergyRollupHourlyRepository hourlyRepository,
+                                 EnergyDataRepository energyDataRepository,
+                                 DepartmentRegistry departmentRegistry,
+                                 RollupCompactionJob rollupCompactionJob,
+                                 PlatformTransactionManager transactionManager) {
+        this.dailyRepository = dailyRepository;
+        this.hourlyRepository = hourlyRepository;
+        this.energyDataRepository = energyDataRepository;
+        this.departmentRegistry = departmentRegistry;
+        this.rollupCompactionJob = rollupCompactionJob;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Totals for [from, to), widened to whole hours, optionally restricted to one department.
+     */
+    public AggregateResponse aggregate(LocalDateTime from, LocalDateTime to, Long departmentId) {
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = to.truncatedTo(ChronoUnit.HOURS);
+        if (end.isBefore(to)) {
+            end = end.plusHours(1);
+        }
+        if (!end.isAfter(start)) {
+            throw new IllegalArgumentException("'to' must be after 'from'");
+        }
+        LocalDateTime rangeStart = start;
+        LocalDateTime rangeEnd = end;
+        return readOnlyTransaction.execute(status -> aggregateHours(rangeStart, rangeEnd, departmentId));
+    }
+
+    private AggregateResponse aggregateHours(LocalDateTime start, LocalDateTime end, Long departmentId) {
+        // Rollups and raw rows are read in separate statements; if compaction advanced the high-water mark
+        // in between, a chunk could be counted twice or not at all, so re-read until the mark is stable.
+        for (int attempt = 1; ; attempt++) {
+            long watermark = rollupCompactionJob.currentWatermark();
+            Map<Long, Totals> totals = new TreeMap<>();
+            Set<String> sources = new LinkedHashSet<>();
+
+            LocalDateTime firstFullDay = start.truncatedTo(ChronoUnit.DAYS);
+            if (firstFullDay.isBefore(start)) {
+                firstFullDay = firstFullDay.plusDays(1);
+            }
+            LocalDateTime lastFullDay = end.truncatedTo(ChronoUnit.DAYS);
+
+            if (firstFullDay.isBefore(lastFullDay)) {
+                sources.add("daily");
+                addAll(totals, dailyRepository.sumByDepartment(firstFullDay, lastFullDay, departmentId));
+                addHourly(totals, sources, start, firstFullDay, departmentId);
+                addHourly(totals, sources, lastFullDay, end, departmentId);
+            } else {
+                addHourly(totals, sources, start, end, departmentId);
+            }
+
+            List<Object[]> unfolded = energyDataRepository.sumUnfoldedByDepartment(watermark, start, end, departmentId);
+            if (!unfolded.isEmpty()) {
+                sources.add("raw");
+                addAll(totals, unfolded);
+            }
+
+            if (rollupCompactionJob.currentWatermark() == watermark || attempt == MAX_ATTEMPTS) {
+                return toResponse(start, end, totals, sources);
+            }
+            log.debug("Rollup watermark moved during aggregate query, retrying (attempt {})", attempt);
+        }
+    }
+
+    private void addHourly(Map<Long, Totals> totals, Set<String> sources,
+                           LocalDateTime from, LocalDateTime to, Long departmentId) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        sources.add("hourly");
+        addAll(totals, hourlyRepository.sumByDepartment(from, to, departmentId));
+    }
+
+    // Rows are (departmentId, count, kwh, carbonKg, costUsd)
+    private void addAll(Map<Long, Totals> totals, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            Totals departmentTotals = totals.computeIfAbsent((Long) row[0], id -> new Totals());
+            departmentTotals.readingCount += ((Number) row[1]).longValue();
+            departmentTotals.kwh += FixedPoint.toMilliKwh((BigDecimal) row[2]);
+            departmentTotals.carbonKg += FixedPoint.toMilligrams((BigDecimal) row[3]);
+            departmentTotals.costUsd += FixedPoint.toMicroUsd((BigDecimal) row[4]);
+        }
+    }
+
+    private AggregateResponse toResponse(LocalDateTime start, LocalDateTime end,
+                                         Map<Long, Totals> totals, Set<String> sources) {
+        Totals grandTotal = new Totals();
+        List<DashboardResponse.DepartmentSummary> summaries = new ArrayList<>();
+        totals.forEach((departmentId, t) -> {
+            summaries.add(new DashboardResponse.DepartmentSummary(departmentRegistry.nameOf(departmentId),
+                    FixedPoint.kwh(t.kwh), FixedPoint.carbonKg(t.carbonKg), FixedPoint.costUsd(t.costUsd),
+                    (int) t.readingCount));
+            grandTotal.readingCount += t.readingCount;
+            grandTotal.kwh += t.kwh;
+            grandTotal.carbonKg += t.carbonKg;
+            grandTotal.costUsd += t.costUsd;
+        });
+
+        return new AggregateResponse(start, end, FixedPoint.kwh(grandTotal.kwh), FixedPoint.carbonKg(grandTotal.carbonKg),
+                FixedPoint.costUsd(grandTotal.costUsd), grandTotal.readingCount, summaries, new ArrayList<>(sources));
+    }
+
+    // Fixed point: milli-kWh, mg CO2, micro-USD
+    private static final class Totals {
+        private long readingCount;
+        private long kwh;
+        private long carbonKg;
+        private long costUsd;
+    }
+}
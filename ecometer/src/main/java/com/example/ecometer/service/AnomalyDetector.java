@@ -0,0 +1,224 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.EnergyAnomaly;
+import com.example.ecometer.entity.EnergyData;
+import com.example.ecometer.repository.EnergyAnomalyRepository;
+import com.example.ecometer.repository.EnergyRollupHourlyRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flags readings that spike above the usual consumption of their department and source type, as they are ingested.
+ *
+ * Each (department, source type) pair keeps an exponentially weighted mean and variance of kWh per reading
+ * (weight ecometer.anomalies.alpha), so checking and updating a reading costs O(1) time and memory per series.
+ * A reading is an anomaly when it lies more than z-threshold standard deviations above the mean, once the series
+ * has seen warmup-readings readings. The deviation is never taken below min-relative-spread of the mean, so very
+ * steady series do not flag small wobbles, and anomalous readings enter the baseline clamped to the threshold, so a
+ * single spike does not inflate the variance. Only spikes are flagged, not drops.
+ *
+ * Anomalies are queued and written to energy_anomalies every flush-interval, off the ingesting thread.
+ * On startup the baselines are restored from the last restore-window of hourly rollups: each hour enters as its
+ * reading count of readings at the hour's mean, so variance within an hour is not restored and is rebuilt by the
+ * live readings that follow.
+ */
+@Component
+@Slf4j
+public class AnomalyDetector {
+
+    private static final EnergyData.SourceType[] SOURCE_TYPES = EnergyData.SourceType.values();
+
+    private final EnergyAnomalyRepository anomalyRepository;
+    private final EnergyRollupHourlyRepository hourlyRepository;
+    private final double alpha;
+    private final double zThreshold;
+    private final long warmupReadings;
+    private final double minRelativeSpread;
+    private final Duration restoreWindow;
+    private final Map<Long, Baseline[]> baselines = new ConcurrentHashMap<>();
+    private final BlockingQueue<EnergyAnomaly> pending;
+    private final Counter detected;
+    private final Counter dropped;
+
+    public AnomalyDetector(EnergyAnomalyRepository anomalyRepository,
+                           EnergyRollupHourlyRepository hourlyRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${ecometer.anomalies.alpha:0.05}") double alpha,
+                           @Value("${ecometer.anomalies.z-threshold:4.0}") double zThreshold,
+                           @Value("${ecometer.anomalies.warmup-readings:30}") long warmupReadings,
+                           @Value("${ecometer.anomalies.min-relative-spread:0.1}") double minRelativeSpread,
+                           @Value("${ecometer.anomalies.restore-window:7d}") Duration restoreWindow,
+                           @Value("${ecometer.anomalies.queue-capacity:10000}") int queueCapacity) {
+        this.anomalyRepository = anomalyRepository;
+        this.hourlyRepository = hourlyRepository;
+        this.alpha = alpha;
+        this.zThreshold = zThreshold;
+        this.warmupReadings = warmupReadings;
+        this.minRelativeSpread = minRelativeSpread;
+        this.restoreWindow = restoreWindow;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        this.detected = Counter.builder("ecometer.anomalies.detected")
+                .description("Readings flagged as anomalous").register(meterRegistry);
+        this.dropped = Counter.builder("ecometer.anomalies.dropped")
+                .description("Anomalies not stored because the queue was full or the write failed").register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("ecometer.anomalies.pending", Tags.empty(), pending);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            restore();
+        } catch (Exception e) {
+            log.error("Could not restore anomaly baselines from the rollups: {}", e.getMessage(), e);
+        }
+    }
+
+    @EventListener
+    public void onIngested(EnergyDataIngestedEvent event) {
+        LocalDateTime now = null;
+        for (EnergyData reading : event.getReadings()) {
+            Baseline baseline = baselines.computeIfAbsent(reading.getDepartment().getId(), id -> newBaselines())
+                    [reading.getSourceType().ordinal()];
+            double kwh = reading.getKwhUsed().doubleValue();
+            double mean;
+            double score;
+            synchronized (baseline) {
+                mean = baseline.mean;
+                score = baseline.observe(kwh);
+            }
+            if (score > 0) {
+                if (now == null) {
+                    now = LocalDateTime.now();
+                }
+                flag(reading, mean, score, now);
+            }
+        }
+    }
+
+    /**
+     * Forgets all baselines and unwritten anomalies, for when energy_data and energy_anomalies were emptied.
+     * Series warm up again from the readings that follow.
+     */
+    public void reset() {
+        pending.clear();
+        baselines.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${ecometer.anomalies.flush-interval:1s}")
+    public void flush() {
+        List<EnergyAnomaly> batch = new ArrayList<>();
+        pending.drainTo(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            anomalyRepository.saveAll(batch);
+            log.info("{} energy anomalies recorded", batch.size());
+        } catch (Exception e) {
+            dropped.increment(batch.size());
+            log.error("Could not store {} energy anomalies: {}", batch.size(), e.getMessage(), e);
+        }
+    }
+
+    private void flag(EnergyData reading, double mean, double score, LocalDateTime now) {
+        detected.increment();
+        EnergyAnomaly anomaly = new EnergyAnomaly(null, reading.getDepartment().getId(), reading.getSourceType(),
+                reading.getId(), reading.getTimestamp(), reading.getKwhUsed(),
+                BigDecimal.valueOf(mean).setScale(2, RoundingMode.HALF_UP), score, now);
+        if (!pending.offer(anomaly)) {
+            dropped.increment();
+        }
+    }
+
+    private void restore() {
+        LocalDateTime from = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minus(restoreWindow);
+        Map<Long, Baseline[]> restored = new HashMap<>();
+        long hours = 0;
+        for (Object[] row : hourlyRepository.findTotalsSince(from)) {
+            long readingCount = (Long) row[2];
+            if (readingCount <= 0) {
+                continue;
+            }
+            Baseline baseline = restored.computeIfAbsent((Long) row[0], id -> newBaselines())
+                    [((EnergyData.SourceType) row[1]).ordinal()];
+            baseline.observeBucket(readingCount, ((BigDecimal) row[3]).doubleValue() / readingCount);
+            hours++;
+        }
+        // Readings ingested while restoring are lost from the baselines they replace; a handful at most
+        baselines.putAll(restored);
+        log.info("Anomaly baselines restored for {} departments from {} hourly rollups", restored.size(), hours);
+    }
+
+    private Baseline[] newBaselines() {
+        Baseline[] series = new Baseline[SOURCE_TYPES.length];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = new Baseline();
+        }
+        return series;
+    }
+
+    /**
+     * EWMA mean and variance of one series. Not thread-safe; callers synchronize on the instance.
+     */
+    private final class Baseline {
+        private long count;
+        private double mean;
+        private double variance;
+
+        /**
+         * Adds a reading; returns its score (standard deviations above the mean) if it is an anomaly, else 0.
+         */
+        double observe(double kwh) {
+            if (count == 0) {
+                count = 1;
+                mean = kwh;
+                return 0;
+            }
+            double spread = Math.max(Math.sqrt(variance), minRelativeSpread * Math.abs(mean));
+            double score = spread > 0 ? (kwh - mean) / spread : 0;
+            boolean anomalous = count >= warmupReadings && score > zThreshold;
+            update(alpha, anomalous ? mean + zThreshold * spread : kwh);
+            count++;
+            return anomalous ? score : 0;
+        }
+
+        /**
+         * Adds {@code readings} readings of {@code meanKwh} in one step.
+         */
+        void observeBucket(long readings, double meanKwh) {
+            if (count == 0) {
+                mean = meanKwh;
+            } else {
+                update(1 - Math.pow(1 - alpha, readings), meanKwh);
+            }
+            count += readings;
+        }
+
+        private void update(double weight, double value) {
+            double diff = value - mean;
+            double increment = weight * diff;
+            mean += increment;
+            variance = (1 - weight) * (variance + diff * increment);
+        }
+    }
+}
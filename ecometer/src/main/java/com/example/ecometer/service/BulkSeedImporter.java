@@ -0,0 +1,164 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.AiSuggestion;
+import com.example.ecometer.entity.Department;
+import com.example.ecometer.entity.EnergyData;
+import com.example.ecometer.repository.AiSuggestionRepository;
+import com.example.ecometer.repository.DepartmentRepository;
+import com.example.ecometer.repository.EnergyAnomalyRepository;
+import com.example.ecometer.repository.EnergyDataBatchRepository;
+import com.example.ecometer.repository.EnergyDataRepository;
+import com.example.ecometer.repository.EnergyRollupDailyRepository;
+import com.example.ecometer.repository.EnergyRollupHourlyRepository;
+import com.example.ecometer.repository.EnergySketchHourlyRepository;
+import com.example.ecometer.repository.RollupWatermarkRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads seed files in the test-data.json format into the database.
+ *
+ * The file is decoded by {@link SeedFileReader}, so its size is not bounded by the heap. Readings are resolved
+ * against an in-memory department map and written with JDBC batches, one transaction per chunk.
+ */
+@Component
+@Slf4j
+public class BulkSeedImporter {
+
+    private final SeedFileReader seedFileReader;
+    private final DepartmentRepository departmentRepository;
+    private final AiSuggestionRepository aiSuggestionRepository;
+    private final EnergyDataRepository energyDataRepository;
+    private final EnergyDataBatchRepository energyDataBatchRepository;
+    private final EnergyRollupHourlyRepository hourlyRepository;
+    private final EnergyRollupDailyRepository dailyRepository;
+    private final EnergySketchHourlyRepository sketchRepository;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final EnergyAnomalyRepository anomalyRepository;
+    private final AnomalyDetector anomalyDetector;
+    private final DepartmentRegistry departmentRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final long progressInterval;
+
+    public BulkSeedImporter(ObjectMapper objectMapper,
+                            DepartmentRepository departmentRepository,
+                            AiSuggestionRepository aiSuggestionRepository,
+                            EnergyDataRepository energyDataRepository,
+                            EnergyDataBatchRepository energyDataBatchRepository,
+                            EnergyRollupHourlyRepository hourlyRepository,
+                            EnergyRollupDailyRepository dailyRepository,
+                            EnergySketchHourlyRepository sketchRepository,
+                            RollupWatermarkRepository watermarkRepository,
+                            EnergyAnomalyRepository anomalyRepository,
+                            AnomalyDetector anomalyDetector,
+                            DepartmentRegistry departmentRegistry,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${ecometer.seed.chunk-size:5000}") int chunkSize,
+                            @Value("${ecometer.seed.progress-interval:100000}") long progressInterval) {
+        this.seedFileReader = new SeedFileReader(objectMapper, chunkSize);
+        this.departmentRepository = departmentRepository;
+        this.aiSuggestionRepository = aiSuggestionRepository;
+        this.energyDataRepository = energyDataRepository;
+        this.energyDataBatchRepository = energyDataBatchRepository;
+        this.hourlyRepository = hourlyRepository;
+        this.dailyRepository = dailyRepository;
+        this.sketchRepository = sketchRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.anomalyRepository = anomalyRepository;
+        this.anomalyDetector = anomalyDetector;
+        this.departmentRegistry = departmentRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Empties every table the seed format covers, plus the rollups, sketches and anomalies derived from energy_data,
+     * with one set-based DELETE per table. The anomaly baselines are reset with them.
+     */
+    public void truncate() {
+        transactionTemplate.executeWithoutResult(status -> {
+            hourlyRepository.deleteAllInBatch();
+            dailyRepository.deleteAllInBatch();
+            sketchRepository.deleteAllInBatch();
+            watermarkRepository.deleteAllInBatch();
+            anomalyRepository.deleteAllInBatch();
+            energyDataRepository.deleteAllInBatch();
+            aiSuggestionRepository.deleteAllInBatch();
+            departmentRepository.deleteAllInBatch();
+        });
+        // Bulk deletes bypass the entity listener
+        departmentRegistry.invalidate();
+        anomalyDetector.reset();
+    }
+
+    /**
+     * Imports a seed file. Departments that already exist (by name) are reused.
+     */
+    public Report importFrom(InputStream in) throws IOException {
+        Report report = new Report();
+        Map<String, Department> departmentsByName = new HashMap<>();
+        departmentRegistry.findAll().forEach(department -> departmentsByName.put(department.getName(), department));
+
+        report.skippedReadings = seedFileReader.read(in, departmentsByName, new SeedFileReader.Handler() {
+            private long nextProgress = progressInterval;
+
+            @Override
+            public void onDepartments(List<Department> departments) {
+                transactionTemplate.executeWithoutResult(status -> departmentRepository.saveAll(departments));
+                report.departments += departments.size();
+            }
+
+            @Override
+            public void onReadings(List<EnergyData> readings) {
+                // One transaction per chunk
+                report.readings += energyDataBatchRepository.insertAllWithoutKeys(readings);
+                if (report.readings >= nextProgress) {
+                    log.info("Seed import: {} readings loaded ({} readings/s)", report.readings, report.getReadingsPerSecond());
+                    nextProgress = report.readings + progressInterval;
+                }
+            }
+
+            @Override
+            public void onSuggestions(List<AiSuggestion> suggestions) {
+                transactionTemplate.executeWithoutResult(status -> aiSuggestionRepository.saveAll(suggestions));
+                report.suggestions += suggestions.size();
+            }
+        });
+
+        report.finish();
+        log.info("Seed import finished: {} departments, {} readings ({} skipped), {} suggestions in {} ms ({} readings/s)",
+                report.departments, report.readings, report.skippedReadings, report.suggestions,
+                report.elapsedMs, report.getReadingsPerSecond());
+        return report;
+    }
+
+    @Getter
+    public static class Report {
+        private final long startedAt = System.currentTimeMillis();
+        private long departments;
+        private long readings;
+        private long skippedReadings;
+        private long suggestions;
+        private long elapsedMs;
+
+        private void finish() {
+            elapsedMs = System.currentTimeMillis() - startedAt;
+        }
+
+        public long getReadingsPerSecond() {
+            long elapsed = elapsedMs > 0 ? elapsedMs : System.currentTimeMillis() - startedAt;
+            return elapsed > 0 ? readings * 1000 / elapsed : readings;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.EnergyData;
+import com.example.ecometer.repository.EnergyDataRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Sliding 24-hour totals for the dashboard, kept in memory.
+ *
+ * Readings are folded into per-minute buckets for each (department, source type) pair as they are ingested,
+ * and each series keeps running totals that buckets are subtracted from as they slide out of the window.
+ * Serving the dashboard therefore costs O(series) instead of a scan over the last day of energy_data.
+ * The window is minute-aligned, so its lower edge is up to one minute wider than "now - 24h".
+ *
+ * State is rebuilt from the database on startup and after bulk reloads.
+ */
+@Component
+@Slf4j
+public class DashboardRollupEngine {
+
+    static final int WINDOW_MINUTES = 24 * 60;
+
+    private final EnergyDataRepository energyDataRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DataVersion dataVersion;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // One rebuild at a time: they share rebuildBuffer, and a later caller must not be overtaken by an earlier load
+    private final Lock rebuildLock = new ReentrantLock();
+    private volatile Map<SeriesKey, MinuteSeries> series = new ConcurrentHashMap<>();
+    // Non-null while a rebuild is loading from the database; ingested readings are parked here meanwhile
+    private List<EnergyData> rebuildBuffer;
+
+    public DashboardRollupEngine(EnergyDataRepository energyDataRepository, PlatformTransactionManager transactionManager,
+                                 DataVersion dataVersion) {
+        this.energyDataRepository = energyDataRepository;
+        this.dataVersion = dataVersion;
+        // Not read-only, so the rebuild reads the primary: only readings ingested during the rebuild are merged
+        // back in, and a lagging replica would lose those written just before it started
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    @EventListener
+    public void onIngested(EnergyDataIngestedEvent event) {
+        lock.readLock().lock();
+        try {
+            if (rebuildBuffer != null) {
+                synchronized (this) {
+                    rebuildBuffer.addAll(event.getReadings());
+                }
+                return;
+            }
+            Map<SeriesKey, MinuteSeries> current = series;
+            for (EnergyData reading : event.getReadings()) {
+                record(current, reading.getDepartment().getId(), reading.getSourceType(), reading.getTimestamp(),
+                        reading.getKwhUsed(), reading.getCarbonKg(), reading.getCostUsd());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        dataVersion.bump(DataVersion.Kind.ENERGY);
+    }
+
+    /**
+     * Reloads the last 24 hours from energy_data.
+     * Readings ingested while the reload runs are buffered and applied afterwards unless the reload already saw them.
+     * Concurrent calls run one after the other. If the reload fails the current totals are kept, with the buffered
+     * readings applied to them.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            reload();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void reload() {
+        lock.writeLock().lock();
+        try {
+            rebuildBuffer = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<SeriesKey, MinuteSeries> rebuilt = new ConcurrentHashMap<>();
+        long[] maxSeenId = {0};
+        long started = System.currentTimeMillis();
+        boolean loaded = false;
+        try {
+            LocalDateTime windowStart = LocalDateTime.now().minusMinutes(WINDOW_MINUTES);
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = energyDataRepository.streamReadingsSince(windowStart)) {
+                    rows.forEach(row -> {
+                        maxSeenId[0] = Math.max(maxSeenId[0], (Long) row[0]);
+                        record(rebuilt, (Long) row[1], (EnergyData.SourceType) row[2], (LocalDateTime) row[3],
+                                (BigDecimal) row[4], (BigDecimal) row[5], (BigDecimal) row[6]);
+                    });
+                }
+            });
+            loaded = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                Map<SeriesKey, MinuteSeries> target = loaded ? rebuilt : series;
+                for (EnergyData reading : rebuildBuffer) {
+                    if (!loaded || reading.getId() == null || reading.getId() > maxSeenId[0]) {
+                        record(target, reading.getDepartment().getId(), reading.getSourceType(), reading.getTimestamp(),
+                                reading.getKwhUsed(), reading.getCarbonKg(), reading.getCostUsd());
+                    }
+                }
+                rebuildBuffer = null;
+                series = target;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            dataVersion.bump(DataVersion.Kind.ENERGY);
+        }
+        log.info("Dashboard rollup rebuilt: {} series in {} ms", rebuilt.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Current 24-hour totals per department (departments without readings in the window are omitted).
+     */
+    public Snapshot snapshot() {
+        long nowMinute = toEpochMinute(LocalDateTime.now());
+        Map<Long, DepartmentTotals> byDepartment = new TreeMap<>();
+        for (Map.Entry<SeriesKey, MinuteSeries> entry : series.entrySet()) {
+            MinuteSeries minuteSeries = entry.getValue();
+            synchronized (minuteSeries) {
+                minuteSeries.advanceTo(nowMinute);
+                if (minuteSeries.count == 0) {
+                    continue;
+                }
+                byDepartment.computeIfAbsent(entry.getKey().departmentId(), DepartmentTotals::new).add(minuteSeries);
+            }
+        }
+
+        DepartmentTotals grandTotal = new DepartmentTotals(null);
+        List<DepartmentTotals> departments = new ArrayList<>(byDepartment.values());
+        departments.forEach(grandTotal::add);
+        departments.sort(Comparator.comparing(DepartmentTotals::getDepartmentId));
+        return new Snapshot(grandTotal, departments);
+    }
+
+    private void record(Map<SeriesKey, MinuteSeries> target, Long departmentId, EnergyData.SourceType sourceType,
+                        LocalDateTime timestamp, BigDecimal kwh, BigDecimal carbonKg, BigDecimal costUsd) {
+        long milliKwh = FixedPoint.toMilliKwh(kwh);
+        long milligrams = FixedPoint.toMilligrams(carbonKg);
+        long microUsd = FixedPoint.toMicroUsd(costUsd);
+        MinuteSeries minuteSeries = target.computeIfAbsent(new SeriesKey(departmentId, sourceType), key -> new MinuteSeries());
+        synchronized (minuteSeries) {
+            minuteSeries.add(toEpochMinute(timestamp), milliKwh, milligrams, microUsd);
+        }
+    }
+
+    private long toEpochMinute(LocalDateTime timestamp) {
+        return timestamp.atZone(zone).toEpochSecond() / 60;
+    }
+
+    private record SeriesKey(Long departmentId, EnergyData.SourceType sourceType) {
+    }
+
+    /**
+     * Ring of WINDOW_MINUTES buckets plus running totals over the buckets still inside the window.
+     * Amounts are fixed point (milli-kWh, mg CO2, micro-USD), so adding and evicting does not allocate.
+     * Not thread-safe; callers synchronize on the instance.
+     */
+    static final class MinuteSeries {
+        private final long[] bucketMinute = new long[WINDOW_MINUTES];
+        private final int[] bucketCount = new int[WINDOW_MINUTES];
+        private final long[] bucketKwh = new long[WINDOW_MINUTES];
+        private final long[] bucketCarbon = new long[WINDOW_MINUTES];
+        private final long[] bucketCost = new long[WINDOW_MINUTES];
+
+        private long headMinute = Long.MIN_VALUE;
+        long count;
+        long kwh;
+        long carbon;
+        long cost;
+
+        MinuteSeries() {
+            Arrays.fill(bucketMinute, Long.MIN_VALUE);
+        }
+
+        void add(long minute, long milliKwh, long milligrams, long microUsd) {
+            advanceTo(minute);
+            if (minute <= headMinute - WINDOW_MINUTES) {
+                return; // older than the window
+            }
+            int slot = slot(minute);
+            if (bucketMinute[slot] != minute) {
+                bucketMinute[slot] = minute;
+                bucketCount[slot] = 0;
+                bucketKwh[slot] = 0;
+                bucketCarbon[slot] = 0;
+                bucketCost[slot] = 0;
+            }
+            bucketCount[slot]++;
+            bucketKwh[slot] += milliKwh;
+            bucketCarbon[slot] += milligrams;
+            bucketCost[slot] += microUsd;
+            count++;
+            kwh += milliKwh;
+            carbon += milligrams;
+            cost += microUsd;
+        }
+
+        /**
+         * Moves the window head forward, evicting every bucket that falls out of it. Each bucket is evicted at most once.
+         */
+        void advanceTo(long minute) {
+            if (minute <= headMinute) {
+                return;
+            }
+            long from = headMinute == Long.MIN_VALUE ? minute : Math.max(headMinute + 1, minute - WINDOW_MINUTES + 1);
+            for (long m = from; m <= minute; m++) {
+                evict(slot(m), m);
+            }
+            headMinute = minute;
+        }
+
+        private void evict(int slot, long incomingMinute) {
+            if (bucketMinute[slot] == Long.MIN_VALUE || bucketMinute[slot] == incomingMinute) {
+                return;
+            }
+            count -= bucketCount[slot];
+            kwh -= bucketKwh[slot];
+            carbon -= bucketCarbon[slot];
+            cost -= bucketCost[slot];
+            bucketMinute[slot] = Long.MIN_VALUE;
+        }
+
+        private static int slot(long minute) {
+            return (int) Math.floorMod(minute, (long) WINDOW_MINUTES);
+        }
+    }
+
+    /**
+     * Totals for one department (or all of them); amounts are converted to BigDecimal at the column scales on access.
+     */
+    public static class DepartmentTotals {
+        @Getter
+        private final Long departmentId;
+        private long milliKwh;
+        private long milligrams;
+        private long microUsd;
+        @Getter
+        private long readingCount;
+
+        DepartmentTotals(Long departmentId) {
+            this.departmentId = departmentId;
+        }
+
+        public BigDecimal getTotalKwh() {
+            return FixedPoint.kwh(milliKwh);
+        }
+
+        public BigDecimal getTotalCarbonKg() {
+            return FixedPoint.carbonKg(milligrams);
+        }
+
+        public BigDecimal getTotalCostUsd() {
+            return FixedPoint.costUsd(microUsd);
+        }
+
+        private void add(MinuteSeries minuteSeries) {
+            milliKwh += minuteSeries.kwh;
+            milligrams += minuteSeries.carbon;
+            microUsd += minuteSeries.cost;
+            readingCount += minuteSeries.count;
+        }
+
+        private void add(DepartmentTotals other) {
+            milliKwh += other.milliKwh;
+            milligrams += other.milligrams;
+            microUsd += other.microUsd;
+            readingCount += other.readingCount;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+        private final DepartmentTotals total;
+        private final List<DepartmentTotals> departments;
+    }
+}
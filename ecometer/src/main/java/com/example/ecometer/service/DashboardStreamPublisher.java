@@ -0,0 +1,259 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.dto.DashboardStreamUpdate;
+import com.example.ecometer.entity.EnergyData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fans dashboard changes out to /api/stream/dashboard subscribers.
+ *
+ * Ingested readings are only collected as they arrive. Every coalesce-interval the pending changes are turned
+ * into one "update" event: totals are read once from {@link DashboardRollupEngine}, serialized once and the same
+ * payload is written to every subscriber, so the cost per interval depends on the ingest rate, not on the number
+ * of open dashboards. A full "snapshot" is sent on subscribe and every refresh-interval, which also covers
+ * readings sliding out of the 24-hour window and keeps idle connections alive.
+ *
+ * Events are not written on the scheduler thread: each subscriber has an outbox of up to max-queued-events that a
+ * worker thread drains, so a slow client only holds up its own connection. A subscriber whose outbox is full is
+ * closed; its dashboard reconnects and starts again from a snapshot.
+ */
+@Component
+@Slf4j
+public class DashboardStreamPublisher {
+
+    private final DashboardRollupEngine dashboardRollupEngine;
+    private final DepartmentRegistry departmentRegistry;
+    private final ObjectMapper objectMapper;
+    private final Duration emitterTimeout;
+    private final Duration refreshInterval;
+    private final int maxReadingsPerEvent;
+    private final int maxQueuedEvents;
+    private final SimpleAsyncTaskExecutor senders;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    // Changes collected since the last event, guarded by "this"
+    private List<DashboardStreamUpdate.Reading> pendingReadings = new ArrayList<>();
+    private Set<Long> changedDepartments = new HashSet<>();
+    private int omittedReadings;
+
+    private volatile long lastSnapshotNanos = System.nanoTime();
+
+    public DashboardStreamPublisher(DashboardRollupEngine dashboardRollupEngine,
+                                    DepartmentRegistry departmentRegistry,
+                                    ObjectMapper objectMapper,
+                                    WorkerExecutors workerExecutors,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${ecometer.stream.emitter-timeout:30m}") Duration emitterTimeout,
+                                    @Value("${ecometer.stream.refresh-interval:30s}") Duration refreshInterval,
+                                    @Value("${ecometer.stream.max-readings-per-event:100}") int maxReadingsPerEvent,
+                                    @Value("${ecometer.stream.max-queued-events:8}") int maxQueuedEvents) {
+        this.dashboardRollupEngine = dashboardRollupEngine;
+        this.departmentRegistry = departmentRegistry;
+        this.objectMapper = objectMapper;
+        this.emitterTimeout = emitterTimeout;
+        this.refreshInterval = refreshInterval;
+        this.maxReadingsPerEvent = maxReadingsPerEvent;
+        this.maxQueuedEvents = maxQueuedEvents;
+        this.senders = workerExecutors.create("stream-sender-", 0);
+        meterRegistry.gauge("ecometer.stream.subscribers", subscribers, List::size);
+    }
+
+    /**
+     * Registers a new subscriber and sends it the current snapshot.
+     */
+    public SseEmitter subscribe() throws IOException {
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+        // Queued before registering, so the snapshot goes out first and no update can fall between the two
+        subscriber.offer("snapshot", serialize(buildUpdate(null)));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    @EventListener
+    public void onIngested(EnergyDataIngestedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (EnergyData reading : event.getReadings()) {
+                Long departmentId = reading.getDepartment().getId();
+                changedDepartments.add(departmentId);
+                if (pendingReadings.size() < maxReadingsPerEvent) {
+                    pendingReadings.add(new DashboardStreamUpdate.Reading(reading.getId(), departmentId,
+                            reading.getSourceType().name(), reading.getTimestamp(), reading.getKwhUsed()));
+                } else {
+                    omittedReadings++;
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ecometer.stream.coalesce-interval:500ms}")
+    public void publish() {
+        List<DashboardStreamUpdate.Reading> readings;
+        Set<Long> departments;
+        int omitted;
+        synchronized (this) {
+            readings = pendingReadings;
+            departments = changedDepartments;
+            omitted = omittedReadings;
+            pendingReadings = new ArrayList<>();
+            changedDepartments = new HashSet<>();
+            omittedReadings = 0;
+        }
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (System.nanoTime() - lastSnapshotNanos >= refreshInterval.toNanos()) {
+                lastSnapshotNanos = System.nanoTime();
+                DashboardStreamUpdate snapshot = buildUpdate(null);
+                snapshot.setReadings(readings.isEmpty() ? null : readings);
+                snapshot.setOmittedReadings(omitted > 0 ? omitted : null);
+                broadcast("snapshot", serialize(snapshot));
+            } else if (!departments.isEmpty()) {
+                DashboardStreamUpdate update = buildUpdate(departments);
+                update.setReadings(readings);
+                update.setOmittedReadings(omitted > 0 ? omitted : null);
+                broadcast("update", serialize(update));
+            }
+        } catch (Exception e) {
+            log.error("Dashboard stream publish failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Builds totals from the rollup engine, restricted to {@code departments} when given.
+     * Departments that no longer have readings in the window are reported with zero totals.
+     */
+    private DashboardStreamUpdate buildUpdate(Set<Long> departments) {
+        DashboardRollupEngine.Snapshot snapshot = dashboardRollupEngine.snapshot();
+        List<DashboardStreamUpdate.DepartmentTotals> summaries = new ArrayList<>();
+        Set<Long> missing = departments != null ? new HashSet<>(departments) : Set.of();
+        for (DashboardRollupEngine.DepartmentTotals totals : snapshot.getDepartments()) {
+            if (departments == null || missing.remove(totals.getDepartmentId())) {
+                summaries.add(new DashboardStreamUpdate.DepartmentTotals(totals.getDepartmentId(),
+                        departmentRegistry.nameOf(totals.getDepartmentId()), totals.getTotalKwh(),
+                        totals.getTotalCarbonKg(), totals.getTotalCostUsd(), totals.getReadingCount()));
+            }
+        }
+        for (Long departmentId : missing) {
+            summaries.add(new DashboardStreamUpdate.DepartmentTotals(departmentId, departmentRegistry.nameOf(departmentId),
+                    FixedPoint.kwh(0), FixedPoint.carbonKg(0), FixedPoint.costUsd(0), 0L));
+        }
+
+        DashboardRollupEngine.DepartmentTotals total = snapshot.getTotal();
+        return new DashboardStreamUpdate(total.getTotalCarbonKg(), total.getTotalCostUsd(), total.getTotalKwh(),
+                summaries, null, null);
+    }
+
+    private String serialize(DashboardStreamUpdate update) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(update);
+    }
+
+    private void broadcast(String eventName, String payload) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.offer(eventName, payload)) {
+                log.debug("Closing dashboard stream subscriber {} events behind", maxQueuedEvents);
+                subscriber.close();
+            }
+        }
+    }
+
+    private record Event(String name, String payload) {
+    }
+
+    /**
+     * One open stream and the events not yet written to it. At most one sender task drains the outbox at a time,
+     * so events are written in order.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        // Guarded by this
+        private final ArrayDeque<Event> outbox = new ArrayDeque<>();
+        private boolean sending;
+        private boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Queues an event; false when the outbox is full.
+         */
+        synchronized boolean offer(String eventName, String payload) {
+            if (closed) {
+                return true;
+            }
+            if (outbox.size() >= maxQueuedEvents) {
+                return false;
+            }
+            outbox.add(new Event(eventName, payload));
+            if (!sending) {
+                sending = true;
+                senders.execute(this::drain);
+            }
+            return true;
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+                outbox.clear();
+            }
+            subscribers.remove(this);
+            emitter.complete();
+        }
+
+        private void drain() {
+            while (true) {
+                Event event;
+                synchronized (this) {
+                    event = outbox.poll();
+                    if (event == null || closed) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(SseEmitter.event().name(event.name()).data(event.payload(), MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away; the container reports the error, we only stop writing to it
+                    synchronized (this) {
+                        closed = true;
+                        outbox.clear();
+                        sending = false;
+                    }
+                    subscribers.remove(this);
+                    log.debug("Dropping dashboard stream subscriber: {}", e.getMessage());
+                    return;
+                }
+            }
+        }
+    }
+}
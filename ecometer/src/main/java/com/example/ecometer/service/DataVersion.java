@@ -0,0 +1,29 @@
+package com.example.ecometer.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monotonic change counters for the in-memory data behind the read endpoints.
+ *
+ * Each owner bumps its counter after the new state is visible, so a response rendered after reading a version
+ * is never older than that version. {@link ResponseCache} keys its entries on these counters.
+ */
+@Component
+public class DataVersion {
+
+    public enum Kind {
+        ENERGY, DEPARTMENTS, SUGGESTIONS
+    }
+
+    private final AtomicLongArray counters = new AtomicLongArray(Kind.values().length);
+
+    public void bump(Kind kind) {
+        counters.incrementAndGet(kind.ordinal());
+    }
+
+    public long current(Kind kind) {
+        return counters.get(kind.ordinal());
+    }
+}
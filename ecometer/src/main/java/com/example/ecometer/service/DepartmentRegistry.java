@@ -0,0 +1,129 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.Department;
+import com.example.ecometer.repository.DepartmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-through cache of the departments table.
+ *
+ * Departments change rarely but are looked up for every ingested reading, so the whole table is held as
+ * id and name maps and replaced wholesale when it is invalidated. Writes through JPA invalidate it via
+ * {@link DepartmentRegistryListener}; bulk statements that bypass entity callbacks must call {@link #invalidate()}.
+ * Loads read the primary, never a read replica, so a reload right after a write sees it.
+ *
+ * Ids that are not in the table are remembered for ecometer.departments.negative-cache-ttl, so a sender that keeps
+ * using an unknown id costs one primary lookup per ttl instead of one per reading. At most
+ * {@value #MAX_NEGATIVE_ENTRIES} ids are remembered; invalidation forgets them.
+ */
+@Component
+@Slf4j
+public class DepartmentRegistry {
+
+    static final int MAX_NEGATIVE_ENTRIES = 10_000;
+
+    private final DepartmentRepository departmentRepository;
+    private final DataVersion dataVersion;
+    private final TransactionTemplate primaryTransaction;
+    private final long negativeTtlNanos;
+
+    private volatile Snapshot snapshot;
+    // Unknown id -> System.nanoTime() until which it is not looked up again
+    private final Map<Long, Long> unknownUntil = new ConcurrentHashMap<>();
+
+    public DepartmentRegistry(DepartmentRepository departmentRepository, DataVersion dataVersion,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${ecometer.departments.negative-cache-ttl:5s}") Duration negativeCacheTtl) {
+        this.departmentRepository = departmentRepository;
+        this.dataVersion = dataVersion;
+        this.negativeTtlNanos = negativeCacheTtl.toNanos();
+        // Read-write, so that it is routed to the primary
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    public Optional<Department> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Department department = current().byId.get(id);
+        if (department != null) {
+            return Optional.of(department);
+        }
+        Long until = unknownUntil.get(id);
+        if (until != null && System.nanoTime() - until < 0) {
+            return Optional.empty();
+        }
+        // Not cached: it may have been created by another instance, so check the table once before giving up
+        Optional<Department> loaded = primaryTransaction.execute(status -> departmentRepository.findById(id));
+        if (loaded.isPresent()) {
+            invalidate();
+        } else if (negativeTtlNanos > 0) {
+            if (unknownUntil.size() >= MAX_NEGATIVE_ENTRIES) {
+                unknownUntil.clear();
+            }
+            unknownUntil.put(id, System.nanoTime() + negativeTtlNanos);
+        }
+        return loaded;
+    }
+
+    public Optional<Department> findByName(String name) {
+        Long id = current().idByName.get(name);
+        return id != null ? findById(id) : Optional.empty();
+    }
+
+    public String nameOf(Long id) {
+        return findById(id).map(Department::getName).orElse(null);
+    }
+
+    public List<Department> findAll() {
+        return current().all;
+    }
+
+    public void invalidate() {
+        snapshot = null;
+        unknownUntil.clear();
+        dataVersion.bump(DataVersion.Kind.DEPARTMENTS);
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() {
+        List<Department> departments = primaryTransaction.execute(status -> departmentRepository.findAll());
+        departments.sort(Comparator.comparing(Department::getId));
+        Map<Long, Department> byId = new HashMap<>(departments.size() * 2);
+        Map<String, Long> idByName = new HashMap<>(departments.size() * 2);
+        for (Department department : departments) {
+            byId.put(department.getId(), department);
+            idByName.put(department.getName(), department.getId());
+        }
+        log.debug("Department registry loaded {} departments", departments.size());
+        return new Snapshot(Map.copyOf(byId), Map.copyOf(idByName), List.copyOf(departments));
+    }
+
+    private record Snapshot(Map<Long, Department> byId, Map<String, Long> idByName, List<Department> all) {
+    }
+}
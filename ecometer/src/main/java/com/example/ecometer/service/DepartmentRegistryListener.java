@@ -0,0 +1,29 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.Department;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener that drops the cached department maps whenever a department row is written.
+ * Hibernate obtains it from the Spring context, so the registry can be injected.
+ */
+@Component
+public class DepartmentRegistryListener {
+
+    private final DepartmentRegistry departmentRegistry;
+
+    public DepartmentRegistryListener(@Lazy DepartmentRegistry departmentRegistry) {
+        this.departmentRegistry = departmentRegistry;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onDepartmentChanged(Department department) {
+        departmentRegistry.invalidate();
+    }
+}
@@ -0,0 +1,323 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.dto.EmissionFactorTable;
+import com.example.ecometer.entity.EnergyData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Carbon factors and tariffs per source type, department and time of use, loaded from emission-factors.json.
+ *
+ * The rules are compiled into a lookup index when the table is loaded: the effective-from/to dates of all rules
+ * split time into segments, and each (department, source type) pair gets a 24-slot array of resolved factors per
+ * segment. A lookup is a binary search over the segment starts followed by two array reads, with no allocation.
+ * The file is re-read when its modification time changes or on {@link #reload()}; the index is swapped atomically
+ * and {@link EmissionFactorsChangedEvent} is published so historical rows can be re-priced.
+ */
+@Component
+@Slf4j
+public class EmissionFactorEngine {
+
+    private static final int HOURS = 24;
+    private static final EnergyData.SourceType[] SOURCE_TYPES = EnergyData.SourceType.values();
+
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Resource location;
+
+    private volatile Index index;
+    private volatile long lastModified;
+
+    public EmissionFactorEngine(ObjectMapper objectMapper,
+                                ResourceLoader resourceLoader,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${ecometer.factors.location:classpath:emission-factors.json}") String location) throws IOException {
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.location = resourceLoader.getResource(location);
+        this.lastModified = lastModified();
+        this.index = Index.build(read(), 1);
+        log.info("Emission factors loaded from {}: {} rules", location, index.table.getRules().size());
+    }
+
+    /**
+     * Factors that apply to a reading of the given department and source type at the given time.
+     */
+    public Factors lookup(Long departmentId, EnergyData.SourceType sourceType, LocalDateTime timestamp) {
+        return index.lookup(departmentId, sourceType, timestamp);
+    }
+
+    public EmissionFactorTable getTable() {
+        return index.table;
+    }
+
+    /** Incremented every time a changed table is loaded. */
+    public long getVersion() {
+        return index.version;
+    }
+
+    @Scheduled(fixedDelayString = "${ecometer.factors.reload-interval:30s}",
+               initialDelayString = "${ecometer.factors.reload-interval:30s}")
+    public void checkForChanges() {
+        if (lastModified() == lastModified) {
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("Emission factor reload from {} failed, keeping version {}: {}",
+                    location.getDescription(), index.version, e.getMessage());
+        }
+    }
+
+    /**
+     * Re-reads the table. Returns true when its content changed, in which case the new table is in effect
+     * for all lookups that follow. An invalid table is rejected with an exception and the current one stays.
+     */
+    public synchronized boolean reload() throws IOException {
+        lastModified = lastModified();
+        EmissionFactorTable table = read();
+        Index current = index;
+        if (table.equals(current.table)) {
+            return false;
+        }
+        index = Index.build(table, current.version + 1);
+        log.info("Emission factors reloaded: version {}, {} rules", index.version, table.getRules().size());
+        eventPublisher.publishEvent(new EmissionFactorsChangedEvent());
+        return true;
+    }
+
+    private EmissionFactorTable read() throws IOException {
+        try (InputStream in = location.getInputStream()) {
+            EmissionFactorTable table = objectMapper.readValue(in, EmissionFactorTable.class);
+            if (table.getRules() == null) {
+                table.setRules(new ArrayList<>());
+            }
+            return table;
+        }
+    }
+
+    private long lastModified() {
+        try {
+            return location.lastModified();
+        } catch (IOException e) {
+            // Resources inside the jar have no usable modification time; they only change with a redeploy
+            return 0;
+        }
+    }
+
+    /**
+     * Carbon factor in mg CO2 per kWh and tariff in micro-dollars per kWh.
+     */
+    public record Factors(long carbonMgPerKwh, long costMicroUsdPerKwh) {
+
+        public long carbonMilligrams(long milliKwh) {
+            return FixedPoint.apply(milliKwh, carbonMgPerKwh);
+        }
+
+        public long costMicroUsd(long milliKwh) {
+            return FixedPoint.apply(milliKwh, costMicroUsdPerKwh);
+        }
+    }
+
+    private static final class Index {
+        private final EmissionFactorTable table;
+        private final long version;
+        // segmentStarts[0] is LocalDateTime.MIN; segment i covers [segmentStarts[i], segmentStarts[i + 1])
+        private final LocalDateTime[] segmentStarts;
+        // [source type ordinal][segment * 24 + hour]
+        private final Factors[][] defaults;
+        private final Map<Long, Factors[][]> byDepartment;
+
+        private Index(EmissionFactorTable table, long version, LocalDateTime[] segmentStarts,
+                      Factors[][] defaults, Map<Long, Factors[][]> byDepartment) {
+            this.table = table;
+            this.version = version;
+            this.segmentStarts = segmentStarts;
+            this.defaults = defaults;
+            this.byDepartment = byDepartment;
+        }
+
+        Factors lookup(Long departmentId, EnergyData.SourceType sourceType, LocalDateTime timestamp) {
+            Factors[][] tables = departmentId != null ? byDepartment.getOrDefault(departmentId, defaults) : defaults;
+            return tables[sourceType.ordinal()][segmentOf(timestamp) * HOURS + timestamp.getHour()];
+        }
+
+        private int segmentOf(LocalDateTime timestamp) {
+            if (segmentStarts.length == 1) {
+                return 0;
+            }
+            int found = Arrays.binarySearch(segmentStarts, timestamp);
+            return found >= 0 ? found : -found - 2;
+        }
+
+        static Index build(EmissionFactorTable table, long version) {
+            Factors fallback = new Factors(
+                    FixedPoint.carbonFactor(requireFactor(table.getDefaultCarbonKgPerKwh(), "defaultCarbonKgPerKwh")),
+                    FixedPoint.costFactor(requireFactor(table.getDefaultCostUsdPerKwh(), "defaultCostUsdPerKwh")));
+
+            List<CompiledRule> rules = new ArrayList<>(table.getRules().size());
+            TreeSet<LocalDateTime> boundaries = new TreeSet<>();
+            TreeSet<Long> departments = new TreeSet<>();
+            for (int i = 0; i < table.getRules().size(); i++) {
+                CompiledRule rule = CompiledRule.compile(table.getRules().get(i), i);
+                rules.add(rule);
+                if (rule.from() != null) {
+                    boundaries.add(rule.from());
+                }
+                if (rule.to() != null) {
+                    boundaries.add(rule.to());
+                }
+                if (rule.departmentId() != null) {
+                    departments.add(rule.departmentId());
+                }
+            }
+
+            LocalDateTime[] segmentStarts = new LocalDateTime[boundaries.size() + 1];
+            segmentStarts[0] = LocalDateTime.MIN;
+            int s = 1;
+            for (LocalDateTime boundary : boundaries) {
+                segmentStarts[s++] = boundary;
+            }
+
+            // Identical factor pairs share one instance, so the index stays small with many segments
+            Map<Factors, Factors> interned = new HashMap<>();
+            Factors[][] defaults = resolve(rules, null, segmentStarts, fallback, interned);
+            Map<Long, Factors[][]> byDepartment = new HashMap<>();
+            for (Long departmentId : departments) {
+                byDepartment.put(departmentId, resolve(rules, departmentId, segmentStarts, fallback, interned));
+            }
+            return new Index(table, version, segmentStarts, defaults, byDepartment);
+        }
+
+        /**
+         * Resolves every (source type, segment, hour) slot for one department (null for the department-agnostic
+         * table). Rules are constant within a segment, so evaluating them at the segment start is enough.
+         */
+        private static Factors[][] resolve(List<CompiledRule> rules, Long departmentId, LocalDateTime[] segmentStarts,
+                                           Factors fallback, Map<Factors, Factors> interned) {
+            Factors[][] tables = new Factors[SOURCE_TYPES.length][];
+            for (EnergyData.SourceType sourceType : SOURCE_TYPES) {
+                Factors[] slots = new Factors[segmentStarts.length * HOURS];
+                for (int segment = 0; segment < segmentStarts.length; segment++) {
+                    for (int hour = 0; hour < HOURS; hour++) {
+                        long carbon = fallback.carbonMgPerKwh();
+                        long cost = fallback.costMicroUsdPerKwh();
+                        int carbonSpecificity = -1;
+                        int costSpecificity = -1;
+                        for (CompiledRule rule : rules) {
+                            if (!rule.matches(departmentId, sourceType, segmentStarts[segment], hour)) {
+                                continue;
+                            }
+                            // >= so that the later of two equally specific rules wins
+                            if (rule.carbon() != null && rule.specificity() >= carbonSpecificity) {
+                                carbon = rule.carbon();
+                                carbonSpecificity = rule.specificity();
+                            }
+                            if (rule.cost() != null && rule.specificity() >= costSpecificity) {
+                                cost = rule.cost();
+                                costSpecificity = rule.specificity();
+                            }
+                        }
+                        Factors factors = new Factors(carbon, cost);
+                        slots[segment * HOURS + hour] = interned.computeIfAbsent(factors, f -> f);
+                    }
+                }
+                tables[sourceType.ordinal()] = slots;
+            }
+            return tables;
+        }
+
+        private static BigDecimal requireFactor(BigDecimal value, String field) {
+            if (value == null) {
+                throw new IllegalArgumentException(field + " is required");
+            }
+            if (value.signum() < 0) {
+                throw new IllegalArgumentException(field + " must not be negative");
+            }
+            if (value.compareTo(FixedPoint.MAX_FACTOR_PER_KWH) > 0) {
+                throw new IllegalArgumentException(field + " must not exceed " + FixedPoint.MAX_FACTOR_PER_KWH);
+            }
+            return value;
+        }
+    }
+
+    private record CompiledRule(EnergyData.SourceType sourceType, Long departmentId, LocalDateTime from,
+                                LocalDateTime to, int fromHour, int toHour, Long carbon, Long cost) {
+
+        static CompiledRule compile(EmissionFactorTable.Rule rule, int position) {
+            String label = rule.getName() != null ? "Rule '" + rule.getName() + "'" : "Rule #" + (position + 1);
+            if (rule.getCarbonKgPerKwh() == null && rule.getCostUsdPerKwh() == null) {
+                throw new IllegalArgumentException(label + " sets neither carbonKgPerKwh nor costUsdPerKwh");
+            }
+            if (rule.getEffectiveFrom() != null && rule.getEffectiveTo() != null
+                    && !rule.getEffectiveFrom().isBefore(rule.getEffectiveTo())) {
+                throw new IllegalArgumentException(label + ": effectiveFrom must be before effectiveTo");
+            }
+            if ((rule.getFromHour() == null) != (rule.getToHour() == null)) {
+                throw new IllegalArgumentException(label + ": fromHour and toHour must be set together");
+            }
+            int fromHour = rule.getFromHour() != null ? rule.getFromHour() : 0;
+            int toHour = rule.getToHour() != null ? rule.getToHour() : HOURS;
+            if (fromHour < 0 || fromHour >= HOURS || toHour < 0 || toHour > HOURS || fromHour == toHour) {
+                throw new IllegalArgumentException(label + ": hours must be distinct values between 0 and 24");
+            }
+
+            EnergyData.SourceType sourceType = null;
+            if (rule.getSourceType() != null) {
+                try {
+                    sourceType = EnergyData.SourceType.valueOf(rule.getSourceType().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(label + ": unknown sourceType " + rule.getSourceType());
+                }
+            }
+
+            return new CompiledRule(sourceType, rule.getDepartmentId(), rule.getEffectiveFrom(), rule.getEffectiveTo(),
+                    fromHour, toHour,
+                    rule.getCarbonKgPerKwh() != null
+                            ? FixedPoint.carbonFactor(Index.requireFactor(rule.getCarbonKgPerKwh(), label + " carbonKgPerKwh"))
+                            : null,
+                    rule.getCostUsdPerKwh() != null
+                            ? FixedPoint.costFactor(Index.requireFactor(rule.getCostUsdPerKwh(), label + " costUsdPerKwh"))
+                            : null);
+        }
+
+        int specificity() {
+            return (departmentId != null ? 2 : 0) + (sourceType != null ? 1 : 0);
+        }
+
+        boolean matches(Long department, EnergyData.SourceType source, LocalDateTime segmentStart, int hour) {
+            if (departmentId != null && !departmentId.equals(department)) {
+                return false;
+            }
+            if (sourceType != null && sourceType != source) {
+                return false;
+            }
+            if (from != null && segmentStart.isBefore(from)) {
+                return false;
+            }
+            if (to != null && !segmentStart.isBefore(to)) {
+                return false;
+            }
+            // A window such as 22 to 6 wraps past midnight
+            return fromHour < toHour ? hour >= fromHour && hour < toHour : hour >= fromHour || hour < toHour;
+        }
+    }
+}
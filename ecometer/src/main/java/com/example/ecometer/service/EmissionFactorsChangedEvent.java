@@ -0,0 +1,7 @@
+package com.example.ecometer.service;
+
+/**
+ * Published after a changed emission factor table was loaded, so stored estimates can be re-priced.
+ */
+public class EmissionFactorsChangedEvent {
+}
@@ -0,0 +1,17 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.EnergyData;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Published after readings have been committed to energy_data, whichever ingestion path wrote them.
+ * Listeners run synchronously on the writing thread, so they must stay cheap.
+ */
+@Getter
+@RequiredArgsConstructor
+public class EnergyDataIngestedEvent {
+    private final List<EnergyData> readings;
+}
@@ -0,0 +1,103 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.EnergyData;
+import com.example.ecometer.repository.EnergyDataBatchRepository;
+import com.example.ecometer.repository.EnergyDataBatchRepository.MeterReadingKey;
+import com.example.ecometer.repository.EnergyDataRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Single place where readings are written to energy_data.
+ * Every successful write is announced with an {@link EnergyDataIngestedEvent} so in-memory views stay current.
+ *
+ * Readings that repeat an already stored (meter_id, meter_sequence, timestamp) are skipped rather than failing the write:
+ * when the unique key rejects a write, the stored pairs are looked up once and the remaining rows are written again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EnergyDataWriter {
+
+    private final EnergyDataRepository energyDataRepository;
+    private final EnergyDataBatchRepository energyDataBatchRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Saves one reading; empty when the meter already delivered it.
+     */
+    public Optional<EnergyData> write(EnergyData energyData) {
+        EnergyData saved;
+        try {
+            saved = energyDataRepository.save(energyData);
+        } catch (DataIntegrityViolationException e) {
+            if (storedDuplicates(List.of(energyData)).isEmpty()) {
+                throw e;
+            }
+            return Optional.empty();
+        }
+        eventPublisher.publishEvent(new EnergyDataIngestedEvent(List.of(saved)));
+        return Optional.of(saved);
+    }
+
+    /**
+     * Saves the rows in JDBC batches and returns the ones skipped because the meter already delivered them.
+     */
+    public List<EnergyData> writeAll(List<EnergyData> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        List<EnergyData> toWrite = rows;
+        List<EnergyData> duplicates = List.of();
+        try {
+            energyDataBatchRepository.insertAll(toWrite);
+        } catch (DataIntegrityViolationException e) {
+            duplicates = storedDuplicates(rows);
+            if (duplicates.isEmpty()) {
+                throw e;
+            }
+            Set<EnergyData> skipped = Collections.newSetFromMap(new IdentityHashMap<>());
+            skipped.addAll(duplicates);
+            toWrite = new ArrayList<>(rows.size() - duplicates.size());
+            for (EnergyData row : rows) {
+                if (!skipped.contains(row)) {
+                    toWrite.add(row);
+                }
+            }
+            log.debug("Skipping {} readings already stored, writing {}", duplicates.size(), toWrite.size());
+            energyDataBatchRepository.insertAll(toWrite);
+        }
+        if (!toWrite.isEmpty()) {
+            eventPublisher.publishEvent(new EnergyDataIngestedEvent(List.copyOf(toWrite)));
+        }
+        return duplicates;
+    }
+
+    private List<EnergyData> storedDuplicates(List<EnergyData> rows) {
+        Set<MeterReadingKey> keys = new HashSet<>();
+        for (EnergyData row : rows) {
+            if (row.getMeterId() != null) {
+                keys.add(MeterReadingKey.of(row));
+            }
+        }
+        Set<MeterReadingKey> stored = energyDataBatchRepository.findStoredReadings(keys);
+        List<EnergyData> duplicates = new ArrayList<>();
+        for (EnergyData row : rows) {
+            if (row.getMeterId() != null && stored.contains(MeterReadingKey.of(row))) {
+                duplicates.add(row);
+            }
+        }
+        return duplicates;
+    }
+}
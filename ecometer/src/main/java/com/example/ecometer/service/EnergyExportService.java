@@ -0,0 +1,135 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.dto.EnergyDataResponse;
+import com.example.ecometer.repository.EnergyDataRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes energy history straight from a database cursor to an output stream.
+ * Rows are pulled one fetch-size block at a time and written immediately, so memory use does not
+ * depend on how many rows are exported.
+ */
+@Service
+@Slf4j
+public class EnergyExportService {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final String CSV_HEADER =
+            "id,timestamp,department_id,department_name,source_type,kwh_used,cost_usd,carbon_kg,created_at\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final EnergyDataRepository energyDataRepository;
+    private final ObjectWriter rowWriter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public EnergyExportService(EnergyDataRepository energyDataRepository, ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager) {
+        this.energyDataRepository = energyDataRepository;
+        this.objectMapper = objectMapper;
+        this.rowWriter = objectMapper.writerFor(EnergyDataResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Streams all readings in [from, to), optionally for one department, and returns the number of rows written.
+     * The caller owns {@code out} and is responsible for closing it.
+     */
+    public long export(OutputStream out, Format format, LocalDateTime from, LocalDateTime to, Long departmentId) {
+        long started = System.currentTimeMillis();
+        Long rows = readOnlyTransaction.execute(status -> {
+            try (Stream<EnergyDataResponse> stream = energyDataRepository.streamForExport(from, to, departmentId)) {
+                return format == Format.CSV ? writeCsv(stream.iterator(), out) : writeNdjson(stream.iterator(), out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.info("Exported {} energy readings as {} in {} ms", rows, format, System.currentTimeMillis() - started);
+        return rows != null ? rows : 0;
+    }
+
+    private long writeCsv(Iterator<EnergyDataResponse> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(CSV_HEADER);
+        long count = 0;
+        while (rows.hasNext()) {
+            EnergyDataResponse row = rows.next();
+            writer.write(String.valueOf(row.getId()));
+            writer.write(',');
+            writer.write(TIMESTAMP_FORMAT.format(row.getTimestamp()));
+            writer.write(',');
+            writer.write(String.valueOf(row.getDepartmentId()));
+            writer.write(',');
+            writer.write(csvQuote(row.getDepartmentName()));
+            writer.write(',');
+            writer.write(row.getSourceType());
+            writer.write(',');
+            writer.write(plain(row.getKwhUsed()));
+            writer.write(',');
+            writer.write(plain(row.getCostUsd()));
+            writer.write(',');
+            writer.write(plain(row.getCarbonKg()));
+            writer.write(',');
+            writer.write(row.getCreatedAt() != null ? TIMESTAMP_FORMAT.format(row.getCreatedAt()) : "");
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private long writeNdjson(Iterator<EnergyDataResponse> rows, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(new BufferedOutputStream(out, BUFFER_SIZE));
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null); // rows are separated by newlines only
+        long count = 0;
+        while (rows.hasNext()) {
+            rowWriter.writeValue(generator, rows.next());
+            generator.writeRaw('\n');
+            count++;
+        }
+        generator.flush();
+        return count;
+    }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.toPlainString() : "";
+    }
+
+    private static String csvQuote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
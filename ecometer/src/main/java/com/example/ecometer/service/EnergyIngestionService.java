@@ -0,0 +1,347 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.dto.EnergyDataBatchResponse;
+import com.example.ecometer.dto.EnergyDataRequest;
+import com.example.ecometer.entity.Department;
+import com.example.ecometer.entity.EnergyData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Turns incoming sensor readings into EnergyData rows and persists them.
+ * Shared by the single-reading and batch endpoints so both apply the same validation and estimates.
+ * Readings that carry a meter id, sequence and reading timestamp are idempotent: a retried reading is reported
+ * as a duplicate instead of being stored again (see {@link ReadingDeduplicator}).
+ * With the {@link IngestionSpool} enabled, readings that cannot be written because the database is unreachable
+ * (or, in async mode, because the queue is full) are spooled to local disk and acknowledged instead of failed.
+ * When they cannot be spooled either, the outage is rethrown (or QUEUE_FULL returned) so the caller answers 503.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EnergyIngestionService {
+
+    // Readings stamped further ahead than this are rejected rather than pushed into future rollup buckets
+    private static final Duration MAX_CLOCK_SKEW = Duration.ofMinutes(5);
+    private static final int MAX_METER_ID_LENGTH = 64;
+    // Exact names resolve without case conversion; the binary decoder always sends them
+    private static final Map<String, EnergyData.SourceType> SOURCE_TYPES_BY_NAME = Arrays.stream(EnergyData.SourceType.values())
+            .collect(Collectors.toUnmodifiableMap(Enum::name, Function.identity()));
+
+    private final DepartmentRegistry departmentRegistry;
+    private final EnergyDataWriter energyDataWriter;
+    private final WriteBehindIngestionQueue writeBehindQueue;
+    private final EmissionFactorEngine emissionFactorEngine;
+    private final IngestionMetrics ingestionMetrics;
+    private final ReadingDeduplicator readingDeduplicator;
+    private final IngestionSpool ingestionSpool;
+
+    public enum Outcome {
+        SAVED, QUEUED, DUPLICATE, QUEUE_FULL, SPOOLED
+    }
+
+    /**
+     * Validates and saves a single reading.
+     */
+    public Outcome ingest(EnergyDataRequest request) {
+        EnergyData row = validateAndBuild(request);
+        if (!claim(row)) {
+            return Outcome.DUPLICATE;
+        }
+        try {
+            if (energyDataWriter.write(row).isEmpty()) {
+                ingestionMetrics.rejected(IngestionMetrics.REJECTED_DUPLICATE, row);
+                return Outcome.DUPLICATE;
+            }
+            return Outcome.SAVED;
+        } catch (RuntimeException e) {
+            if (spool(List.of(row), e)) {
+                return Outcome.SPOOLED;
+            }
+            readingDeduplicator.release(request.getMeterId(), request.getSequence());
+            throw e;
+        }
+    }
+
+    /**
+     * Validates a single reading and hands it to the write-behind queue instead of saving it.
+     * While the spool holds readings (the database was unreachable and the backlog is not replayed yet) the reading
+     * is spooled instead, so it is on disk before it is acknowledged and stays behind the earlier ones.
+     * QUEUE_FULL means the caller should retry later.
+     */
+    public Outcome enqueue(EnergyDataRequest request) {
+        EnergyData row = validateAndBuild(request);
+        if (!claim(row)) {
+            return Outcome.DUPLICATE;
+        }
+        if (ingestionSpool.pending() > 0 || !writeBehindQueue.offer(row)) {
+            if (ingestionSpool.append(List.of(row))) {
+                return Outcome.SPOOLED;
+            }
+            readingDeduplicator.release(request.getMeterId(), request.getSequence());
+            ingestionMetrics.rejected(IngestionMetrics.REJECTED_QUEUE_FULL, row);
+            return Outcome.QUEUE_FULL;
+        }
+        return Outcome.QUEUED;
+    }
+
+    public boolean isWriteBehindEnabled() {
+        return writeBehindQueue.isEnabled();
+    }
+
+    /**
+     * Validates and saves a batch of readings.
+     * Departments are resolved from the in-memory registry and rows are written with JDBC batching.
+     * Invalid items are skipped and reported by their index; valid items are still saved.
+     */
+    public EnergyDataBatchResponse ingestBatch(List<EnergyDataRequest> requests) {
+        return ingestBatch(requests, 0, new HashMap<>());
+    }
+
+    /**
+     * Batch variant used for chunked streams: {@code offset} is the index of the first item in the
+     * overall stream and {@code knownDepartments} carries department lookups between chunks.
+     */
+    public EnergyDataBatchResponse ingestBatch(List<EnergyDataRequest> requests, int offset,
+                                               Map<Long, Department> knownDepartments) {
+        EnergyDataBatchResponse response = new EnergyDataBatchResponse();
+        resolveDepartments(requests, knownDepartments);
+
+        List<EnergyData> rows = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            EnergyDataRequest request = requests.get(i);
+            Department department = request != null ? knownDepartments.get(request.getDepartmentId()) : null;
+            try {
+                validate(request);
+            } catch (IllegalArgumentException e) {
+                rejected(IngestionMetrics.REJECTED_INVALID, request, department);
+                response.reject(offset + i, e.getMessage());
+                continue;
+            }
+            if (department == null) {
+                rejected(IngestionMetrics.REJECTED_UNKNOWN_DEPARTMENT, request, null);
+                response.reject(offset + i, "Department not found with id: " + request.getDepartmentId());
+                continue;
+            }
+            EnergyData row;
+            try {
+                row = toEnergyData(request, department);
+            } catch (IllegalArgumentException e) {
+                rejected(IngestionMetrics.REJECTED_INVALID, request, department);
+                response.reject(offset + i, e.getMessage());
+                continue;
+            }
+            if (!claim(row)) {
+                response.duplicate(1);
+                continue;
+            }
+            rows.add(row);
+        }
+
+        List<EnergyData> duplicates;
+        try {
+            duplicates = energyDataWriter.writeAll(rows);
+        } catch (RuntimeException e) {
+            if (spool(rows, e)) {
+                response.spool(rows.size());
+                return response;
+            }
+            rows.forEach(row -> readingDeduplicator.release(row.getMeterId(), row.getMeterSequence()));
+            throw e;
+        }
+        duplicates.forEach(row -> ingestionMetrics.rejected(IngestionMetrics.REJECTED_DUPLICATE, row));
+        response.accept(rows.size() - duplicates.size());
+        response.duplicate(duplicates.size());
+        log.debug("Batch ingested: {} accepted, {} rejected, {} duplicates",
+                response.getAccepted(), response.getRejected(), response.getDuplicates());
+        return response;
+    }
+
+    /**
+     * Builds the EnergyData row for a request, estimating carbon and cost when the sensor did not send them.
+     *
+     * @throws IllegalArgumentException when an estimate does not fit its energy_data column
+     */
+    public EnergyData toEnergyData(EnergyDataRequest request, Department department) {
+        EnergyData energyData = new EnergyData();
+        energyData.setDepartment(department);
+        // Column scales on energy_data are applied up front so in-memory copies match what the database stores
+        energyData.setKwhUsed(request.getKwhUsed().setScale(FixedPoint.KWH_SCALE, RoundingMode.HALF_UP));
+        EnergyData.SourceType sourceType = parseSourceType(request.getSourceType());
+        energyData.setSourceType(sourceType);
+        LocalDateTime timestamp = request.getReadingTimestamp() != null ? request.getReadingTimestamp() : LocalDateTime.now();
+        energyData.setTimestamp(timestamp.truncatedTo(ChronoUnit.MICROS));
+        energyData.setMeterId(request.getMeterId());
+        energyData.setMeterSequence(request.getSequence());
+
+        // Estimates use the factors for this department, source type and time of day, in fixed point
+        EmissionFactorEngine.Factors factors =
+                emissionFactorEngine.lookup(department.getId(), sourceType, energyData.getTimestamp());
+        long milliKwh = FixedPoint.toMilliKwh(request.getKwhUsed());
+
+        energyData.setCarbonEstimated(request.getCarbonKg() == null);
+        energyData.setCarbonKg(request.getCarbonKg() != null
+                ? request.getCarbonKg().setScale(FixedPoint.CARBON_SCALE, RoundingMode.HALF_UP)
+                : FixedPoint.carbonKg(factors.carbonMilligrams(milliKwh)));
+
+        energyData.setCostEstimated(request.getCostUsd() == null);
+        energyData.setCostUsd(request.getCostUsd() != null
+                ? request.getCostUsd().setScale(FixedPoint.COST_SCALE, RoundingMode.HALF_UP)
+                : FixedPoint.costUsd(factors.costMicroUsd(milliKwh)));
+
+        // Supplied values were checked by validate(); estimates can still overflow for large readings
+        requireAtMost(energyData.getCarbonKg(), FixedPoint.MAX_CARBON_KG, "estimated carbonKg");
+        requireAtMost(energyData.getCostUsd(), FixedPoint.MAX_COST_USD, "estimated costUsd");
+        return energyData;
+    }
+
+    /**
+     * Spools rows whose write failed because the database is unreachable; false when the failure has another
+     * cause or the spool is disabled. Meter sequences stay claimed, since the readings were accepted.
+     */
+    private boolean spool(List<EnergyData> rows, RuntimeException failure) {
+        if (!IngestionSpool.isOutage(failure) || !ingestionSpool.append(rows)) {
+            return false;
+        }
+        log.debug("Database unavailable, {} readings spooled for replay: {}", rows.size(), failure.getMessage());
+        return true;
+    }
+
+    /**
+     * Claims the reading's meter sequence; false (and counted) when the meter already sent it.
+     */
+    private boolean claim(EnergyData row) {
+        if (readingDeduplicator.tryClaim(row.getMeterId(), row.getMeterSequence())) {
+            return true;
+        }
+        ingestionMetrics.rejected(IngestionMetrics.REJECTED_DUPLICATE, row);
+        return false;
+    }
+
+    private EnergyData validateAndBuild(EnergyDataRequest request) {
+        try {
+            validate(request);
+        } catch (IllegalArgumentException e) {
+            Department department = request != null && request.getDepartmentId() != null
+                    ? departmentRegistry.findById(request.getDepartmentId()).orElse(null)
+                    : null;
+            rejected(IngestionMetrics.REJECTED_INVALID, request, department);
+            throw e;
+        }
+        Department department = departmentRegistry.findById(request.getDepartmentId()).orElseThrow(() -> {
+            rejected(IngestionMetrics.REJECTED_UNKNOWN_DEPARTMENT, request, null);
+            return new IllegalArgumentException("Department not found with id: " + request.getDepartmentId());
+        });
+        try {
+            return toEnergyData(request, department);
+        } catch (IllegalArgumentException e) {
+            rejected(IngestionMetrics.REJECTED_INVALID, request, department);
+            throw e;
+        }
+    }
+
+    // Counts a rejection under the department (when it exists) and source type (when it parses) of the request
+    private void rejected(String reason, EnergyDataRequest request, Department department) {
+        EnergyData.SourceType sourceType = null;
+        if (request != null && request.getSourceType() != null) {
+            try {
+                sourceType = parseSourceType(request.getSourceType());
+            } catch (IllegalArgumentException e) {
+                // counted as source "unknown"
+            }
+        }
+        ingestionMetrics.rejected(reason, department != null ? department.getId() : null, sourceType);
+    }
+
+    private void resolveDepartments(List<EnergyDataRequest> requests, Map<Long, Department> knownDepartments) {
+        for (EnergyDataRequest request : requests) {
+            if (request != null && request.getDepartmentId() != null
+                    && !knownDepartments.containsKey(request.getDepartmentId())) {
+                departmentRegistry.findById(request.getDepartmentId())
+                        .ifPresent(department -> knownDepartments.put(department.getId(), department));
+            }
+        }
+    }
+
+    private void validate(EnergyDataRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Reading is empty");
+        }
+        if (request.getDepartmentId() == null) {
+            throw new IllegalArgumentException("departmentId is required");
+        }
+        if (request.getKwhUsed() == null) {
+            throw new IllegalArgumentException("kwhUsed is required");
+        }
+        if (request.getKwhUsed().signum() < 0) {
+            throw new IllegalArgumentException("kwhUsed must not be negative");
+        }
+        requireAtMost(request.getKwhUsed().setScale(FixedPoint.KWH_SCALE, RoundingMode.HALF_UP), FixedPoint.MAX_KWH, "kwhUsed");
+        if (request.getCarbonKg() != null) {
+            if (request.getCarbonKg().signum() < 0) {
+                throw new IllegalArgumentException("carbonKg must not be negative");
+            }
+            requireAtMost(request.getCarbonKg().setScale(FixedPoint.CARBON_SCALE, RoundingMode.HALF_UP),
+                    FixedPoint.MAX_CARBON_KG, "carbonKg");
+        }
+        if (request.getCostUsd() != null) {
+            if (request.getCostUsd().signum() < 0) {
+                throw new IllegalArgumentException("costUsd must not be negative");
+            }
+            requireAtMost(request.getCostUsd().setScale(FixedPoint.COST_SCALE, RoundingMode.HALF_UP),
+                    FixedPoint.MAX_COST_USD, "costUsd");
+        }
+        parseSourceType(request.getSourceType());
+        if (request.getMeterId() != null) {
+            if (request.getMeterId().isBlank() || request.getMeterId().length() > MAX_METER_ID_LENGTH) {
+                throw new IllegalArgumentException("meterId must be 1-" + MAX_METER_ID_LENGTH + " characters");
+            }
+            if (request.getSequence() == null || request.getSequence() < 0) {
+                throw new IllegalArgumentException("sequence is required with meterId and must not be negative");
+            }
+            // The dedup key includes the timestamp, so a retry is only recognized if it repeats the meter's own time
+            if (request.getReadingTimestamp() == null) {
+                throw new IllegalArgumentException("readingTimestamp is required with meterId");
+            }
+        }
+        if (request.getReadingTimestamp() != null
+                && request.getReadingTimestamp().isAfter(LocalDateTime.now().plus(MAX_CLOCK_SKEW))) {
+            throw new IllegalArgumentException("readingTimestamp is in the future: " + request.getReadingTimestamp());
+        }
+    }
+
+    private static void requireAtMost(BigDecimal value, BigDecimal max, String field) {
+        if (value.compareTo(max) > 0) {
+            throw new IllegalArgumentException(field + " must be at most " + max.toPlainString() + ": " + value.toPlainString());
+        }
+    }
+
+    private EnergyData.SourceType parseSourceType(String sourceType) {
+        if (sourceType == null) {
+            throw new IllegalArgumentException("sourceType is required");
+        }
+        EnergyData.SourceType exact = SOURCE_TYPES_BY_NAME.get(sourceType);
+        if (exact != null) {
+            return exact;
+        }
+        try {
+            return EnergyData.SourceType.valueOf(sourceType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown sourceType: " + sourceType);
+        }
+    }
+}
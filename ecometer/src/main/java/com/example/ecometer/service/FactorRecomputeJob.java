@@ -0,0 +1,292 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.EnergyData;
+import com.example.ecometer.entity.RollupWatermark;
+import com.example.ecometer.repository.RollupWatermarkRepository;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Re-prices stored readings after the emission factor table changed.
+ *
+ * Only values that were estimated (or are missing) are touched; figures sent by sensors stay as they are.
+ * energy_data is split into id ranges of chunk-size rows that are processed in parallel, each range in its own
+ * transaction with one JDBC batch update. Rows already folded into the rollup tables (id at or below the
+ * compaction watermark) have their carbon and cost differences added to the hourly and daily buckets in the
+ * same transaction, under the watermark lock, so the rollups stay consistent with the raw rows. Raw rows already
+ * deleted by the retention policy cannot be re-priced, and their rollup buckets keep the old figures.
+ */
+@Component
+@Slf4j
+public class FactorRecomputeJob {
+
+    private static final String BOUNDS_SQL = "SELECT MIN(id), MAX(id) FROM energy_data";
+    private static final String SELECT_SQL =
+            "SELECT id, department_id, source_type, timestamp, kwh_used, carbon_kg, cost_usd, carbon_estimated, cost_estimated " +
+            "FROM energy_data WHERE id >= ? AND id < ?";
+    private static final String RANGE_FILTER = " AND timestamp >= ? AND timestamp < ?";
+    private static final String UPDATE_SQL =
+            "UPDATE energy_data SET carbon_kg = ?, cost_usd = ?, carbon_estimated = ?, cost_estimated = ? WHERE id = ?";
+    private static final String ROLLUP_DELTA_SQL =
+            "UPDATE %s SET total_carbon_kg = total_carbon_kg + ?, total_cost_usd = total_cost_usd + ?, updated_at = ? " +
+            "WHERE department_id = ? AND source_type = ? AND bucket_start = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmissionFactorEngine emissionFactorEngine;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final DashboardRollupEngine dashboardRollupEngine;
+    private final WorkerExecutors workerExecutors;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int threads;
+    private final boolean recomputeOnChange;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean rerunRequested;
+    @Getter
+    private volatile Report lastReport;
+
+    public FactorRecomputeJob(JdbcTemplate jdbcTemplate,
+                              EmissionFactorEngine emissionFactorEngine,
+                              RollupWatermarkRepository watermarkRepository,
+                              DashboardRollupEngine dashboardRollupEngine,
+                              WorkerExecutors workerExecutors,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${ecometer.factors.recompute-chunk-size:10000}") int chunkSize,
+                              @Value("${ecometer.factors.recompute-threads:4}") int threads,
+                              @Value("${ecometer.factors.recompute-on-change:true}") boolean recomputeOnChange) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.emissionFactorEngine = emissionFactorEngine;
+        this.watermarkRepository = watermarkRepository;
+        this.dashboardRollupEngine = dashboardRollupEngine;
+        this.workerExecutors = workerExecutors;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+        this.recomputeOnChange = recomputeOnChange;
+    }
+
+    @EventListener
+    public void onFactorsChanged(EmissionFactorsChangedEvent event) {
+        if (recomputeOnChange) {
+            start(null, null);
+        }
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Starts a recompute of the readings in [from, to) (all readings when both are null) in the background.
+     * Returns false when a recompute is already running; a full pass is then queued to follow it, so the
+     * latest table is always applied in the end.
+     */
+    public boolean start(LocalDateTime from, LocalDateTime to) {
+        if (!running.compareAndSet(false, true)) {
+            rerunRequested = true;
+            return false;
+        }
+        workerExecutors.create("factor-recompute-", 0).execute(() -> {
+            LocalDateTime rangeFrom = from;
+            LocalDateTime rangeTo = to;
+            do {
+                try {
+                    do {
+                        rerunRequested = false;
+                        lastReport = recompute(rangeFrom, rangeTo);
+                        rangeFrom = null;
+                        rangeTo = null;
+                    } while (rerunRequested);
+                } catch (Exception e) {
+                    log.error("Emission factor recompute failed: {}", e.getMessage(), e);
+                    rangeFrom = null;
+                    rangeTo = null;
+                } finally {
+                    running.set(false);
+                }
+                // A start() between the last check and running.set(false) only set the flag; take it over here
+            } while (rerunRequested && running.compareAndSet(false, true));
+        });
+        return true;
+    }
+
+    /**
+     * Re-prices the readings in [from, to) with the current table and waits for all chunks to finish.
+     */
+    public Report recompute(LocalDateTime from, LocalDateTime to) throws InterruptedException {
+        Report report = new Report(emissionFactorEngine.getVersion());
+        long[] bounds = jdbcTemplate.queryForObject(BOUNDS_SQL, (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2)});
+        if (bounds == null || bounds[1] == 0) {
+            report.finish();
+            return report;
+        }
+
+        // At most "threads" chunks run at once; submit() blocks while all of them are busy
+        SimpleAsyncTaskExecutor workers = workerExecutors.create("factor-recompute-worker-", threads);
+        List<Future<int[]>> chunks = new ArrayList<>();
+        for (long start = bounds[0]; start <= bounds[1]; start += chunkSize) {
+            long chunkStart = start;
+            chunks.add(workers.submit(() -> recomputeChunk(chunkStart, chunkStart + chunkSize, from, to)));
+        }
+        for (Future<int[]> chunk : chunks) {
+            try {
+                int[] counts = chunk.get();
+                report.scanned += counts[0];
+                report.repriced += counts[1];
+            } catch (ExecutionException e) {
+                // Chunks are independent transactions; a failed one is rolled back and picked up by the next run
+                report.failedChunks++;
+                log.error("Emission factor recompute chunk failed: {}", e.getCause().getMessage(), e.getCause());
+            }
+            report.chunks++;
+        }
+
+        if (report.repriced > 0) {
+            dashboardRollupEngine.rebuild();
+        }
+        report.finish();
+        log.info("Emission factor recompute (version {}): {} readings scanned, {} re-priced in {} chunks ({} failed), {} ms",
+                report.factorVersion, report.scanned, report.repriced, report.chunks, report.failedChunks, report.elapsedMs);
+        return report;
+    }
+
+    /**
+     * Re-prices one id range. Returns {rows scanned, rows updated}.
+     */
+    private int[] recomputeChunk(long fromId, long toId, LocalDateTime from, LocalDateTime to) {
+        int[] counts = transactionTemplate.execute(status -> {
+            List<Object[]> updates = new ArrayList<>();
+            List<Delta> deltas = new ArrayList<>();
+            int[] scanned = {0};
+
+            List<Object> args = new ArrayList<>(List.of(fromId, toId));
+            String sql = SELECT_SQL;
+            if (from != null || to != null) {
+                sql += RANGE_FILTER;
+                args.add(Timestamp.valueOf(from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0)));
+                args.add(Timestamp.valueOf(to != null ? to : LocalDateTime.of(9999, 1, 1, 0, 0)));
+            }
+
+            jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                scanned[0]++;
+                BigDecimal carbon = rs.getBigDecimal(6);
+                BigDecimal cost = rs.getBigDecimal(7);
+                // Missing values are estimated too; only values flagged as sent by the sensor are kept
+                boolean carbonEstimated = carbon == null || rs.getBoolean(8);
+                boolean costEstimated = cost == null || rs.getBoolean(9);
+                if (!carbonEstimated && !costEstimated) {
+                    return;
+                }
+
+                long id = rs.getLong(1);
+                long departmentId = rs.getLong(2);
+                EnergyData.SourceType sourceType = EnergyData.SourceType.valueOf(rs.getString(3));
+                LocalDateTime timestamp = rs.getTimestamp(4).toLocalDateTime();
+                long milliKwh = FixedPoint.toMilliKwh(rs.getBigDecimal(5));
+                EmissionFactorEngine.Factors factors = emissionFactorEngine.lookup(departmentId, sourceType, timestamp);
+
+                BigDecimal newCarbon = carbonEstimated ? FixedPoint.carbonKg(factors.carbonMilligrams(milliKwh)) : carbon;
+                BigDecimal newCost = costEstimated ? FixedPoint.costUsd(factors.costMicroUsd(milliKwh)) : cost;
+                if (carbon != null && cost != null && newCarbon.compareTo(carbon) == 0 && newCost.compareTo(cost) == 0) {
+                    return;
+                }
+                updates.add(new Object[] {newCarbon, newCost, carbonEstimated, costEstimated, id});
+                deltas.add(new Delta(id, departmentId, sourceType, timestamp,
+                        FixedPoint.toMilligrams(newCarbon) - FixedPoint.toMilligrams(carbon),
+                        FixedPoint.toMicroUsd(newCost) - FixedPoint.toMicroUsd(cost)));
+            }, args.toArray());
+
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+                applyToRollups(deltas);
+            }
+            return new int[] {scanned[0], updates.size()};
+        });
+        return counts != null ? counts : new int[2];
+    }
+
+    /**
+     * Adds the differences of already folded rows to their rollup buckets. The watermark row lock serializes this
+     * with compaction: rows above the mark are folded later and will then be read with their new values.
+     */
+    private void applyToRollups(List<Delta> deltas) {
+        RollupWatermark watermark = watermarkRepository.findForUpdate(RollupWatermark.ENERGY_DATA)
+                .orElseGet(() -> watermarkRepository.save(new RollupWatermark(RollupWatermark.ENERGY_DATA)));
+
+        Map<BucketKey, long[]> hourly = new HashMap<>();
+        Map<BucketKey, long[]> daily = new HashMap<>();
+        for (Delta delta : deltas) {
+            if (delta.id() > watermark.getLastId()) {
+                continue;
+            }
+            add(hourly, new BucketKey(delta.departmentId(), delta.sourceType(), delta.timestamp().truncatedTo(ChronoUnit.HOURS)), delta);
+            add(daily, new BucketKey(delta.departmentId(), delta.sourceType(), delta.timestamp().truncatedTo(ChronoUnit.DAYS)), delta);
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        updateRollup("energy_rollup_hourly", hourly, now);
+        updateRollup("energy_rollup_daily", daily, now);
+    }
+
+    private void add(Map<BucketKey, long[]> buckets, BucketKey key, Delta delta) {
+        long[] sums = buckets.computeIfAbsent(key, k -> new long[2]);
+        sums[0] += delta.carbonMg();
+        sums[1] += delta.costMicroUsd();
+    }
+
+    private void updateRollup(String table, Map<BucketKey, long[]> buckets, Timestamp now) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(buckets.size());
+        buckets.forEach((key, sums) -> args.add(new Object[] {FixedPoint.carbonKg(sums[0]), FixedPoint.costUsd(sums[1]),
+                now, key.departmentId(), key.sourceType().name(), Timestamp.valueOf(key.bucketStart())}));
+        jdbcTemplate.batchUpdate(ROLLUP_DELTA_SQL.formatted(table), args);
+    }
+
+    private record Delta(long id, long departmentId, EnergyData.SourceType sourceType, LocalDateTime timestamp,
+                         long carbonMg, long costMicroUsd) {
+    }
+
+    private record BucketKey(long departmentId, EnergyData.SourceType sourceType, LocalDateTime bucketStart) {
+    }
+
+    @Getter
+    public static class Report {
+        private final long factorVersion;
+        private final long startedAt = System.currentTimeMillis();
+        private long chunks;
+        private long failedChunks;
+        private long scanned;
+        private long repriced;
+        private long elapsedMs;
+
+        Report(long factorVersion) {
+            this.factorVersion = factorVersion;
+        }
+
+        private void finish() {
+            elapsedMs = System.currentTimeMillis() - startedAt;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.ecometer.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point units used for in-memory arithmetic on readings:
+ * energy in milli-kWh, carbon in milligrams of CO2 and cost in micro-dollars, each held in a long.
+ *
+ * Every unit is finer than the matching energy_data column (kwh_used scale 2, carbon_kg scale 3, cost_usd scale 2),
+ * so stored values convert exactly and sums stay exact. BigDecimal is only produced at the boundary, rounded to
+ * the column scale.
+ */
+public final class FixedPoint {
+
+    public static final int KWH_SCALE = 2;
+    public static final int CARBON_SCALE = 3;
+    public static final int COST_SCALE = 2;
+
+    // Largest values the energy_data columns hold: kwh_used DECIMAL(10,2), carbon_kg DECIMAL(10,3), cost_usd DECIMAL(8,2)
+    public static final BigDecimal MAX_KWH = new BigDecimal("99999999.99");
+    public static final BigDecimal MAX_CARBON_KG = new BigDecimal("9999999.999");
+    public static final BigDecimal MAX_COST_USD = new BigDecimal("999999.99");
+
+    private static final int MILLI_KWH_DIGITS = 3;
+    private static final int MILLIGRAM_DIGITS = 6;
+    private static final int MICRO_USD_DIGITS = 6;
+
+    // Largest per-kWh factor apply() takes for any kwh_used value; carbon and cost factors both have 6 digits
+    public static final long MAX_UNITS_PER_KWH = (Long.MAX_VALUE - 500) / toMilliKwh(MAX_KWH);
+    public static final BigDecimal MAX_FACTOR_PER_KWH = BigDecimal.valueOf(MAX_UNITS_PER_KWH, MILLIGRAM_DIGITS);
+
+    private FixedPoint() {
+    }
+
+    /** kWh to milli-kWh, rounded half-up; null counts as zero. */
+    public static long toMilliKwh(BigDecimal kwh) {
+        return toLong(kwh, MILLI_KWH_DIGITS);
+    }
+
+    /** kg of CO2 to milligrams, rounded half-up; null counts as zero. */
+    public static long toMilligrams(BigDecimal carbonKg) {
+        return toLong(carbonKg, MILLIGRAM_DIGITS);
+    }
+
+    /** USD to micro-dollars, rounded half-up; null counts as zero. */
+    public static long toMicroUsd(BigDecimal costUsd) {
+        return toLong(costUsd, MICRO_USD_DIGITS);
+    }
+
+    /** Milli-kWh to kWh at the kwh_used column scale. */
+    public static BigDecimal kwh(long milliKwh) {
+        return BigDecimal.valueOf(milliKwh, MILLI_KWH_DIGITS).setScale(KWH_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /** Milligrams to kg at the carbon_kg column scale. */
+    public static BigDecimal carbonKg(long milligrams) {
+        return BigDecimal.valueOf(milligrams, MILLIGRAM_DIGITS).setScale(CARBON_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /** Micro-dollars to USD at the cost_usd column scale. */
+    public static BigDecimal costUsd(long microUsd) {
+        return BigDecimal.valueOf(microUsd, MICRO_USD_DIGITS).setScale(COST_SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Converts a per-kWh factor (kg CO2 or USD per kWh) into target units per kWh for the given unit digits.
+     * Factors are exact for up to that many decimals (6 for both carbon and cost).
+     */
+    public static long perKwh(BigDecimal factorPerKwh, int targetDigits) {
+        return toLong(factorPerKwh, targetDigits);
+    }
+
+    /** Carbon factor in kg CO2 per kWh as milligrams per kWh. */
+    public static long carbonFactor(BigDecimal kgPerKwh) {
+        return perKwh(kgPerKwh, MILLIGRAM_DIGITS);
+    }
+
+    /** Tariff in USD per kWh as micro-dollars per kWh. */
+    public static long costFactor(BigDecimal usdPerKwh) {
+        return perKwh(usdPerKwh, MICRO_USD_DIGITS);
+    }
+
+    /**
+     * Applies a per-kWh factor from {@link #carbonFactor} or {@link #costFactor} to an amount of energy,
+     * rounded half-up to whole target units. Energy is never negative, so plain integer rounding suffices.
+     * Throws ArithmeticException on overflow, which factors up to {@link #MAX_UNITS_PER_KWH} cannot cause.
+     */
+    public static long apply(long milliKwh, long unitsPerKwh) {
+        return Math.addExact(Math.multiplyExact(milliKwh, unitsPerKwh), 500) / 1000;
+    }
+
+    private static long toLong(BigDecimal value, int digits) {
+        if (value == null) {
+            return 0;
+        }
+        return value.movePointRight(digits).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
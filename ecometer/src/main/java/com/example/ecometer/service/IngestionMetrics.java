@@ -0,0 +1,94 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.EnergyData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reading counters: ecometer.readings.accepted{department, source} for every stored reading and
+ * ecometer.readings.rejected{reason, department, source} for every reading turned away.
+ *
+ * Counters are resolved once per department and held in an array indexed by source type, so counting a
+ * reading is a map lookup and an increment. Rejections are tagged with department "unknown" unless the department
+ * exists, and source "unknown" unless the source type parsed, so invalid input cannot create new series.
+ */
+@Component
+public class IngestionMetrics {
+
+    public static final String REJECTED_INVALID = "invalid";
+    public static final String REJECTED_UNKNOWN_DEPARTMENT = "unknown_department";
+    public static final String REJECTED_QUEUE_FULL = "queue_full";
+    public static final String REJECTED_DUPLICATE = "duplicate";
+    public static final String REJECTED_WRITE_FAILED = "write_failed";
+
+    private static final EnergyData.SourceType[] SOURCE_TYPES = EnergyData.SourceType.values();
+    private static final String UNKNOWN = "unknown";
+    // Key for rejections without a known department; ids are positive
+    private static final long UNKNOWN_DEPARTMENT = -1;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, Counter[]> acceptedByDepartment = new ConcurrentHashMap<>();
+    private final Map<String, Map<Long, Counter[]>> rejectedByReason = new ConcurrentHashMap<>();
+
+    public IngestionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener
+    public void onIngested(EnergyDataIngestedEvent event) {
+        for (EnergyData reading : event.getReadings()) {
+            acceptedByDepartment.computeIfAbsent(reading.getDepartment().getId(), this::registerAccepted)
+                    [reading.getSourceType().ordinal()].increment();
+        }
+    }
+
+    /**
+     * Counts a rejected reading that was already turned into a row, so its department and source type are known.
+     */
+    public void rejected(String reason, EnergyData row) {
+        rejected(reason, row.getDepartment().getId(), row.getSourceType());
+    }
+
+    /**
+     * Counts a rejected reading. {@code departmentId} must be an existing department or null, {@code sourceType}
+     * null when it could not be parsed.
+     */
+    public void rejected(String reason, Long departmentId, EnergyData.SourceType sourceType) {
+        Counter[] counters = rejectedByReason.computeIfAbsent(reason, r -> new ConcurrentHashMap<>())
+                .computeIfAbsent(departmentId != null ? departmentId : UNKNOWN_DEPARTMENT,
+                        id -> registerRejected(reason, id));
+        counters[sourceType != null ? sourceType.ordinal() : SOURCE_TYPES.length].increment();
+    }
+
+    private Counter[] registerAccepted(Long departmentId) {
+        Counter[] counters = new Counter[SOURCE_TYPES.length];
+        for (EnergyData.SourceType sourceType : SOURCE_TYPES) {
+            counters[sourceType.ordinal()] = Counter.builder("ecometer.readings.accepted")
+                    .description("Readings stored in energy_data")
+                    .tag("department", String.valueOf(departmentId))
+                    .tag("source", sourceType.name())
+                    .register(meterRegistry);
+        }
+        return counters;
+    }
+
+    // One counter per source type plus a last one for readings whose source type did not parse
+    private Counter[] registerRejected(String reason, long departmentId) {
+        String department = departmentId != UNKNOWN_DEPARTMENT ? String.valueOf(departmentId) : UNKNOWN;
+        Counter[] counters = new Counter[SOURCE_TYPES.length + 1];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = Counter.builder("ecometer.readings.rejected")
+                    .description("Readings turned away by validation or backpressure")
+                    .tag("reason", reason)
+                    .tag("department", department)
+                    .tag("source", i < SOURCE_TYPES.length ? SOURCE_TYPES[i].name() : UNKNOWN)
+                    .register(meterRegistry);
+        }
+        return counters;
+    }
+}
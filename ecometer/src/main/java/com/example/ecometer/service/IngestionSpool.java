@@ -0,0 +1,582 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.Department;
+import com.example.ecometer.entity.EnergyData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Local write-ahead log for readings that could not be written because the database was unreachable
+ * (ecometer.ingestion.spool.enabled).
+ *
+ * Readings are appended to memory-mapped segment files of segment-size bytes in the spool directory and forced to
+ * disk before the caller acknowledges them. Every record carries its length and a CRC32C of its payload, followed
+ * by a zero length that marks the end of the log. Every replay-interval the replayer writes up to
+ * replay-batch-size records to energy_data and then persists its position (segment and offset) in a checkpoint
+ * file. Segments that are fully replayed are deleted. A write that fails because the database is still unreachable
+ * is retried at the next tick, so the log drains on its own once the database is back. Any other failure is blamed
+ * on the records: the batch is split down to the offending readings, which are logged, counted as dropped and
+ * skipped so they cannot block the log.
+ *
+ * The segment files never take more than max-size (at least two segments) of disk. When the spool is full,
+ * append refuses the readings and callers answer 503 so senders retry later.
+ *
+ * After a crash the segments are scanned from the checkpoint. Scanning stops at the first missing or corrupt
+ * record, so a torn write at the tail is dropped, along with anything after it. Replay is at least once: a crash
+ * between the insert and the checkpoint replays that batch again. Readings with a meter id and sequence are then
+ * skipped as duplicates; readings without one are stored twice.
+ */
+@Component
+@Slf4j
+public class IngestionSpool implements SmartLifecycle {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int TERMINATOR_BYTES = 4;
+    private static final int MAX_PAYLOAD_BYTES = 1024;
+    private static final long MIN_SEGMENT_BYTES = 64 * 1024;
+    private static final EnergyData.SourceType[] SOURCE_TYPES = EnergyData.SourceType.values();
+
+    private static final int CARBON_ESTIMATED = 1;
+    private static final int COST_ESTIMATED = 1 << 1;
+    private static final int HAS_METER = 1 << 2;
+
+    private final EnergyDataWriter energyDataWriter;
+    private final DepartmentRegistry departmentRegistry;
+    private final ReadingDeduplicator readingDeduplicator;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final int replayBatchSize;
+
+    // Open segments by id, oldest first; the last one is appended to. Guarded by this
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private long readSegment;
+    private int readOffset;
+    private volatile boolean running;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter appendedCounter;
+    private final Counter replayedCounter;
+    private final Counter droppedCounter;
+    private final Counter refusedCounter;
+
+    public IngestionSpool(EnergyDataWriter energyDataWriter,
+                          DepartmentRegistry departmentRegistry,
+                          ReadingDeduplicator readingDeduplicator,
+                          MeterRegistry meterRegistry,
+                          @Value("${ecometer.ingestion.spool.enabled:false}") boolean enabled,
+                          @Value("${ecometer.ingestion.spool.directory:spool}") Path directory,
+                          @Value("${ecometer.ingestion.spool.segment-size:64MB}") DataSize segmentSize,
+                          @Value("${ecometer.ingestion.spool.max-size:1GB}") DataSize maxSize,
+                          @Value("${ecometer.ingestion.spool.replay-batch-size:500}") int replayBatchSize) {
+        if (segmentSize.toBytes() < MIN_SEGMENT_BYTES || segmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("ecometer.ingestion.spool.segment-size must be between 64KB and 2GB");
+        }
+        // Replayed segments are only deleted once a newer one exists, so a single segment could never be reclaimed
+        if (maxSize.toBytes() < 2 * segmentSize.toBytes()) {
+            throw new IllegalArgumentException("ecometer.ingestion.spool.max-size must be at least two segments");
+        }
+        this.energyDataWriter = energyDataWriter;
+        this.departmentRegistry = departmentRegistry;
+        this.readingDeduplicator = readingDeduplicator;
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentBytes = (int) segmentSize.toBytes();
+        this.maxSegments = (int) Math.min(Integer.MAX_VALUE, maxSize.toBytes() / segmentSize.toBytes());
+        this.replayBatchSize = replayBatchSize;
+
+        meterRegistry.gauge("ecometer.ingestion.spool.pending", pending);
+        this.appendedCounter = meterRegistry.counter("ecometer.ingestion.spool.appended");
+        this.replayedCounter = meterRegistry.counter("ecometer.ingestion.spool.replayed");
+        this.droppedCounter = Counter.builder("ecometer.ingestion.spool.dropped")
+                .description("Spooled readings discarded on replay because they were unreadable, their department "
+                        + "no longer exists or the database rejected them")
+                .register(meterRegistry);
+        this.refusedCounter = Counter.builder("ecometer.ingestion.spool.refused")
+                .description("Readings the spool could not take because it reached max-size")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether a failed write means the database could not be reached, as opposed to a problem with the data.
+     */
+    public static boolean isOutage(Throwable e) {
+        return e instanceof TransactionException
+                || e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    /**
+     * Appends the rows and forces them to disk; all or nothing. Returns false when the spool is disabled, stopped
+     * or has no room left for them.
+     */
+    public boolean append(List<EnergyData> rows) {
+        if (!enabled || !running) {
+            return false;
+        }
+        List<byte[]> payloads = new ArrayList<>(rows.size());
+        rows.forEach(row -> payloads.add(encode(row)));
+        synchronized (this) {
+            if (!fits(payloads)) {
+                skipFinishedSegments();
+                if (!fits(payloads)) {
+                    refusedCounter.increment(rows.size());
+                    return false;
+                }
+            }
+            Segment segment = segments.lastEntry().getValue();
+            int flushFrom = segment.end;
+            for (byte[] payload : payloads) {
+                if (segment.end + RECORD_HEADER_BYTES + payload.length + TERMINATOR_BYTES > segmentBytes) {
+                    segment.force(flushFrom, segment.end - flushFrom);
+                    segment = rotate();
+                    flushFrom = 0;
+                }
+                segment.append(payload);
+            }
+            segment.force(flushFrom, segment.end - flushFrom + TERMINATOR_BYTES);
+        }
+        pending.addAndGet(rows.size());
+        appendedCounter.increment(rows.size());
+        return true;
+    }
+
+    public long pending() {
+        return pending.get();
+    }
+
+    // Whether the payloads can be appended without growing past maxSegments
+    private boolean fits(List<byte[]> payloads) {
+        int end = segments.lastEntry().getValue().end;
+        int segmentsLeft = maxSegments - segments.size();
+        for (byte[] payload : payloads) {
+            if (end + RECORD_HEADER_BYTES + payload.length + TERMINATOR_BYTES > segmentBytes) {
+                if (segmentsLeft-- == 0) {
+                    return false;
+                }
+                end = 0;
+            }
+            end += RECORD_HEADER_BYTES + payload.length;
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${ecometer.ingestion.spool.replay-interval:1s}")
+    public void replay() {
+        if (!running || pending.get() == 0) {
+            return;
+        }
+        try {
+            long replayed = 0;
+            int batch;
+            while ((batch = replayBatch()) > 0) {
+                replayed += batch;
+            }
+            if (replayed > 0) {
+                log.info("Ingestion spool: {} readings replayed, {} pending", replayed, pending.get());
+            }
+        } catch (RuntimeException e) {
+            if (!isOutage(e)) {
+                log.warn("Ingestion spool replay failed, {} readings pending", pending.get(), e);
+                return;
+            }
+            // Still unreachable; try again at the next tick
+            log.debug("Ingestion spool replay failed, {} readings pending: {}", pending.get(), e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the next batch to energy_data and advances the checkpoint. Returns the number of records consumed.
+     */
+    private int replayBatch() {
+        List<byte[]> payloads = new ArrayList<>(replayBatchSize);
+        long segmentId;
+        int offset;
+        synchronized (this) {
+            skipFinishedSegments();
+            segmentId = readSegment;
+            offset = readOffset;
+            Segment segment = segments.get(segmentId);
+            while (segment != null && payloads.size() < replayBatchSize && offset < segment.end) {
+                byte[] payload = segment.read(offset);
+                payloads.add(payload);
+                offset += RECORD_HEADER_BYTES + payload.length;
+            }
+        }
+        if (payloads.isEmpty()) {
+            return 0;
+        }
+
+        List<EnergyData> rows = new ArrayList<>(payloads.size());
+        for (byte[] payload : payloads) {
+            decode(payload).ifPresentOrElse(rows::add, droppedCounter::increment);
+        }
+        int rejected = write(rows);
+
+        synchronized (this) {
+            readSegment = segmentId;
+            readOffset = offset;
+            writeCheckpoint();
+        }
+        pending.addAndGet(-payloads.size());
+        replayedCounter.increment(rows.size() - rejected);
+        return payloads.size();
+    }
+
+    /**
+     * Writes the rows, splitting them in halves when the database rejects their contents, and returns how many were
+     * dropped. Outages are rethrown so the batch is retried as a whole.
+     */
+    private int write(List<EnergyData> rows) {
+        try {
+            energyDataWriter.writeAll(rows);
+            return 0;
+        } catch (RuntimeException e) {
+            if (isOutage(e)) {
+                throw e;
+            }
+            if (rows.size() == 1) {
+                EnergyData row = rows.get(0);
+                log.error("Dropping spooled reading the database rejected (department {}, {} {} kWh at {}, meter {} #{}): {}",
+                        row.getDepartment().getId(), row.getSourceType(), row.getKwhUsed(), row.getTimestamp(),
+                        row.getMeterId(), row.getMeterSequence(), e.getMessage());
+                readingDeduplicator.release(row.getMeterId(), row.getMeterSequence());
+                droppedCounter.increment();
+                return 1;
+            }
+            int middle = rows.size() / 2;
+            return write(rows.subList(0, middle)) + write(rows.subList(middle, rows.size()));
+        }
+    }
+
+    // Moves the read position past sealed segments that are fully replayed, deleting them
+    private void skipFinishedSegments() {
+        boolean moved = false;
+        while (readSegment < segments.lastKey()) {
+            Segment segment = segments.get(readSegment);
+            if (segment != null && readOffset < segment.end) {
+                break;
+            }
+            if (segment != null) {
+                segment.delete();
+                segments.remove(readSegment);
+            }
+            readSegment = segments.ceilingKey(readSegment + 1);
+            readOffset = 0;
+            moved = true;
+        }
+        if (moved) {
+            writeCheckpoint();
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open ingestion spool in " + directory.toAbsolutePath(), e);
+        }
+        running = true;
+        log.info("Ingestion spool open in {}: {} segments, {} readings pending replay",
+                directory.toAbsolutePath(), segments.size(), pending.get());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Starts before the web server accepts readings and stops after it
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1024;
+    }
+
+    private void recover() throws IOException {
+        long[] checkpoint = readCheckpoint();
+        readSegment = checkpoint[0];
+        readOffset = (int) checkpoint[1];
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        long records = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            if (id < readSegment) {
+                Files.delete(file);
+                continue;
+            }
+            Segment segment = Segment.open(file, id, segmentBytes);
+            records += segment.recover(id == readSegment ? readOffset : 0);
+            segments.put(id, segment);
+        }
+        if (segments.isEmpty()) {
+            segments.put(readSegment, Segment.open(segmentPath(readSegment), readSegment, segmentBytes));
+            readOffset = 0;
+        } else if (!segments.containsKey(readSegment)) {
+            readSegment = segments.firstKey();
+            readOffset = 0;
+        }
+        pending.set(records);
+    }
+
+    private Segment rotate() {
+        Segment current = segments.lastEntry().getValue();
+        long id = current.id + 1;
+        try {
+            Segment next = Segment.open(segmentPath(id), id, segmentBytes);
+            segments.put(id, next);
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create ingestion spool segment " + id, e);
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%020d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private long[] readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return new long[] {0, 0};
+        }
+        String[] parts = Files.readString(file, StandardCharsets.US_ASCII).trim().split(" ");
+        return new long[] {Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+    }
+
+    // Written to a temporary file, forced and renamed over the old one, so a crash leaves either checkpoint intact
+    private void writeCheckpoint() {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap((readSegment + " " + readOffset + "\n").getBytes(StandardCharsets.US_ASCII)));
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write ingestion spool checkpoint", e);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write ingestion spool checkpoint", e);
+        }
+    }
+
+    // Department, source, estimate flags, fixed-point amounts, timestamp, meter sequence and id
+    private static byte[] encode(EnergyData row) {
+        byte[] meterId = row.getMeterId() != null ? row.getMeterId().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 1 + 1 + 8 * 3 + 8 + 4 + 8 + 2 + meterId.length);
+        int flags = (Boolean.TRUE.equals(row.getCarbonEstimated()) ? CARBON_ESTIMATED : 0)
+                | (Boolean.TRUE.equals(row.getCostEstimated()) ? COST_ESTIMATED : 0)
+                | (row.getMeterId() != null ? HAS_METER : 0);
+        buffer.putLong(row.getDepartment().getId());
+        buffer.put((byte) row.getSourceType().ordinal());
+        buffer.put((byte) flags);
+        buffer.putLong(FixedPoint.toMilliKwh(row.getKwhUsed()));
+        buffer.putLong(FixedPoint.toMilligrams(row.getCarbonKg()));
+        buffer.putLong(FixedPoint.toMicroUsd(row.getCostUsd()));
+        buffer.putLong(row.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(row.getTimestamp().getNano());
+        buffer.putLong(row.getMeterSequence() != null ? row.getMeterSequence() : 0);
+        buffer.putShort((short) meterId.length);
+        buffer.put(meterId);
+        return buffer.array();
+    }
+
+    private Optional<EnergyData> decode(byte[] payload) {
+        try {
+            return decodeRecord(payload);
+        } catch (RuntimeException e) {
+            if (isOutage(e)) {
+                throw e;
+            }
+            log.warn("Dropping unreadable spooled reading: {}", e.toString());
+            return Optional.empty();
+        }
+    }
+
+    private Optional<EnergyData> decodeRecord(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long departmentId = buffer.getLong();
+        Optional<Department> department = departmentRegistry.findById(departmentId);
+        if (department.isEmpty()) {
+            log.warn("Dropping spooled reading of department {}, which no longer exists", departmentId);
+            return Optional.empty();
+        }
+        EnergyData row = new EnergyData();
+        row.setDepartment(department.get());
+        row.setSourceType(SOURCE_TYPES[buffer.get()]);
+        int flags = buffer.get();
+        row.setKwhUsed(FixedPoint.kwh(buffer.getLong()));
+        row.setCarbonKg(FixedPoint.carbonKg(buffer.getLong()));
+        row.setCostUsd(FixedPoint.costUsd(buffer.getLong()));
+        row.setCarbonEstimated((flags & CARBON_ESTIMATED) != 0);
+        row.setCostEstimated((flags & COST_ESTIMATED) != 0);
+        row.setTimestamp(LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC));
+        long sequence = buffer.getLong();
+        byte[] meterId = new byte[buffer.getShort()];
+        buffer.get(meterId);
+        if ((flags & HAS_METER) != 0) {
+            row.setMeterId(new String(meterId, StandardCharsets.UTF_8));
+            row.setMeterSequence(sequence);
+        }
+        return Optional.of(row);
+    }
+
+    /**
+     * One memory-mapped segment file. Records are [length:int][crc32c:int][payload]; a zero length ends the log.
+     * Not thread-safe; IngestionSpool synchronizes access.
+     */
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        // Offset just past the last valid record
+        private int end;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path path, long id, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        /**
+         * Finds the end of the valid records and returns how many of them start at or after {@code from}.
+         */
+        long recover(int from) {
+            long records = 0;
+            int position = 0;
+            while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || length > MAX_PAYLOAD_BYTES || position + RECORD_HEADER_BYTES + length > buffer.capacity()) {
+                    break;
+                }
+                if (checksum(position + RECORD_HEADER_BYTES, length) != buffer.getInt(position + 4)) {
+                    log.warn("Ingestion spool segment {} has a corrupt record at offset {}; later records are discarded",
+                            path.getFileName(), position);
+                    break;
+                }
+                if (position >= from) {
+                    records++;
+                }
+                position += RECORD_HEADER_BYTES + length;
+            }
+            end = position;
+            // Cut off whatever follows, so new appends are not followed by stale bytes that look like records
+            if (end + TERMINATOR_BYTES <= buffer.capacity()) {
+                buffer.putInt(end, 0);
+            }
+            return records;
+        }
+
+        void append(byte[] payload) {
+            buffer.put(end + RECORD_HEADER_BYTES, payload);
+            buffer.putInt(end + 4, checksum(end + RECORD_HEADER_BYTES, payload.length));
+            buffer.putInt(end + RECORD_HEADER_BYTES + payload.length, 0);
+            buffer.putInt(end, payload.length);
+            end += RECORD_HEADER_BYTES + payload.length;
+        }
+
+        byte[] read(int position) {
+            byte[] payload = new byte[buffer.getInt(position)];
+            buffer.get(position + RECORD_HEADER_BYTES, payload);
+            return payload;
+        }
+
+        void force(int from, int length) {
+            buffer.force(from, Math.min(length, buffer.capacity() - from));
+        }
+
+        void close() {
+            buffer.force();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Could not close ingestion spool segment {}: {}", path.getFileName(), e.getMessage());
+            }
+        }
+
+        void delete() {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete ingestion spool segment {}: {}", path.getFileName(), e.getMessage());
+            }
+        }
+
+        private int checksum(int position, int length) {
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(position, length));
+            return (int) crc.getValue();
+        }
+    }
+}
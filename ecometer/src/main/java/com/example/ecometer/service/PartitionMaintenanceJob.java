@@ -0,0 +1,102 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.repository.EnergyDataPartitionRepository;
+import com.example.ecometer.repository.EnergyDataPartitionRepository.Partition;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Keeps the monthly partitions of energy_data ahead of the clock and applies raw data retention.
+ *
+ * Partitions for the next ecometer.partitions.months-ahead months are created in advance, so readings never land
+ * in the catch-all partition. With ecometer.partitions.retention-months set, partitions that lie entirely before
+ * that many months ago are dropped - but only once the rollup compaction has folded all their rows, so the
+ * hourly and daily rollups still cover the removed months.
+ */
+@Component
+@Slf4j
+public class PartitionMaintenanceJob {
+
+    private final EnergyDataPartitionRepository partitionRepository;
+    private final RollupCompactionJob rollupCompactionJob;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public PartitionMaintenanceJob(EnergyDataPartitionRepository partitionRepository,
+                                   RollupCompactionJob rollupCompactionJob,
+                                   @Value("${ecometer.partitions.months-ahead:3}") int monthsAhead,
+                                   @Value("${ecometer.partitions.retention-months:0}") int retentionMonths) {
+        this.partitionRepository = partitionRepository;
+        this.rollupCompactionJob = rollupCompactionJob;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        run();
+    }
+
+    @Scheduled(cron = "${ecometer.partitions.maintenance-cron:0 15 0 * * *}")
+    public void run() {
+        try {
+            List<Partition> partitions = partitionRepository.findPartitions();
+            if (partitions.isEmpty()) {
+                log.debug("energy_data is not partitioned ({}), skipping partition maintenance", partitionRepository.vendor());
+                return;
+            }
+            int created = createUpcoming(partitions, YearMonth.now());
+            int dropped = dropExpired(partitions, YearMonth.now());
+            if (created > 0 || dropped > 0) {
+                log.info("Partition maintenance: {} partitions created, {} dropped", created, dropped);
+            }
+        } catch (Exception e) {
+            log.error("Partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private int createUpcoming(List<Partition> partitions, YearMonth current) {
+        YearMonth latest = partitions.get(partitions.size() - 1).month();
+        YearMonth next = latest == null ? current : latest.plusMonths(1);
+        int created = 0;
+        for (YearMonth month = next; !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            partitionRepository.createMonth(month);
+            created++;
+        }
+        return created;
+    }
+
+    private int dropExpired(List<Partition> partitions, YearMonth current) {
+        if (retentionMonths <= 0) {
+            return 0;
+        }
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        long watermark = rollupCompactionJob.currentWatermark();
+        int dropped = 0;
+        for (int i = 0; i < partitions.size(); i++) {
+            Partition partition = partitions.get(i);
+            // The history partition ends where the first monthly partition starts
+            YearMonth end = partition.isHistory()
+                    ? (i + 1 < partitions.size() ? partitions.get(i + 1).month() : null)
+                    : partition.month().plusMonths(1);
+            if (end == null || end.isAfter(oldestKept)) {
+                break;
+            }
+            Long maxId = partitionRepository.findMaxId(partition);
+            if (maxId != null && maxId > watermark) {
+                log.warn("Partition {} is past retention but not fully folded into the rollups yet, keeping it", partition.name());
+                break;
+            }
+            partitionRepository.drop(partition);
+            dropped++;
+        }
+        return dropped;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.dto.PercentileResponse;
+import com.example.ecometer.repository.EnergySketchHourlyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Answers reading-size and hourly-demand percentiles for any range and set of departments by merging the hourly
+ * quantile sketches of energy_sketch_hourly in memory, so a query costs one pass over (departments x hours)
+ * sketch rows and never reads energy_data.
+ *
+ * Sketches are written by the rollup compaction, so readings not yet folded (the last settle-delay plus up to one
+ * compaction interval) are not included.
+ */
+@Service
+@Slf4j
+public class PercentileQueryService {
+
+    public static final List<Double> DEFAULT_QUANTILES = List.of(0.5, 0.95, 0.99);
+
+    private final EnergySketchHourlyRepository sketchRepository;
+    private final DepartmentRegistry departmentRegistry;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public PercentileQueryService(EnergySketchHourlyRepository sketchRepository,
+                                  DepartmentRegistry departmentRegistry,
+                                  PlatformTransactionManager transactionManager) {
+        this.sketchRepository = sketchRepository;
+        this.departmentRegistry = departmentRegistry;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Percentiles over [from, to), widened to whole hours, for the given departments (all when null or empty).
+     */
+    public PercentileResponse percentiles(LocalDateTime from, LocalDateTime to, Collection<Long> departmentIds,
+                                          List<Double> quantiles) {
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = to.truncatedTo(ChronoUnit.HOURS);
+        if (end.isBefore(to)) {
+            end = end.plusHours(1);
+        }
+        if (!end.isAfter(start)) {
+            throw new IllegalArgumentException("'to' must be after 'from'");
+        }
+        for (double q : quantiles) {
+            if (q < 0 || q > 1) {
+                throw new IllegalArgumentException("Quantiles must be between 0 and 1");
+            }
+        }
+        LocalDateTime rangeStart = start;
+        LocalDateTime rangeEnd = end;
+        return readOnlyTransaction.execute(status -> merge(rangeStart, rangeEnd, departmentIds, quantiles));
+    }
+
+    private PercentileResponse merge(LocalDateTime start, LocalDateTime end, Collection<Long> departmentIds,
+                                     List<Double> quantiles) {
+        Map<Long, Merged> byDepartment = new TreeMap<>();
+        Map<LocalDateTime, Long> demandByHour = new HashMap<>();
+        long buckets = 0;
+        try (Stream<Object[]> rows = departmentIds == null || departmentIds.isEmpty()
+                ? sketchRepository.streamRange(start, end)
+                : sketchRepository.streamRange(start, end, departmentIds)) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                Merged merged = byDepartment.computeIfAbsent((Long) row[0], id -> new Merged());
+                long milliKwh = FixedPoint.toMilliKwh((BigDecimal) row[2]);
+                merged.readings.merge(QuantileSketch.fromBytes((byte[]) row[3]));
+                merged.hourly.add(milliKwh / 1000.0);
+                demandByHour.merge((LocalDateTime) row[1], milliKwh, Long::sum);
+                buckets++;
+            }
+        }
+
+        Merged total = new Merged();
+        byDepartment.values().forEach(merged -> total.readings.merge(merged.readings));
+        demandByHour.values().forEach(milliKwh -> total.hourly.add(milliKwh / 1000.0));
+
+        List<PercentileResponse.DepartmentPercentiles> departments = new ArrayList<>(byDepartment.size());
+        byDepartment.forEach((departmentId, merged) ->
+                departments.add(toPercentiles(departmentId, departmentRegistry.nameOf(departmentId), merged, quantiles)));
+        log.debug("Percentiles from {} to {}: {} hourly sketches merged", start, end, buckets);
+        return new PercentileResponse(start, end, QuantileSketch.RELATIVE_ACCURACY, buckets,
+                toPercentiles(null, null, total, quantiles), departments);
+    }
+
+    private PercentileResponse.DepartmentPercentiles toPercentiles(Long departmentId, String name, Merged merged,
+                                                                   List<Double> quantiles) {
+        return new PercentileResponse.DepartmentPercentiles(departmentId, name, merged.readings.getCount(),
+                kwh(merged.readings.getMin()), kwh(merged.readings.getMax()), quantiles(merged.readings, quantiles),
+                kwh(merged.hourly.getMax()), quantiles(merged.hourly, quantiles));
+    }
+
+    private Map<String, BigDecimal> quantiles(QuantileSketch sketch, List<Double> quantiles) {
+        Map<String, BigDecimal> values = new LinkedHashMap<>();
+        for (double q : quantiles) {
+            values.put("p" + BigDecimal.valueOf(q * 100).stripTrailingZeros().toPlainString(), kwh(sketch.quantile(q)));
+        }
+        return values;
+    }
+
+    private static BigDecimal kwh(double value) {
+        return Double.isNaN(value) ? null : FixedPoint.kwh(Math.round(value * 1000));
+    }
+
+    private static final class Merged {
+        private final QuantileSketch readings = new QuantileSketch();
+        // One value per hour with readings: the hour's total kWh
+        private final QuantileSketch hourly = new QuantileSketch();
+    }
+}
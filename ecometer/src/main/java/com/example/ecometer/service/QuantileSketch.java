@@ -0,0 +1,212 @@
+package com.example.ecometer.service;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch of positive values (DDSketch).
+ *
+ * Values are counted in logarithmic bins of ratio gamma = (1 + a) / (1 - a), so every quantile is returned within
+ * relative accuracy a = {@link #RELATIVE_ACCURACY} of the exact value, whatever the distribution. Merging two
+ * sketches adds their bin counts, which gives exactly the sketch of the combined values, so per-hour sketches can
+ * be summed over any range. Values below {@link #MIN_VALUE} (including zero) share one bin and are reported as 0.
+ *
+ * The accuracy is fixed rather than configurable: sketches of different accuracies cannot be merged, and stored
+ * sketches outlive any configuration. Not thread-safe.
+ */
+public final class QuantileSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+    public static final double MIN_VALUE = 1e-3;
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // counts[i] holds the values of bin (offset + i); bin k covers (gamma^(k-1), gamma^k]
+    private long[] counts = new long[0];
+    private int offset;
+    private long zeroCount;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void add(double value) {
+        if (value < MIN_VALUE) {
+            zeroCount++;
+        } else {
+            int bin = (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+            ensureCapacity(bin, bin);
+            counts[bin - offset]++;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (other.counts.length > 0) {
+            ensureCapacity(other.offset, other.offset + other.counts.length - 1);
+            for (int i = 0; i < other.counts.length; i++) {
+                counts[other.offset + i - offset] += other.counts[i];
+            }
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /** Smallest value added, NaN when empty. */
+    public double getMin() {
+        return count > 0 ? min : Double.NaN;
+    }
+
+    /** Largest value added, NaN when empty. */
+    public double getMax() {
+        return count > 0 ? max : Double.NaN;
+    }
+
+    /**
+     * The value at quantile {@code q} (0 to 1), NaN when empty.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double rank = q * (count - 1);
+        long seen = zeroCount;
+        double value = 0;
+        if (seen <= rank) {
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen > rank) {
+                    // Midpoint of the bin in relative terms, so the error is at most a either way
+                    value = 2 * Math.pow(GAMMA, offset + i) / (GAMMA + 1);
+                    break;
+                }
+            }
+        }
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Compact encoding: version, min, max, zero count, first bin and the bin counts as varints, with empty
+     * bins at either end left out. Typically a few hundred bytes for an hour of readings.
+     */
+    public byte[] toBytes() {
+        int first = 0;
+        int last = counts.length - 1;
+        while (first <= last && counts[first] == 0) {
+            first++;
+        }
+        while (last >= first && counts[last] == 0) {
+            last--;
+        }
+        int bins = last - first + 1;
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 16 + 10 * (3 + bins));
+        buffer.put(FORMAT_VERSION);
+        buffer.putDouble(min);
+        buffer.putDouble(max);
+        putVarLong(buffer, zeroCount);
+        putVarLong(buffer, zigZag(bins > 0 ? offset + first : 0));
+        putVarLong(buffer, bins);
+        for (int i = first; i <= last; i++) {
+            putVarLong(buffer, counts[i]);
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            byte version = buffer.get();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported quantile sketch format " + version);
+            }
+            QuantileSketch sketch = new QuantileSketch();
+            sketch.min = buffer.getDouble();
+            sketch.max = buffer.getDouble();
+            sketch.zeroCount = getVarLong(buffer);
+            sketch.offset = (int) unZigZag(getVarLong(buffer));
+            int bins = (int) getVarLong(buffer);
+            if (bins < 0 || bins > buffer.remaining()) {
+                throw new IllegalArgumentException("Corrupt quantile sketch: " + bins + " bins");
+            }
+            sketch.counts = new long[bins];
+            long total = sketch.zeroCount;
+            for (int i = 0; i < bins; i++) {
+                sketch.counts[i] = getVarLong(buffer);
+                total += sketch.counts[i];
+            }
+            sketch.count = total;
+            return sketch;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated quantile sketch", e);
+        }
+    }
+
+    private void ensureCapacity(int fromBin, int toBin) {
+        if (counts.length == 0) {
+            offset = fromBin;
+            counts = new long[Math.max(toBin - fromBin + 1, 16)];
+            return;
+        }
+        int newOffset = Math.min(offset, fromBin);
+        int newEnd = Math.max(offset + counts.length - 1, toBin);
+        if (newOffset == offset && newEnd == offset + counts.length - 1) {
+            return;
+        }
+        // Grow with some slack on the side that ran out, since neighbouring values tend to follow
+        int slack = Math.max(16, counts.length / 2);
+        if (newOffset < offset) {
+            newOffset -= slack;
+        }
+        if (newEnd > offset + counts.length - 1) {
+            newEnd += slack;
+        }
+        long[] grown = new long[newEnd - newOffset + 1];
+        System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+        counts = grown;
+        offset = newOffset;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt quantile sketch: varint too long");
+    }
+}
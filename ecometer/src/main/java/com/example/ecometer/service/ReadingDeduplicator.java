@@ -0,0 +1,150 @@
+package com.example.ecometer.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recognizes retried meter readings before they reach the database.
+ *
+ * Each meter keeps a ring bitmap over its most recent sequence numbers (ecometer.ingestion.dedup-window of them),
+ * so a repeat is detected with one bit test instead of a SELECT per reading. Sequences that fall behind the window,
+ * and everything seen before a restart, are not tracked here; for those the unique key on
+ * energy_data (meter_id, meter_sequence, timestamp) is the backstop and {@link EnergyDataWriter} skips the stored
+ * rows. The key includes the partitioning column, which is why readings with a meter id must carry readingTimestamp.
+ *
+ * Meter ids come from the senders, so the windows are bounded: a meter that sends nothing for
+ * ecometer.ingestion.dedup-idle-timeout is forgotten, and while ecometer.ingestion.dedup-max-meters are tracked new
+ * meters are not. Both are left to the unique key as well.
+ */
+@Component
+public class ReadingDeduplicator {
+
+    private final int windowSize;
+    private final int maxMeters;
+    private final long idleTimeoutNanos;
+    private final Map<String, SequenceWindow> windows = new ConcurrentHashMap<>();
+
+    public ReadingDeduplicator(MeterRegistry meterRegistry,
+                               @Value("${ecometer.ingestion.dedup-window:1024}") int windowSize,
+                               @Value("${ecometer.ingestion.dedup-max-meters:100000}") int maxMeters,
+                               @Value("${ecometer.ingestion.dedup-idle-timeout:30m}") Duration idleTimeout) {
+        // Whole 64-bit words, so the ring is a plain long[]
+        this.windowSize = Math.max(64, (windowSize + 63) & ~63);
+        this.maxMeters = maxMeters;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        meterRegistry.gaugeMapSize("ecometer.ingestion.dedup.meters", Tags.empty(), windows);
+    }
+
+    /**
+     * Marks the reading as seen. Returns false when the same meter already sent this sequence recently.
+     * Readings without a meter id are never duplicates.
+     */
+    public boolean tryClaim(String meterId, Long sequence) {
+        if (meterId == null) {
+            return true;
+        }
+        SequenceWindow window = windows.get(meterId);
+        if (window == null) {
+            if (windows.size() >= maxMeters) {
+                return true; // not tracked until idle meters are evicted; left to the unique key
+            }
+            window = windows.computeIfAbsent(meterId, m -> new SequenceWindow(windowSize));
+        }
+        return window.tryClaim(sequence, System.nanoTime());
+    }
+
+    /**
+     * Forgets a claimed reading whose write failed, so the meter's retry is accepted.
+     */
+    public void release(String meterId, Long sequence) {
+        if (meterId == null) {
+            return;
+        }
+        SequenceWindow window = windows.get(meterId);
+        if (window != null) {
+            window.release(sequence);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ecometer.ingestion.dedup-sweep-interval:1m}")
+    public void evictIdle() {
+        evictIdle(System.nanoTime());
+    }
+
+    /**
+     * Forgets the meters that sent nothing for the idle timeout before {@code nowNanos}.
+     */
+    void evictIdle(long nowNanos) {
+        windows.values().removeIf(window -> nowNanos - window.lastUsed >= idleTimeoutNanos);
+    }
+
+    /**
+     * Bits for sequences (highest - size, highest]; bit {@code sequence % size} is set when that sequence was seen.
+     * Moving past the highest sequence clears the slots that are reused.
+     */
+    private static final class SequenceWindow {
+        private final long[] bits;
+        private final int size;
+        private long highest = -1;
+        // System.nanoTime() of the last claim
+        private volatile long lastUsed;
+
+        SequenceWindow(int size) {
+            this.size = size;
+            this.bits = new long[size / 64];
+        }
+
+        synchronized boolean tryClaim(long sequence, long nowNanos) {
+            lastUsed = nowNanos;
+            if (sequence > highest) {
+                if (highest < 0 || sequence - highest >= size) {
+                    Arrays.fill(bits, 0L);
+                } else {
+                    for (long s = highest + 1; s < sequence; s++) {
+                        clear(s);
+                    }
+                }
+                highest = sequence;
+                set(sequence);
+                return true;
+            }
+            if (highest - sequence >= size) {
+                return true; // behind the window; left to the unique key
+            }
+            if (isSet(sequence)) {
+                return false;
+            }
+            set(sequence);
+            return true;
+        }
+
+        synchronized void release(long sequence) {
+            if (sequence <= highest && highest - sequence < size) {
+                clear(sequence);
+            }
+        }
+
+        private boolean isSet(long sequence) {
+            int slot = (int) (sequence % size);
+            return (bits[slot >>> 6] & (1L << slot)) != 0;
+        }
+
+        private void set(long sequence) {
+            int slot = (int) (sequence % size);
+            bits[slot >>> 6] |= 1L << slot;
+        }
+
+        private void clear(long sequence) {
+            int slot = (int) (sequence % size);
+            bits[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+}
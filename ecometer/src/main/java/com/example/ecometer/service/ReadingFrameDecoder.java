@@ -0,0 +1,145 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.dto.EnergyDataRequest;
+import com.example.ecometer.entity.EnergyData;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoder for the binary reading upload format (application/vnd.ecometer.readings), a compact alternative to
+ * JSON for constrained meters. A body is a sequence of frames; all integers are big-endian.
+ *
+ * <pre>
+ * frame   := length:u32 header reading*      length counts the bytes after itself
+ * header  := magic:"EM" version:u8 (=1) meterIdLength:u8 readingCount:u16 meterId:UTF-8[meterIdLength]
+ * reading := departmentId:u32 sourceType:u8 flags:u8 reserved:u16
+ *            milliKwh:i64 carbonMg:i64 costMicroUsd:i64 epochMillis:i64 sequence:i64     (48 bytes)
+ * </pre>
+ *
+ * sourceType is the ordinal of {@link EnergyData.SourceType}. Amounts are fixed point in the {@link FixedPoint}
+ * units. flags marks which optional fields are present: {@link #HAS_CARBON}, {@link #HAS_COST},
+ * {@link #HAS_TIMESTAMP} (otherwise the time of receipt) and {@link #HAS_SEQUENCE} (requires a meter id in the
+ * header and a timestamp). Absent fields are sent as zero. Only what cannot be represented as a request (a sequence
+ * without a meter id, an epochMillis before 1970 or after 9999) is rejected here; values go through the same
+ * validation as JSON uploads.
+ *
+ * This is not zero-copy: the servlet body is an InputStream, so each frame is copied into one reused heap buffer,
+ * and every reading becomes an {@link EnergyDataRequest} with BigDecimal amounts so that it shares the JSON path's
+ * validation and pricing. What it saves over JSON is the text parsing, not the per-reading objects.
+ */
+public final class ReadingFrameDecoder {
+
+    public static final String MEDIA_TYPE = "application/vnd.ecometer.readings";
+
+    public static final int HAS_CARBON = 1;
+    public static final int HAS_COST = 1 << 1;
+    public static final int HAS_TIMESTAMP = 1 << 2;
+    public static final int HAS_SEQUENCE = 1 << 3;
+
+    private static final short MAGIC = ('E' << 8) | 'M';
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 6;
+    private static final int READING_BYTES = 48;
+    private static final int MAX_FRAME_BYTES = HEADER_BYTES + 255 + 0xFFFF * READING_BYTES;
+    private static final EnergyData.SourceType[] SOURCE_TYPES = EnergyData.SourceType.values();
+    // Meters count from the Unix epoch; the upper end is the last instant a DATETIME/TIMESTAMP column holds
+    private static final long MAX_EPOCH_MILLIS = Instant.parse("9999-12-31T23:59:59.999Z").toEpochMilli();
+
+    private final InputStream in;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private ByteBuffer frame = ByteBuffer.allocate(4096);
+
+    public ReadingFrameDecoder(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * The readings of the next frame, or null at the end of the body.
+     *
+     * @throws IllegalArgumentException when the frame is malformed; the rest of the body cannot be decoded then
+     */
+    public List<EnergyDataRequest> nextFrame() throws IOException {
+        byte[] prefix = in.readNBytes(4);
+        if (prefix.length == 0) {
+            return null;
+        }
+        if (prefix.length < 4) {
+            throw new IllegalArgumentException("Truncated frame length");
+        }
+        int length = ByteBuffer.wrap(prefix).getInt();
+        if (length < HEADER_BYTES || length > MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("Invalid frame length " + Integer.toUnsignedString(length));
+        }
+        if (frame.capacity() < length) {
+            frame = ByteBuffer.allocate(Math.max(length, frame.capacity() * 2));
+        }
+        frame.clear().limit(length);
+        int read = in.readNBytes(frame.array(), 0, length);
+        if (read < length) {
+            throw new IllegalArgumentException("Truncated frame", new EOFException(read + " of " + length + " bytes"));
+        }
+        return decode(frame.order(ByteOrder.BIG_ENDIAN));
+    }
+
+    private List<EnergyDataRequest> decode(ByteBuffer buffer) {
+        if (buffer.getShort(0) != MAGIC || buffer.get(2) != VERSION) {
+            throw new IllegalArgumentException("Not a version " + VERSION + " reading frame");
+        }
+        int meterIdLength = Byte.toUnsignedInt(buffer.get(3));
+        int count = Short.toUnsignedInt(buffer.getShort(4));
+        int first = HEADER_BYTES + meterIdLength;
+        if (buffer.limit() != first + count * READING_BYTES) {
+            throw new IllegalArgumentException("Frame length does not match " + count + " readings");
+        }
+        String meterId = meterIdLength > 0
+                ? new String(buffer.array(), HEADER_BYTES, meterIdLength, StandardCharsets.UTF_8)
+                : null;
+
+        List<EnergyDataRequest> readings = new ArrayList<>(count);
+        for (int position = first; position < buffer.limit(); position += READING_BYTES) {
+            EnergyDataRequest reading = new EnergyDataRequest();
+            reading.setDepartmentId(Integer.toUnsignedLong(buffer.getInt(position)));
+            int ordinal = Byte.toUnsignedInt(buffer.get(position + 4));
+            // Unknown ordinals are passed on so validation rejects just that reading
+            reading.setSourceType(ordinal < SOURCE_TYPES.length ? SOURCE_TYPES[ordinal].name() : "#" + ordinal);
+            int flags = buffer.get(position + 5);
+            reading.setKwhUsed(BigDecimal.valueOf(buffer.getLong(position + 8), 3));
+            if ((flags & HAS_CARBON) != 0) {
+                reading.setCarbonKg(BigDecimal.valueOf(buffer.getLong(position + 16), 6));
+            }
+            if ((flags & HAS_COST) != 0) {
+                reading.setCostUsd(BigDecimal.valueOf(buffer.getLong(position + 24), 6));
+            }
+            if ((flags & HAS_TIMESTAMP) != 0) {
+                reading.setReadingTimestamp(timestamp(buffer.getLong(position + 32)));
+            }
+            if ((flags & HAS_SEQUENCE) != 0) {
+                if (meterId == null) {
+                    throw new IllegalArgumentException("Reading " + readings.size() + " has a sequence but the frame has no meter id");
+                }
+                reading.setMeterId(meterId);
+                reading.setSequence(buffer.getLong(position + 40));
+            }
+            readings.add(reading);
+        }
+        return readings;
+    }
+
+    private LocalDateTime timestamp(long epochMillis) {
+        if (epochMillis < 0 || epochMillis > MAX_EPOCH_MILLIS) {
+            throw new IllegalArgumentException("Timestamp out of range: " + epochMillis);
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), zone);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.config.ReplicaRoutingDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Measures how far the read replica is behind and tells {@link ReplicaRoutingDataSource} whether read-only
+ * transactions may use it.
+ *
+ * Every heartbeat-interval this instance writes its clock to replica_heartbeats on the primary and reads its row
+ * back from the replica; the lag is the age of the value the replica returns. That is an upper bound, up to one
+ * interval too high, so heartbeat-interval should be well below max-lag. A missing row or a failing replica counts
+ * as stale. Does nothing when no replica is configured.
+ */
+@Component
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final int QUERY_TIMEOUT_SECONDS = 2;
+
+    private final ReplicaRoutingDataSource routing;
+    private final JdbcTemplate primaryJdbc;
+    private final JdbcTemplate replicaJdbc;
+    private final String instance;
+
+    public ReplicaLagMonitor(DataSource dataSource, JdbcTemplate jdbcTemplate) throws SQLException {
+        this.routing = dataSource.isWrapperFor(ReplicaRoutingDataSource.class)
+                ? dataSource.unwrap(ReplicaRoutingDataSource.class)
+                : null;
+        // Auto-commit statements outside a transaction are routed to the primary
+        this.primaryJdbc = jdbcTemplate;
+        this.replicaJdbc = routing != null ? new JdbcTemplate(routing.getReplica()) : null;
+        if (replicaJdbc != null) {
+            replicaJdbc.setQueryTimeout(QUERY_TIMEOUT_SECONDS);
+        }
+        this.instance = hostName();
+    }
+
+    @Scheduled(fixedDelayString = "${ecometer.datasource.replica.heartbeat-interval:1s}")
+    public void beat() {
+        if (routing == null) {
+            return;
+        }
+        try {
+            writeHeartbeat(System.currentTimeMillis());
+        } catch (DataAccessException e) {
+            // The primary is what every other component depends on; its errors surface there
+            log.debug("Could not write replica heartbeat: {}", e.getMessage());
+        }
+        try {
+            List<Long> seen = replicaJdbc.queryForList(
+                    "SELECT beat_millis FROM replica_heartbeats WHERE instance = ?", Long.class, instance);
+            if (seen.isEmpty()) {
+                routing.markUnavailable("no heartbeat replicated yet");
+                return;
+            }
+            routing.recordLag(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - seen.get(0))));
+        } catch (DataAccessException e) {
+            routing.markUnavailable(e.getMessage());
+        }
+    }
+
+    private void writeHeartbeat(long now) {
+        int updated = primaryJdbc.update("UPDATE replica_heartbeats SET beat_millis = ? WHERE instance = ?", now, instance);
+        if (updated == 0) {
+            primaryJdbc.update("INSERT INTO replica_heartbeats (instance, beat_millis) VALUES (?, ?)", instance, now);
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
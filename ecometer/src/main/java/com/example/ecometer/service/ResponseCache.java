@@ -0,0 +1,65 @@
+package com.example.ecometer.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Serialized JSON bodies of read endpoints, kept per key until the data version they were rendered from changes.
+ *
+ * Concurrent requests for a stale entry render it once; everyone else gets the cached bytes and a strong ETag
+ * derived from them, so conditional requests from idle pollers can be answered with 304 without rendering.
+ * Bodies that also depend on the clock (the sliding 24-hour dashboard window, random suggestion samples) add
+ * {@link #timeBucket()} to their version and are re-rendered at most once per time-bucket.
+ */
+@Component
+public class ResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final long timeBucketMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public ResponseCache(ObjectMapper objectMapper,
+                         @Value("${ecometer.response-cache.time-bucket:60s}") Duration timeBucket) {
+        this.objectMapper = objectMapper;
+        this.timeBucketMillis = Math.max(1, timeBucket.toMillis());
+    }
+
+    /**
+     * Returns the entry for {@code key} if it was rendered at {@code version}, otherwise renders and caches it.
+     */
+    public Entry get(String key, String version, Supplier<?> renderer) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version().equals(version)) {
+            return entry;
+        }
+        // compute() blocks other callers of the same key while one of them renders
+        return entries.compute(key, (k, current) ->
+                current != null && current.version().equals(version) ? current : render(version, renderer.get()));
+    }
+
+    /** Index of the current time bucket, for versions of clock-dependent bodies. */
+    public long timeBucket() {
+        return System.currentTimeMillis() / timeBucketMillis;
+    }
+
+    private Entry render(String version, Object body) {
+        try {
+            byte[] bytes = objectMapper.writeValueAsBytes(body);
+            return new Entry(version, bytes, "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public record Entry(String version, byte[] body, String etag) {
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.EnergyData;
+import com.example.ecometer.entity.EnergyRollup;
+import com.example.ecometer.entity.EnergyRollupDaily;
+import com.example.ecometer.entity.EnergyRollupHourly;
+import com.example.ecometer.entity.EnergySketchHourly;
+import com.example.ecometer.entity.RollupWatermark;
+import com.example.ecometer.repository.EnergyDataRepository;
+import com.example.ecometer.repository.EnergyRollupDailyRepository;
+import com.example.ecometer.repository.EnergyRollupHourlyRepository;
+import com.example.ecometer.repository.EnergySketchHourlyRepository;
+import com.example.ecometer.repository.RollupWatermarkRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Folds new energy_data rows into energy_rollup_hourly and energy_rollup_daily, and their kWh into the
+ * per-department hourly quantile sketches of energy_sketch_hourly.
+ *
+ * Progress is tracked with an id high-water mark (rollup_watermarks), and each chunk is folded and the mark
+ * advanced in the same transaction, so every raw row is counted exactly once. Raw data retention is applied by
+ * {@link PartitionMaintenanceJob}, which only drops partitions whose rows are below the mark.
+ */
+@Component
+@Slf4j
+public class RollupCompactionJob {
+
+    private final EnergyDataRepository energyDataRepository;
+    private final EnergyRollupHourlyRepository hourlyRepository;
+    private final EnergyRollupDailyRepository dailyRepository;
+    private final EnergySketchHourlyRepository sketchRepository;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final Duration settleDelay;
+
+    public RollupCompactionJob(EnergyDataRepository energyDataRepository,
+                               EnergyRollupHourlyRepository hourlyRepository,
+                               EnergyRollupDailyRepository dailyRepository,
+                               EnergySketchHourlyRepository sketchRepository,
+                               RollupWatermarkRepository watermarkRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${ecometer.rollup.chunk-size:5000}") int chunkSize,
+                               @Value("${ecometer.rollup.settle-delay:30s}") Duration settleDelay) {
+        this.energyDataRepository = energyDataRepository;
+        this.hourlyRepository = hourlyRepository;
+        this.dailyRepository = dailyRepository;
+        this.sketchRepository = sketchRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.settleDelay = settleDelay;
+    }
+
+    @Scheduled(fixedDelayString = "${ecometer.rollup.compaction-interval:60s}",
+               initialDelayString = "${ecometer.rollup.compaction-interval:60s}")
+    public void run() {
+        try {
+            long folded = compact();
+            if (folded > 0) {
+                log.info("Rollup compaction: {} readings folded", folded);
+            }
+        } catch (Exception e) {
+            log.error("Rollup compaction failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Folds the rows above the high-water mark up to the first one that has not settled, one chunk per transaction.
+     * Returns the number of raw rows folded.
+     */
+    public long compact() {
+        long total = 0;
+        while (true) {
+            Integer folded = transactionTemplate.execute(status -> foldNextChunk());
+            if (folded == null || folded == 0) {
+                return total;
+            }
+            total += folded;
+            if (folded < chunkSize) {
+                return total;
+            }
+        }
+    }
+
+    public long currentWatermark() {
+        return watermarkRepository.findById(RollupWatermark.ENERGY_DATA)
+                .map(RollupWatermark::getLastId)
+                .orElse(0L);
+    }
+
+    private int foldNextChunk() {
+        RollupWatermark watermark = watermarkRepository.findForUpdate(RollupWatermark.ENERGY_DATA)
+                .orElseGet(() -> watermarkRepository.save(new RollupWatermark(RollupWatermark.ENERGY_DATA)));
+
+        LocalDateTime settledBefore = LocalDateTime.now().minus(settleDelay);
+        List<Object[]> rows = energyDataRepository.findUnfoldedReadings(
+                watermark.getLastId(), PageRequest.of(0, chunkSize));
+
+        Map<BucketKey, Sums> hourly = new HashMap<>();
+        Map<BucketKey, Sums> daily = new HashMap<>();
+        Map<SketchKey, SketchSums> sketches = new HashMap<>();
+        long lastId = watermark.getLastId();
+        int folded = 0;
+        for (Object[] row : rows) {
+            // The mark must stay below a recent row: a lower id may still be committing in another transaction
+            LocalDateTime createdAt = (LocalDateTime) row[7];
+            if (createdAt != null && !createdAt.isBefore(settledBefore)) {
+                break;
+            }
+            lastId = (Long) row[0];
+            folded++;
+            Long departmentId = (Long) row[1];
+            EnergyData.SourceType sourceType = (EnergyData.SourceType) row[2];
+            LocalDateTime timestamp = (LocalDateTime) row[3];
+            long kwh = FixedPoint.toMilliKwh((BigDecimal) row[4]);
+            long carbonKg = FixedPoint.toMilligrams((BigDecimal) row[5]);
+            long costUsd = FixedPoint.toMicroUsd((BigDecimal) row[6]);
+
+            hourly.computeIfAbsent(new BucketKey(departmentId, sourceType, timestamp.truncatedTo(ChronoUnit.HOURS)), k -> new Sums())
+                    .add(kwh, carbonKg, costUsd);
+            daily.computeIfAbsent(new BucketKey(departmentId, sourceType, timestamp.truncatedTo(ChronoUnit.DAYS)), k -> new Sums())
+                    .add(kwh, carbonKg, costUsd);
+            sketches.computeIfAbsent(new SketchKey(departmentId, timestamp.truncatedTo(ChronoUnit.HOURS)), k -> new SketchSums())
+                    .add(kwh);
+        }
+        if (folded == 0) {
+            return 0;
+        }
+
+        merge(hourly, hourlyRepository::findByBucketStartIn, EnergyRollupHourly::new, hourlyRepository::saveAll);
+        merge(daily, dailyRepository::findByBucketStartIn, EnergyRollupDaily::new, dailyRepository::saveAll);
+        mergeSketches(sketches);
+
+        watermark.setLastId(lastId);
+        watermarkRepository.save(watermark);
+        return folded;
+    }
+
+    /**
+     * Adds the chunk sums to the existing rollup rows, creating rows for buckets seen for the first time.
+     */
+    private <T extends EnergyRollup> void merge(Map<BucketKey, Sums> sums,
+                                                BucketLoader<T> loader,
+                                                Supplier<T> factory,
+                                                Consumer<List<T>> saver) {
+        Set<LocalDateTime> bucketStarts = new HashSet<>();
+        sums.keySet().forEach(key -> bucketStarts.add(key.bucketStart()));
+
+        Map<BucketKey, T> existing = new HashMap<>();
+        for (T rollup : loader.load(bucketStarts)) {
+            existing.put(new BucketKey(rollup.getDepartmentId(), rollup.getSourceType(), rollup.getBucketStart()), rollup);
+        }
+
+        List<T> touched = new ArrayList<>(sums.size());
+        for (Map.Entry<BucketKey, Sums> entry : sums.entrySet()) {
+            BucketKey key = entry.getKey();
+            T rollup = existing.computeIfAbsent(key, k -> {
+                T created = factory.get();
+                created.setDepartmentId(k.departmentId());
+                created.setSourceType(k.sourceType());
+                created.setBucketStart(k.bucketStart());
+                return created;
+            });
+            Sums value = entry.getValue();
+            rollup.add(value.count, FixedPoint.kwh(value.kwh), FixedPoint.carbonKg(value.carbonKg),
+                    FixedPoint.costUsd(value.costUsd));
+            touched.add(rollup);
+        }
+        saver.accept(touched);
+    }
+
+    /**
+     * Merges the chunk's sketches into the stored ones, creating rows for hours seen for the first time.
+     */
+    private void mergeSketches(Map<SketchKey, SketchSums> sketches) {
+        Set<LocalDateTime> bucketStarts = new HashSet<>();
+        sketches.keySet().forEach(key -> bucketStarts.add(key.bucketStart()));
+
+        Map<SketchKey, EnergySketchHourly> existing = new HashMap<>();
+        for (EnergySketchHourly row : sketchRepository.findByBucketStartIn(bucketStarts)) {
+            existing.put(new SketchKey(row.getDepartmentId(), row.getBucketStart()), row);
+        }
+
+        List<EnergySketchHourly> touched = new ArrayList<>(sketches.size());
+        for (Map.Entry<SketchKey, SketchSums> entry : sketches.entrySet()) {
+            SketchSums value = entry.getValue();
+            EnergySketchHourly row = existing.get(entry.getKey());
+            if (row == null) {
+                row = new EnergySketchHourly();
+                row.setDepartmentId(entry.getKey().departmentId());
+                row.setBucketStart(entry.getKey().bucketStart());
+            } else {
+                value.sketch.merge(QuantileSketch.fromBytes(row.getSketch()));
+            }
+            row.setReadingCount(row.getReadingCount() + value.count);
+            row.setTotalKwh(row.getTotalKwh().add(FixedPoint.kwh(value.kwh)));
+            row.setSketch(value.sketch.toBytes());
+            touched.add(row);
+        }
+        sketchRepository.saveAll(touched);
+    }
+
+    @FunctionalInterface
+    private interface BucketLoader<T> {
+        List<T> load(Collection<LocalDateTime> bucketStarts);
+    }
+
+    private record BucketKey(Long departmentId, EnergyData.SourceType sourceType, LocalDateTime bucketStart) {
+    }
+
+    private record SketchKey(Long departmentId, LocalDateTime bucketStart) {
+    }
+
+    private static final class SketchSums {
+        private final QuantileSketch sketch = new QuantileSketch();
+        private long count;
+        private long kwh;
+
+        void add(long milliKwh) {
+            count++;
+            kwh += milliKwh;
+            sketch.add(milliKwh / 1000.0);
+        }
+    }
+
+    // Fixed point: milli-kWh, mg CO2, micro-USD
+    private static final class Sums {
+        private long count;
+        private long kwh;
+        private long carbonKg;
+        private long costUsd;
+
+        void add(long kwhUsed, long carbon, long cost) {
+            count++;
+            kwh += kwhUsed;
+            carbonKg += carbon;
+            costUsd += cost;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.AiSuggestion;
+import com.example.ecometer.entity.Department;
+import com.example.ecometer.entity.EnergyData;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming decoder for seed files in the test-data.json format (departments, energyReadings, aiSuggestions).
+ *
+ * Readings are decoded token by token and handed to the {@link Handler} in chunks, so the file size is not bounded
+ * by the heap. Departments must appear before the readings that reference them; readings with an unknown
+ * department or missing fields are skipped and counted. Persistence is left to the handler.
+ */
+public class SeedFileReader {
+
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public SeedFileReader(ObjectMapper objectMapper, int chunkSize) {
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Receives decoded rows. Lists are reused after each call returns.
+     */
+    public interface Handler {
+        /** Departments whose names are not in the lookup map yet; they are added to it after this returns. */
+        void onDepartments(List<Department> departments);
+
+        void onReadings(List<EnergyData> readings);
+
+        void onSuggestions(List<AiSuggestion> suggestions);
+    }
+
+    /**
+     * Reads the whole file. {@code departmentsByName} seeds the name lookup for readings and is extended
+     * with the departments found in the file. Returns the number of skipped readings.
+     */
+    public long read(InputStream in, Map<String, Department> departmentsByName, Handler handler) throws IOException {
+        long skipped = 0;
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Seed file must contain a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String section = parser.currentName();
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (section) {
+                    case "departments" -> readDepartments(parser, departmentsByName, handler);
+                    case "energyReadings" -> skipped += readReadings(parser, departmentsByName, handler);
+                    case "aiSuggestions" -> readSuggestions(parser, handler);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return skipped;
+    }
+
+    private void readDepartments(JsonParser parser, Map<String, Department> departmentsByName, Handler handler)
+            throws IOException {
+        List<Department> created = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            JsonNode node = parser.readValueAsTree();
+            String name = node.path("name").asText(null);
+            if (name == null || departmentsByName.containsKey(name)) {
+                continue;
+            }
+            Department department = new Department();
+            department.setName(name);
+            department.setDescription(node.path("description").asText(null));
+            created.add(department);
+        }
+        handler.onDepartments(created);
+        created.forEach(department -> departmentsByName.putIfAbsent(department.getName(), department));
+    }
+
+    private long readReadings(JsonParser parser, Map<String, Department> departmentsByName, Handler handler)
+            throws IOException {
+        long skipped = 0;
+        List<EnergyData> chunk = new ArrayList<>(chunkSize);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            EnergyData row = readReading(parser, departmentsByName);
+            if (row == null) {
+                skipped++;
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() >= chunkSize) {
+                handler.onReadings(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            handler.onReadings(chunk);
+        }
+        return skipped;
+    }
+
+    /**
+     * Decodes one reading object; the parser is left on its END_OBJECT. Returns null if the reading cannot be stored.
+     */
+    private EnergyData readReading(JsonParser parser, Map<String, Department> departmentsByName) throws IOException {
+        String departmentName = null;
+        String timestamp = null;
+        String sourceType = null;
+        BigDecimal kwh = null;
+        BigDecimal cost = null;
+        BigDecimal carbon = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "department" -> departmentName = parser.getValueAsString();
+                case "timestamp" -> timestamp = parser.getValueAsString();
+                case "sourceType" -> sourceType = parser.getValueAsString();
+                case "consumption" -> kwh = decimal(parser, value);
+                case "cost" -> cost = decimal(parser, value);
+                case "carbonKg" -> carbon = decimal(parser, value);
+                default -> parser.skipChildren();
+            }
+        }
+
+        Department department = departmentName != null ? departmentsByName.get(departmentName) : null;
+        if (department == null || timestamp == null || kwh == null) {
+            return null;
+        }
+        EnergyData energyData = new EnergyData();
+        energyData.setDepartment(department);
+        try {
+            energyData.setTimestamp(LocalDateTime.parse(timestamp));
+            energyData.setSourceType(sourceType != null
+                    ? EnergyData.SourceType.valueOf(sourceType.toUpperCase())
+                    : EnergyData.SourceType.ELECTRICITY); // Default to electricity
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return null;
+        }
+        energyData.setKwhUsed(kwh.setScale(FixedPoint.KWH_SCALE, RoundingMode.HALF_UP));
+        energyData.setCostUsd(cost != null ? cost.setScale(FixedPoint.COST_SCALE, RoundingMode.HALF_UP) : null);
+        energyData.setCarbonKg(carbon != null ? carbon.setScale(FixedPoint.CARBON_SCALE, RoundingMode.HALF_UP) : null);
+        return energyData;
+    }
+
+    private void readSuggestions(JsonParser parser, Handler handler) throws IOException {
+        List<AiSuggestion> chunk = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            chunk.add(toSuggestion(parser.readValueAsTree()));
+            if (chunk.size() >= chunkSize) {
+                handler.onSuggestions(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            handler.onSuggestions(chunk);
+        }
+    }
+
+    private AiSuggestion toSuggestion(JsonNode suggestion) {
+        AiSuggestion aiSuggestion = new AiSuggestion();
+        // Map title and description to suggestionText
+        aiSuggestion.setSuggestionText(suggestion.path("title").asText() + ": " + suggestion.path("description").asText());
+        aiSuggestion.setCategory(AiSuggestion.Category.ENERGY_SAVING);
+
+        switch (suggestion.path("priority").asText().toUpperCase()) {
+            case "HIGH" -> aiSuggestion.setPriority(AiSuggestion.Priority.HIGH);
+            case "LOW" -> aiSuggestion.setPriority(AiSuggestion.Priority.LOW);
+            default -> aiSuggestion.setPriority(AiSuggestion.Priority.MEDIUM);
+        }
+
+        // Estimate dollar savings from the percentage string (rough calculation)
+        String savings = suggestion.path("potentialSavings").asText().replace("%", "");
+        try {
+            aiSuggestion.setEstimatedSavingsUsd(BigDecimal.valueOf(Double.parseDouble(savings) * 10));
+        } catch (NumberFormatException e) {
+            aiSuggestion.setEstimatedSavingsUsd(BigDecimal.valueOf(100.00));
+        }
+        return aiSuggestion;
+    }
+
+    private static BigDecimal decimal(JsonParser parser, JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getDecimalValue();
+            case VALUE_STRING -> parseDecimal(parser.getText());
+            default -> null;
+        };
+    }
+
+    private static BigDecimal parseDecimal(String text) {
+        try {
+            return new BigDecimal(text.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
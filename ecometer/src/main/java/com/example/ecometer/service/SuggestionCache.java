@@ -0,0 +1,194 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.dto.SuggestionResponse;
+import com.example.ecometer.entity.AiSuggestion;
+import com.example.ecometer.repository.AiSuggestionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Active suggestions held in memory so serving them does no database work.
+ *
+ * The list is reloaded on a TTL and whenever a {@link SuggestionsChangedEvent} is published; TTL reloads may be
+ * served by a read replica, reloads on change read the primary so they see the change. Sampling k items
+ * costs O(k): uniform draws use Floyd's algorithm, weighted draws use a Walker alias table built at reload time.
+ * The weight favours high-priority suggestions and, within a priority, larger estimated savings.
+ */
+@Component
+@Slf4j
+public class SuggestionCache {
+
+    private static final int MAX_ATTEMPTS_PER_ITEM = 16;
+
+    private final AiSuggestionRepository aiSuggestionRepository;
+    private final DataVersion dataVersion;
+    private final boolean weighted;
+    private final TransactionTemplate primaryTransaction;
+
+    private volatile Snapshot snapshot = new Snapshot(new SuggestionResponse[0], new double[0], new int[0]);
+
+    public SuggestionCache(AiSuggestionRepository aiSuggestionRepository,
+                           DataVersion dataVersion,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${ecometer.suggestions.weighted:true}") boolean weighted) {
+        this.aiSuggestionRepository = aiSuggestionRepository;
+        this.dataVersion = dataVersion;
+        this.weighted = weighted;
+        // Read-write, so that it is routed to the primary
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener({ApplicationReadyEvent.class, SuggestionsChangedEvent.class})
+    public void onChange() {
+        primaryTransaction.executeWithoutResult(status -> refresh());
+    }
+
+    @Scheduled(fixedDelayString = "${ecometer.suggestions.cache-ttl:5m}", initialDelayString = "${ecometer.suggestions.cache-ttl:5m}")
+    public void refresh() {
+        List<AiSuggestion> active = aiSuggestionRepository.findByIsActiveTrue();
+        SuggestionResponse[] items = new SuggestionResponse[active.size()];
+        double[] weights = new double[active.size()];
+        for (int i = 0; i < items.length; i++) {
+            AiSuggestion suggestion = active.get(i);
+            items[i] = new SuggestionResponse(
+                    suggestion.getId(),
+                    suggestion.getSuggestionText(),
+                    suggestion.getCategory().toString(),
+                    suggestion.getPriority().toString(),
+                    suggestion.getEstimatedSavingsUsd()
+            );
+            weights[i] = weight(suggestion);
+        }
+        boolean changed = !Arrays.equals(snapshot.items, items);
+        snapshot = buildAliasTable(items, weights);
+        if (changed) {
+            dataVersion.bump(DataVersion.Kind.SUGGESTIONS);
+        }
+        log.debug("Suggestion cache refreshed with {} active suggestions", items.length);
+    }
+
+    /**
+     * Up to {@code k} distinct active suggestions, drawn at random.
+     */
+    public List<SuggestionResponse> sample(int k) {
+        Snapshot current = snapshot;
+        int n = current.items.length;
+        if (k >= n) {
+            List<SuggestionResponse> all = new ArrayList<>(List.of(current.items));
+            Collections.shuffle(all, ThreadLocalRandom.current());
+            return all;
+        }
+        return weighted ? sampleWeighted(current, k) : sampleUniform(current, k);
+    }
+
+    public int size() {
+        return snapshot.items.length;
+    }
+
+    // Floyd's algorithm: k distinct indexes in k draws
+    private List<SuggestionResponse> sampleUniform(Snapshot current, int k) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int n = current.items.length;
+        Set<Integer> chosen = new HashSet<>(k * 2);
+        List<SuggestionResponse> result = new ArrayList<>(k);
+        for (int j = n - k; j < n; j++) {
+            int candidate = random.nextInt(j + 1);
+            int index = chosen.add(candidate) ? candidate : j;
+            chosen.add(index);
+            result.add(current.items[index]);
+        }
+        return result;
+    }
+
+    // Alias-table draws, rejecting repeats; a heavily skewed table falls back to filling in index order
+    private List<SuggestionResponse> sampleWeighted(Snapshot current, int k) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int n = current.items.length;
+        Set<Integer> chosen = new HashSet<>(k * 2);
+        List<SuggestionResponse> result = new ArrayList<>(k);
+        for (int attempts = 0; result.size() < k && attempts < k * MAX_ATTEMPTS_PER_ITEM; attempts++) {
+            int column = random.nextInt(n);
+            int index = random.nextDouble() < current.probability[column] ? column : current.alias[column];
+            if (chosen.add(index)) {
+                result.add(current.items[index]);
+            }
+        }
+        for (int index = 0; result.size() < k; index++) {
+            if (chosen.add(index)) {
+                result.add(current.items[index]);
+            }
+        }
+        return result;
+    }
+
+    private static double weight(AiSuggestion suggestion) {
+        double priorityWeight = switch (suggestion.getPriority()) {
+            case HIGH -> 3.0;
+            case MEDIUM -> 2.0;
+            case LOW -> 1.0;
+        };
+        double savings = suggestion.getEstimatedSavingsUsd() != null
+                ? Math.max(0, suggestion.getEstimatedSavingsUsd().doubleValue())
+                : 0;
+        return priorityWeight * (1 + Math.log1p(savings));
+    }
+
+    /**
+     * Vose's construction of the alias table, O(n).
+     */
+    private static Snapshot buildAliasTable(SuggestionResponse[] items, double[] weights) {
+        int n = items.length;
+        double[] probability = new double[n];
+        int[] alias = new int[n];
+        double total = 0;
+        for (double w : weights) {
+            total += w;
+        }
+        if (n == 0 || total <= 0) {
+            Arrays.fill(probability, 1.0);
+            return new Snapshot(items, probability, alias);
+        }
+
+        double[] scaled = new double[n];
+        Deque<Integer> small = new ArrayDeque<>();
+        Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            (scaled[i] < 1.0 ? small : large).push(i);
+        }
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            (scaled[more] < 1.0 ? small : large).push(more);
+        }
+        while (!large.isEmpty()) {
+            probability[large.pop()] = 1.0;
+        }
+        while (!small.isEmpty()) {
+            probability[small.pop()] = 1.0;
+        }
+        return new Snapshot(items, probability, alias);
+    }
+
+    private record Snapshot(SuggestionResponse[] items, double[] probability, int[] alias) {
+    }
+}
@@ -0,0 +1,390 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.AiSuggestion;
+import com.example.ecometer.entity.EnergyData;
+import com.example.ecometer.repository.AiSuggestionRepository;
+import com.example.ecometer.repository.EnergyRollupDailyRepository;
+import com.example.ecometer.repository.EnergyRollupHourlyRepository;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Generates ai_suggestions rows from rules evaluated against the rollup tables.
+ *
+ * Every interval the last lookback-days (up to today's midnight) are summed per department in a handful of
+ * grouped queries on energy_rollup_hourly and energy_rollup_daily, so the cost depends on departments and days,
+ * not on raw readings. The rules then run in parallel per department on a fork-join pool of parallelism threads:
+ * <ul>
+ *   <li>baseload: the average off-hours load (off-hours-start to off-hours-end) is above baseload-ratio of the
+ *       on-hours load; savings are the excess off-hours kWh over a year</li>
+ *   <li>mix-shift: a source type's share of the department's kWh rose by mix-shift-points or more against the
+ *       previous lookback window; savings are the extra kWh over a year at that source's price premium</li>
+ *   <li>growth: the last 7 days used growth-threshold or more above the 7 days before; savings are the extra
+ *       cost over a year</li>
+ * </ul>
+ * Prices are the department's own cost per kWh from the rollups, default-price-per-kwh where it has none.
+ * Each finding is upserted under its rule_key, e.g. "baseload:12"; generated rows whose rule no longer fires
+ * are deactivated. Seed suggestions (rule_key null) are left alone.
+ */
+@Component
+@Slf4j
+public class SuggestionEngine {
+
+    private static final EnergyData.SourceType[] SOURCE_TYPES = EnergyData.SourceType.values();
+    private static final BigDecimal MAX_SAVINGS = new BigDecimal("999999.99");
+    private static final int WEEK_DAYS = 7;
+
+    private final EnergyRollupHourlyRepository hourlyRepository;
+    private final EnergyRollupDailyRepository dailyRepository;
+    private final AiSuggestionRepository aiSuggestionRepository;
+    private final DepartmentRegistry departmentRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool pool;
+    private final boolean enabled;
+    private final int lookbackDays;
+    private final int offHoursStart;
+    private final int offHoursEnd;
+    private final double baseloadRatio;
+    private final double mixShiftPoints;
+    private final double growthThreshold;
+    private final double defaultPricePerKwh;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    @Getter
+    private volatile Report lastReport;
+
+    public SuggestionEngine(EnergyRollupHourlyRepository hourlyRepository,
+                            EnergyRollupDailyRepository dailyRepository,
+                            AiSuggestionRepository aiSuggestionRepository,
+                            DepartmentRegistry departmentRegistry,
+                            ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${ecometer.suggestions.engine.enabled:true}") boolean enabled,
+                            @Value("${ecometer.suggestions.engine.parallelism:4}") int parallelism,
+                            @Value("${ecometer.suggestions.engine.lookback-days:28}") int lookbackDays,
+                            @Value("${ecometer.suggestions.engine.off-hours-start:22}") int offHoursStart,
+                            @Value("${ecometer.suggestions.engine.off-hours-end:6}") int offHoursEnd,
+                            @Value("${ecometer.suggestions.engine.baseload-ratio:0.5}") double baseloadRatio,
+                            @Value("${ecometer.suggestions.engine.mix-shift-points:10}") double mixShiftPoints,
+                            @Value("${ecometer.suggestions.engine.growth-threshold:0.15}") double growthThreshold,
+                            @Value("${ecometer.suggestions.engine.default-price-per-kwh:0.12}") double defaultPricePerKwh) {
+        if (lookbackDays < WEEK_DAYS * 2) {
+            throw new IllegalArgumentException("ecometer.suggestions.engine.lookback-days must be at least " + WEEK_DAYS * 2);
+        }
+        if (offHoursStart == offHoursEnd || offHoursStart < 0 || offHoursStart > 23 || offHoursEnd < 0 || offHoursEnd > 23) {
+            throw new IllegalArgumentException("ecometer.suggestions.engine.off-hours-start/-end must be distinct hours 0-23");
+        }
+        this.hourlyRepository = hourlyRepository;
+        this.dailyRepository = dailyRepository;
+        this.aiSuggestionRepository = aiSuggestionRepository;
+        this.departmentRegistry = departmentRegistry;
+        this.eventPublisher = eventPublisher;
+        // The rollups may be read from a replica; the upsert reads and writes the primary
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pool = new ForkJoinPool(parallelism);
+        this.enabled = enabled;
+        this.lookbackDays = lookbackDays;
+        this.offHoursStart = offHoursStart;
+        this.offHoursEnd = offHoursEnd;
+        this.baseloadRatio = baseloadRatio;
+        this.mixShiftPoints = mixShiftPoints;
+        this.growthThreshold = growthThreshold;
+        this.defaultPricePerKwh = defaultPricePerKwh;
+    }
+
+    @Scheduled(fixedDelayString = "${ecometer.suggestions.engine.interval:1h}",
+               initialDelayString = "${ecometer.suggestions.engine.initial-delay:2m}")
+    public void scheduledEvaluate() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            evaluate();
+        } catch (Exception e) {
+            log.error("Suggestion engine run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Evaluates all rules now and upserts the findings. Returns null when a run is already in progress.
+     */
+    public Report evaluate() throws InterruptedException, ExecutionException {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            Report report = new Report();
+            LocalDateTime end = LocalDate.now().atStartOfDay();
+            Map<Long, DepartmentStats> stats = readOnlyTransaction.execute(status -> load(end));
+            report.departments = stats.size();
+
+            List<AiSuggestion> findings = pool.submit(() -> stats.values().parallelStream()
+                    .flatMap(this::evaluate)
+                    .toList()).get();
+            report.findings = findings.size();
+
+            transactionTemplate.executeWithoutResult(status -> upsert(findings, report));
+            if (report.created + report.updated + report.deactivated > 0) {
+                eventPublisher.publishEvent(new SuggestionsChangedEvent());
+            }
+            report.finish();
+            lastReport = report;
+            log.info("Suggestion engine: {} departments, {} findings, {} created, {} updated, {} deactivated, {} ms",
+                    report.departments, report.findings, report.created, report.updated, report.deactivated, report.elapsedMs);
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Map<Long, DepartmentStats> load(LocalDateTime end) {
+        LocalDateTime windowStart = end.minusDays(lookbackDays);
+        LocalDateTime weekStart = end.minusDays(WEEK_DAYS);
+        Map<Long, DepartmentStats> stats = new HashMap<>();
+        Function<Long, DepartmentStats> create = DepartmentStats::new;
+
+        for (Object[] row : hourlyRepository.sumByDepartmentAndHourOfDay(windowStart, end)) {
+            DepartmentStats department = stats.computeIfAbsent((Long) row[0], create);
+            int hour = ((Number) row[1]).intValue();
+            department.hourKwh[hour] += toDouble(row[2]);
+            department.hourCost[hour] += toDouble(row[3]);
+        }
+        for (Object[] row : dailyRepository.sumByDepartmentAndSourceType(windowStart, end)) {
+            DepartmentStats department = stats.computeIfAbsent((Long) row[0], create);
+            int source = ((EnergyData.SourceType) row[1]).ordinal();
+            department.sourceKwh[source] += toDouble(row[2]);
+            department.sourceCost[source] += toDouble(row[3]);
+        }
+        for (Object[] row : dailyRepository.sumByDepartmentAndSourceType(windowStart.minusDays(lookbackDays), windowStart)) {
+            stats.computeIfAbsent((Long) row[0], create).previousSourceKwh[((EnergyData.SourceType) row[1]).ordinal()] += toDouble(row[2]);
+        }
+        for (Object[] row : dailyRepository.sumByDepartmentAndSourceType(weekStart, end)) {
+            DepartmentStats department = stats.computeIfAbsent((Long) row[0], create);
+            department.weekKwh += toDouble(row[2]);
+            department.weekCost += toDouble(row[3]);
+        }
+        for (Object[] row : dailyRepository.sumByDepartmentAndSourceType(weekStart.minusDays(WEEK_DAYS), weekStart)) {
+            DepartmentStats department = stats.computeIfAbsent((Long) row[0], create);
+            department.previousWeekKwh += toDouble(row[2]);
+            department.previousWeekCost += toDouble(row[3]);
+        }
+        return stats;
+    }
+
+    private Stream<AiSuggestion> evaluate(DepartmentStats stats) {
+        String name = Objects.requireNonNullElse(departmentRegistry.nameOf(stats.departmentId),
+                "Department " + stats.departmentId);
+        return Stream.of(baseload(stats, name), mixShift(stats, name), growth(stats, name)).filter(Objects::nonNull);
+    }
+
+    private AiSuggestion baseload(DepartmentStats stats, String name) {
+        double offKwh = 0;
+        double onKwh = 0;
+        int offHours = 0;
+        for (int hour = 0; hour < 24; hour++) {
+            if (isOffHour(hour)) {
+                offKwh += stats.hourKwh[hour];
+                offHours++;
+            } else {
+                onKwh += stats.hourKwh[hour];
+            }
+        }
+        // Averages per hour of the day over the whole window; hours without data count as zero load
+        double offAverage = offKwh / offHours / lookbackDays;
+        double onAverage = onKwh / (24 - offHours) / lookbackDays;
+        if (onAverage <= 0 || offAverage <= baseloadRatio * onAverage) {
+            return null;
+        }
+        double excessKwhPerYear = (offAverage - baseloadRatio * onAverage) * offHours * 365;
+        double savings = excessKwhPerYear * stats.pricePerKwh(defaultPricePerKwh);
+        String text = String.format("%s draws %.1f kWh per hour between %02d:00 and %02d:00, %.0f%% of its daytime load. " +
+                        "Switching off idle equipment overnight could save about %,.0f kWh a year.",
+                name, offAverage, offHoursStart, offHoursEnd, 100 * offAverage / onAverage, excessKwhPerYear);
+        return suggestion("baseload:" + stats.departmentId, stats.departmentId, AiSuggestion.Category.ENERGY_SAVING, text, savings);
+    }
+
+    private AiSuggestion mixShift(DepartmentStats stats, String name) {
+        double total = sum(stats.sourceKwh);
+        double previousTotal = sum(stats.previousSourceKwh);
+        if (total <= 0 || previousTotal <= 0) {
+            return null;
+        }
+        int shifted = -1;
+        double shiftPoints = 0;
+        for (int i = 0; i < SOURCE_TYPES.length; i++) {
+            double points = 100 * (stats.sourceKwh[i] / total - stats.previousSourceKwh[i] / previousTotal);
+            if (points >= mixShiftPoints && points > shiftPoints) {
+                shifted = i;
+                shiftPoints = points;
+            }
+        }
+        if (shifted < 0) {
+            return null;
+        }
+        // kWh that moved to the source, priced at its premium over the rest of the mix
+        double excessKwhPerYear = shiftPoints / 100 * total * 365 / lookbackDays;
+        double otherKwh = total - stats.sourceKwh[shifted];
+        double premium = stats.sourceCost[shifted] / stats.sourceKwh[shifted]
+                - (otherKwh > 0 ? (sum(stats.sourceCost) - stats.sourceCost[shifted]) / otherKwh : 0);
+        double savings = Math.max(0, excessKwhPerYear * premium);
+        String source = SOURCE_TYPES[shifted].name().toLowerCase();
+        String text = String.format("%s now uses %.0f%% of its energy for %s, up %.0f points from the previous %d days. " +
+                        "Review what drove the shift and whether it can be moved back.",
+                name, 100 * stats.sourceKwh[shifted] / total, source, shiftPoints, lookbackDays);
+        return suggestion("mix-shift:" + stats.departmentId + ":" + SOURCE_TYPES[shifted].name(), stats.departmentId,
+                AiSuggestion.Category.SUSTAINABILITY, text, savings);
+    }
+
+    private AiSuggestion growth(DepartmentStats stats, String name) {
+        if (stats.previousWeekKwh <= 0) {
+            return null;
+        }
+        double growth = stats.weekKwh / stats.previousWeekKwh - 1;
+        if (growth < growthThreshold) {
+            return null;
+        }
+        double extraCost = stats.weekCost - stats.previousWeekCost;
+        if (extraCost <= 0) {
+            extraCost = (stats.weekKwh - stats.previousWeekKwh) * stats.pricePerKwh(defaultPricePerKwh);
+        }
+        double savings = extraCost * 52;
+        String text = String.format("%s used %.0f%% more energy in the last 7 days than the week before (%,.0f vs %,.0f kWh). " +
+                        "If the increase persists it adds about $%,.0f a year.",
+                name, 100 * growth, stats.weekKwh, stats.previousWeekKwh, savings);
+        return suggestion("growth:" + stats.departmentId, stats.departmentId, AiSuggestion.Category.COST_REDUCTION, text, savings);
+    }
+
+    private AiSuggestion suggestion(String ruleKey, long departmentId, AiSuggestion.Category category, String text, double savings) {
+        BigDecimal savingsUsd = BigDecimal.valueOf(savings).setScale(0, RoundingMode.HALF_UP).setScale(2).min(MAX_SAVINGS);
+        AiSuggestion suggestion = new AiSuggestion();
+        suggestion.setRuleKey(ruleKey);
+        suggestion.setDepartmentId(departmentId);
+        suggestion.setCategory(category);
+        suggestion.setSuggestionText(text);
+        suggestion.setEstimatedSavingsUsd(savingsUsd);
+        suggestion.setPriority(savings >= 1000 ? AiSuggestion.Priority.HIGH
+                : savings >= 200 ? AiSuggestion.Priority.MEDIUM : AiSuggestion.Priority.LOW);
+        return suggestion;
+    }
+
+    private void upsert(List<AiSuggestion> findings, Report report) {
+        Map<String, AiSuggestion> existing = new HashMap<>();
+        for (AiSuggestion suggestion : aiSuggestionRepository.findByRuleKeyIsNotNull()) {
+            existing.put(suggestion.getRuleKey(), suggestion);
+        }
+        List<AiSuggestion> changed = new ArrayList<>();
+        for (AiSuggestion finding : findings) {
+            AiSuggestion current = existing.remove(finding.getRuleKey());
+            if (current == null) {
+                changed.add(finding);
+                report.created++;
+            } else if (!Boolean.TRUE.equals(current.getIsActive())
+                    || !current.getSuggestionText().equals(finding.getSuggestionText())
+                    || current.getCategory() != finding.getCategory()
+                    || current.getPriority() != finding.getPriority()
+                    || !Objects.equals(current.getEstimatedSavingsUsd(), finding.getEstimatedSavingsUsd())) {
+                current.setSuggestionText(finding.getSuggestionText());
+                current.setCategory(finding.getCategory());
+                current.setPriority(finding.getPriority());
+                current.setEstimatedSavingsUsd(finding.getEstimatedSavingsUsd());
+                current.setDepartmentId(finding.getDepartmentId());
+                current.setIsActive(true);
+                changed.add(current);
+                report.updated++;
+            }
+        }
+        // Whatever is left did not fire this time
+        for (AiSuggestion stale : existing.values()) {
+            if (Boolean.TRUE.equals(stale.getIsActive())) {
+                stale.setIsActive(false);
+                changed.add(stale);
+                report.deactivated++;
+            }
+        }
+        aiSuggestionRepository.saveAll(changed);
+    }
+
+    private boolean isOffHour(int hour) {
+        return offHoursStart < offHoursEnd
+                ? hour >= offHoursStart && hour < offHoursEnd
+                : hour >= offHoursStart || hour < offHoursEnd;
+    }
+
+    private static double toDouble(Object value) {
+        return value != null ? ((Number) value).doubleValue() : 0;
+    }
+
+    private static double sum(double[] values) {
+        double total = 0;
+        for (double value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Rollup sums of one department, filled while loading and read-only while the rules run.
+     */
+    private static final class DepartmentStats {
+        private final long departmentId;
+        private final double[] hourKwh = new double[24];
+        private final double[] hourCost = new double[24];
+        private final double[] sourceKwh = new double[SOURCE_TYPES.length];
+        private final double[] sourceCost = new double[SOURCE_TYPES.length];
+        private final double[] previousSourceKwh = new double[SOURCE_TYPES.length];
+        private double weekKwh;
+        private double weekCost;
+        private double previousWeekKwh;
+        private double previousWeekCost;
+
+        DepartmentStats(long departmentId) {
+            this.departmentId = departmentId;
+        }
+
+        double pricePerKwh(double fallback) {
+            double kwh = sum(hourKwh);
+            double cost = sum(hourCost);
+            return kwh > 0 && cost > 0 ? cost / kwh : fallback;
+        }
+    }
+
+    @Getter
+    public static class Report {
+        private final long startedAt = System.currentTimeMillis();
+        private long departments;
+        private long findings;
+        private long created;
+        private long updated;
+        private long deactivated;
+        private long elapsedMs;
+
+        private void finish() {
+            elapsedMs = System.currentTimeMillis() - startedAt;
+        }
+    }
+}
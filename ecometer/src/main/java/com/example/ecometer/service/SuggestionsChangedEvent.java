@@ -0,0 +1,7 @@
+package com.example.ecometer.service;
+
+/**
+ * Published after ai_suggestions rows were inserted, updated or deleted, so cached copies can be refreshed.
+ */
+public class SuggestionsChangedEvent {
+}
@@ -0,0 +1,41 @@
+package com.example.ecometer.service;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Executors for the application's own background workers (write-behind writers, factor recompute, dashboard
+ * stream senders).
+ *
+ * Follows the same switch as the request and scheduler threads Spring Boot configures: with
+ * spring.threads.virtual.enabled on a Java 21+ runtime the workers run on virtual threads, otherwise on
+ * platform threads.
+ */
+@Component
+public class WorkerExecutors {
+
+    private final boolean virtualThreads;
+
+    public WorkerExecutors(Environment environment) {
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * An executor that starts one thread per task; {@code concurrencyLimit} above zero makes submitters block
+     * while that many tasks are running.
+     */
+    public SimpleAsyncTaskExecutor create(String threadNamePrefix, int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(virtualThreads);
+        if (concurrencyLimit > 0) {
+            executor.setConcurrencyLimit(concurrencyLimit);
+        }
+        return executor;
+    }
+}
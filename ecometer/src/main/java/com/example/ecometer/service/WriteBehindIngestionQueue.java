@@ -0,0 +1,228 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.EnergyData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-memory buffer between /api/data and the database (ecometer.ingestion.mode=async).
+ * Requests only validate and enqueue; writer threads drain the queue in batches that are closed
+ * either when they reach max-batch-size or when max-batch-delay has passed since the first reading.
+ * A full queue is reported back to the caller so the endpoint can apply backpressure.
+ *
+ * A batch that fails because the database is unreachable is handed to the {@link IngestionSpool} when it is enabled
+ * (and has room), so accepted readings do not sit in memory for the length of an outage; otherwise it is retried
+ * until it goes through. Any other failure is
+ * blamed on the rows: the batch is split in halves until the offending readings are isolated, and those are
+ * logged, counted as rejected (write_failed) and released from the deduplicator so the meter can resend them.
+ */
+@Component
+@Slf4j
+public class WriteBehindIngestionQueue implements SmartLifecycle {
+
+    private static final long RETRY_BACKOFF_MS = 1000;
+
+    private final EnergyDataWriter energyDataWriter;
+    private final ReadingDeduplicator readingDeduplicator;
+    private final IngestionMetrics ingestionMetrics;
+    private final IngestionSpool ingestionSpool;
+    private final WorkerExecutors workerExecutors;
+    private final boolean enabled;
+    private final int writerThreads;
+    private final int maxBatchSize;
+    private final Duration maxBatchDelay;
+    private final BlockingQueue<EnergyData> queue;
+
+    private final Counter enqueuedCounter;
+    private final Counter rejectedCounter;
+    private final Counter drainedCounter;
+    private final Timer batchTimer;
+
+    private volatile boolean running;
+    private CountDownLatch writersStopped = new CountDownLatch(0);
+
+    public WriteBehindIngestionQueue(EnergyDataWriter energyDataWriter,
+                                     ReadingDeduplicator readingDeduplicator,
+                                     IngestionMetrics ingestionMetrics,
+                                     IngestionSpool ingestionSpool,
+                                     WorkerExecutors workerExecutors,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${ecometer.ingestion.mode:sync}") String mode,
+                                     @Value("${ecometer.ingestion.queue-capacity:10000}") int queueCapacity,
+                                     @Value("${ecometer.ingestion.writer-threads:2}") int writerThreads,
+                                     @Value("${ecometer.ingestion.max-batch-size:500}") int maxBatchSize,
+                                     @Value("${ecometer.ingestion.max-batch-delay:200ms}") Duration maxBatchDelay) {
+        this.energyDataWriter = energyDataWriter;
+        this.readingDeduplicator = readingDeduplicator;
+        this.ingestionMetrics = ingestionMetrics;
+        this.ingestionSpool = ingestionSpool;
+        this.workerExecutors = workerExecutors;
+        this.enabled = "async".equalsIgnoreCase(mode);
+        this.writerThreads = writerThreads;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = maxBatchDelay;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        meterRegistry.gauge("ecometer.ingestion.queue.depth", queue, BlockingQueue::size);
+        meterRegistry.gauge("ecometer.ingestion.queue.capacity", queue, q -> q.size() + q.remainingCapacity());
+        this.enqueuedCounter = meterRegistry.counter("ecometer.ingestion.queue.enqueued");
+        this.rejectedCounter = meterRegistry.counter("ecometer.ingestion.queue.rejected");
+        this.drainedCounter = meterRegistry.counter("ecometer.ingestion.queue.drained");
+        this.batchTimer = Timer.builder("ecometer.ingestion.batch.latency")
+                .description("Time to write one drained batch to energy_data")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Hands a validated reading to the writers.
+     * Returns false without blocking when the queue is full.
+     */
+    public boolean offer(EnergyData energyData) {
+        if (!running || !queue.offer(energyData)) {
+            rejectedCounter.increment();
+            return false;
+        }
+        enqueuedCounter.increment();
+        return true;
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writersStopped = new CountDownLatch(writerThreads);
+        SimpleAsyncTaskExecutor executor = workerExecutors.create("ingest-writer-", 0);
+        for (int i = 0; i < writerThreads; i++) {
+            executor.execute(this::drainLoop);
+        }
+        log.info("Write-behind ingestion started: {} {} writers, queue capacity {}, batches of up to {} readings / {} ms",
+                writerThreads, workerExecutors.isVirtualThreads() ? "virtual" : "platform", queue.remainingCapacity(),
+                maxBatchSize, maxBatchDelay.toMillis());
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            // Writers keep draining until the queue is empty, so accepted readings are not lost on shutdown
+            if (!writersStopped.await(30, TimeUnit.SECONDS)) {
+                log.warn("Write-behind writers did not finish in time, {} readings left in queue", queue.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drainLoop() {
+        List<EnergyData> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                EnergyData first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writersStopped.countDown();
+        }
+    }
+
+    private void fillBatch(List<EnergyData> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxBatchDelay.toNanos();
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            EnergyData next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<EnergyData> batch) throws InterruptedException {
+        while (true) {
+            try {
+                List<EnergyData> duplicates = batchTimer.record(() -> energyDataWriter.writeAll(batch));
+                drainedCounter.increment(batch.size() - duplicates.size());
+                return;
+            } catch (RuntimeException e) {
+                if (!IngestionSpool.isOutage(e)) {
+                    writeHalves(batch, e);
+                    return;
+                }
+                if (ingestionSpool.append(batch)) {
+                    log.warn("Write-behind batch of {} readings spooled, database unavailable: {}", batch.size(), e.getMessage());
+                    return;
+                }
+                // Keep the batch and retry; while the database is down the queue fills up and
+                // the endpoint starts shedding load instead of accepting readings it cannot store
+                log.error("Write-behind batch of {} readings failed, retrying: {}", batch.size(), e.getMessage());
+                Thread.sleep(RETRY_BACKOFF_MS);
+            }
+        }
+    }
+
+    /**
+     * Writes the two halves of a batch that was rejected for its contents, down to single readings.
+     */
+    private void writeHalves(List<EnergyData> batch, RuntimeException failure) throws InterruptedException {
+        if (batch.size() == 1) {
+            drop(batch.get(0), failure);
+            return;
+        }
+        int middle = batch.size() / 2;
+        write(batch.subList(0, middle));
+        write(batch.subList(middle, batch.size()));
+    }
+
+    private void drop(EnergyData reading, RuntimeException failure) {
+        log.error("Dropping reading the database rejected (department {}, {} {} kWh at {}, meter {} #{}): {}",
+                reading.getDepartment().getId(), reading.getSourceType(), reading.getKwhUsed(), reading.getTimestamp(),
+                reading.getMeterId(), reading.getMeterSequence(), failure.getMessage());
+        readingDeduplicator.release(reading.getMeterId(), reading.getMeterSequence());
+        ingestionMetrics.rejected(IngestionMetrics.REJECTED_WRITE_FAILED, reading);
+    }
+}
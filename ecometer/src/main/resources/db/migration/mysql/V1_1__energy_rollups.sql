@@ -0,0 +1,41 @@
+-- Hourly and daily rollups of energy_data maintained by RollupCompactionJob, and the id up to which each
+-- rollup has folded in readings.
+
+CREATE TABLE energy_rollup_hourly (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    department_id BIGINT NOT NULL,
+    source_type ENUM('ELECTRICITY', 'TRANSPORT', 'WASTE', 'HEATING', 'COOLING') NOT NULL,
+    bucket_start DATETIME(6) NOT NULL,
+    reading_count BIGINT NOT NULL,
+    total_kwh DECIMAL(16,2) NOT NULL,
+    total_carbon_kg DECIMAL(16,3) NOT NULL,
+    total_cost_usd DECIMAL(14,2) NOT NULL,
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_rollup_hourly_bucket UNIQUE (department_id, source_type, bucket_start)
+) ENGINE=InnoDB;
+
+CREATE INDEX idx_rollup_hourly_bucket_start ON energy_rollup_hourly (bucket_start);
+
+CREATE TABLE energy_rollup_daily (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    department_id BIGINT NOT NULL,
+    source_type ENUM('ELECTRICITY', 'TRANSPORT', 'WASTE', 'HEATING', 'COOLING') NOT NULL,
+    bucket_start DATETIME(6) NOT NULL,
+    reading_count BIGINT NOT NULL,
+    total_kwh DECIMAL(16,2) NOT NULL,
+    total_carbon_kg DECIMAL(16,3) NOT NULL,
+    total_cost_usd DECIMAL(14,2) NOT NULL,
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_rollup_daily_bucket UNIQUE (department_id, source_type, bucket_start)
+) ENGINE=InnoDB;
+
+CREATE INDEX idx_rollup_daily_bucket_start ON energy_rollup_daily (bucket_start);
+
+CREATE TABLE rollup_watermarks (
+    name VARCHAR(50) NOT NULL,
+    last_id BIGINT NOT NULL,
+    updated_at DATETIME(6),
+    PRIMARY KEY (name)
+) ENGINE=InnoDB;
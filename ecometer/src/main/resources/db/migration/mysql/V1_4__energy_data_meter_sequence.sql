@@ -0,0 +1,6 @@
+-- Meter id and per-meter sequence of idempotent readings; the unique key stores a retried reading once.
+-- V2 extends the key with the partitioning column.
+ALTER TABLE energy_data
+    ADD COLUMN meter_id VARCHAR(64) NULL,
+    ADD COLUMN meter_sequence BIGINT NULL,
+    ADD CONSTRAINT uk_energy_data_meter_sequence UNIQUE (meter_id, meter_sequence);
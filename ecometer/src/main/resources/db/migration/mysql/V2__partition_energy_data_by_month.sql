@@ -0,0 +1,43 @@
+-- Range-partition energy_data by month on timestamp, so range queries prune to the months they touch and
+-- retention drops whole partitions instead of deleting rows (see PartitionMaintenanceJob).
+--
+-- MySQL requires every unique key of a partitioned table to contain the partitioning column and does not
+-- support foreign keys on partitioned tables:
+--  * the primary key becomes (id, timestamp); id stays AUTO_INCREMENT and unique in practice
+--  * the meter dedup key becomes (meter_id, meter_sequence, timestamp)
+--  * the department foreign key is dropped; departments are never deleted by the application
+--
+-- Layout after this migration: p_history (everything before the current month), one partition for the
+-- current month and pmax (MAXVALUE). The maintenance job splits future months out of pmax ahead of time.
+-- Partition bounds are computed from the clock, so the statements are prepared dynamically.
+
+SET @fk := (SELECT constraint_name FROM information_schema.referential_constraints
+            WHERE constraint_schema = DATABASE() AND table_name = 'energy_data' LIMIT 1);
+SET @sql := IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE energy_data DROP FOREIGN KEY `', @fk, '`'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @uk := (SELECT index_name FROM information_schema.statistics
+            WHERE table_schema = DATABASE() AND table_name = 'energy_data'
+              AND index_name = 'uk_energy_data_meter_sequence' LIMIT 1);
+SET @sql := IF(@uk IS NULL, 'DO 0', 'ALTER TABLE energy_data DROP INDEX uk_energy_data_meter_sequence');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+ALTER TABLE energy_data
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, timestamp),
+    ADD CONSTRAINT uk_energy_data_meter_sequence UNIQUE (meter_id, meter_sequence, timestamp);
+
+SET @month_start := DATE_FORMAT(NOW(), '%Y-%m-01');
+SET @next_month := DATE_FORMAT(DATE_ADD(@month_start, INTERVAL 1 MONTH), '%Y-%m-01');
+SET @sql := CONCAT(
+    'ALTER TABLE energy_data PARTITION BY RANGE COLUMNS (`timestamp`) (',
+    'PARTITION p_history VALUES LESS THAN (''', @month_start, '''), ',
+    'PARTITION p', DATE_FORMAT(@month_start, '%Y%m'), ' VALUES LESS THAN (''', @next_month, '''), ',
+    'PARTITION pmax VALUES LESS THAN (MAXVALUE))');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
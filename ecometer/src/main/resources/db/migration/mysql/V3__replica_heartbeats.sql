@@ -0,0 +1,7 @@
+-- Heartbeats for measuring read replica lag (see ReplicaLagMonitor): each instance writes its clock to the
+-- primary and reads it back from the replica.
+CREATE TABLE replica_heartbeats (
+    instance VARCHAR(100) NOT NULL,
+    beat_millis BIGINT NOT NULL,
+    PRIMARY KEY (instance)
+) ENGINE=InnoDB;
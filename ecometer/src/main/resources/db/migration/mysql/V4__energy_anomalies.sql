@@ -0,0 +1,17 @@
+-- Readings flagged by the streaming anomaly detector (see AnomalyDetector). energy_data_id has no foreign key:
+-- energy_data is partitioned, and retention may drop the reading while the anomaly is kept.
+CREATE TABLE energy_anomalies (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    department_id BIGINT NOT NULL,
+    source_type ENUM('ELECTRICITY', 'TRANSPORT', 'WASTE', 'HEATING', 'COOLING') NOT NULL,
+    energy_data_id BIGINT,
+    reading_timestamp DATETIME(6) NOT NULL,
+    kwh_used DECIMAL(10,2) NOT NULL,
+    expected_kwh DECIMAL(10,2) NOT NULL,
+    score DOUBLE NOT NULL,
+    detected_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE INDEX idx_anomaly_timestamp ON energy_anomalies (reading_timestamp);
+CREATE INDEX idx_anomaly_department_timestamp ON energy_anomalies (department_id, reading_timestamp);
@@ -0,0 +1,5 @@
+-- Suggestions generated by the SuggestionEngine are upserted by rule key; seed rows keep rule_key NULL.
+ALTER TABLE ai_suggestions
+    ADD COLUMN rule_key VARCHAR(100) NULL,
+    ADD COLUMN department_id BIGINT NULL,
+    ADD CONSTRAINT uk_ai_suggestions_rule_key UNIQUE (rule_key);
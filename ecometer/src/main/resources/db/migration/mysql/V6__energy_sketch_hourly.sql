@@ -0,0 +1,15 @@
+-- Hourly quantile sketches of reading sizes per department, maintained by the rollup compaction (see QuantileSketch).
+-- Readings folded before this migration have no sketch.
+CREATE TABLE energy_sketch_hourly (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    department_id BIGINT NOT NULL,
+    bucket_start DATETIME(6) NOT NULL,
+    reading_count BIGINT NOT NULL,
+    total_kwh DECIMAL(16,2) NOT NULL,
+    sketch BLOB NOT NULL,
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_sketch_hourly_bucket UNIQUE (department_id, bucket_start)
+) ENGINE=InnoDB;
+
+CREATE INDEX idx_sketch_hourly_bucket_start ON energy_sketch_hourly (bucket_start);
@@ -0,0 +1,38 @@
+-- Hourly and daily rollups of energy_data maintained by RollupCompactionJob, and the id up to which each
+-- rollup has folded in readings.
+
+CREATE TABLE energy_rollup_hourly (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    department_id BIGINT NOT NULL,
+    source_type VARCHAR(255) NOT NULL CHECK (source_type IN ('ELECTRICITY', 'TRANSPORT', 'WASTE', 'HEATING', 'COOLING')),
+    bucket_start TIMESTAMP(6) NOT NULL,
+    reading_count BIGINT NOT NULL,
+    total_kwh NUMERIC(16,2) NOT NULL,
+    total_carbon_kg NUMERIC(16,3) NOT NULL,
+    total_cost_usd NUMERIC(14,2) NOT NULL,
+    updated_at TIMESTAMP(6),
+    CONSTRAINT uk_rollup_hourly_bucket UNIQUE (department_id, source_type, bucket_start)
+);
+
+CREATE INDEX idx_rollup_hourly_bucket_start ON energy_rollup_hourly (bucket_start);
+
+CREATE TABLE energy_rollup_daily (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    department_id BIGINT NOT NULL,
+    source_type VARCHAR(255) NOT NULL CHECK (source_type IN ('ELECTRICITY', 'TRANSPORT', 'WASTE', 'HEATING', 'COOLING')),
+    bucket_start TIMESTAMP(6) NOT NULL,
+    reading_count BIGINT NOT NULL,
+    total_kwh NUMERIC(16,2) NOT NULL,
+    total_carbon_kg NUMERIC(16,3) NOT NULL,
+    total_cost_usd NUMERIC(14,2) NOT NULL,
+    updated_at TIMESTAMP(6),
+    CONSTRAINT uk_rollup_daily_bucket UNIQUE (department_id, source_type, bucket_start)
+);
+
+CREATE INDEX idx_rollup_daily_bucket_start ON energy_rollup_daily (bucket_start);
+
+CREATE TABLE rollup_watermarks (
+    name VARCHAR(50) PRIMARY KEY,
+    last_id BIGINT NOT NULL,
+    updated_at TIMESTAMP(6)
+);
@@ -0,0 +1,3 @@
+-- Range scans by department and by time, and keyset pagination on (timestamp, id) for /api/energy.
+CREATE INDEX idx_department_timestamp ON energy_data (department_id, timestamp);
+CREATE INDEX idx_timestamp ON energy_data (timestamp, id);
@@ -0,0 +1,4 @@
+-- Whether carbon_kg / cost_usd were computed from the emission factor table rather than sent by the meter;
+-- estimated values are re-priced when the table changes (see FactorRecomputeJob).
+ALTER TABLE energy_data ADD COLUMN carbon_estimated BOOLEAN;
+ALTER TABLE energy_data ADD COLUMN cost_estimated BOOLEAN;
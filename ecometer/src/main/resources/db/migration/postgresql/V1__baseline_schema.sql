@@ -0,0 +1,78 @@
+-- Schema as previously created by spring.jpa.hibernate.ddl-auto=update, plus the sample data from data.sql.
+-- Databases that already have these tables are baselined at this version (spring.flyway.baseline-on-migrate)
+-- and continue with V1.1, so this file must stay exactly that schema: later columns, keys and tables go into
+-- their own migrations.
+
+CREATE TABLE departments (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    description TEXT,
+    total_area_sqft NUMERIC(10,2),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    CONSTRAINT uk_departments_name UNIQUE (name)
+);
+
+CREATE TABLE energy_data (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    department_id BIGINT NOT NULL,
+    kwh_used NUMERIC(10,2) NOT NULL,
+    source_type VARCHAR(255) NOT NULL CHECK (source_type IN ('ELECTRICITY', 'TRANSPORT', 'WASTE', 'HEATING', 'COOLING')),
+    timestamp TIMESTAMP(6) NOT NULL,
+    cost_usd NUMERIC(8,2),
+    carbon_kg NUMERIC(10,3),
+    created_at TIMESTAMP(6),
+    CONSTRAINT fk_energy_data_department FOREIGN KEY (department_id) REFERENCES departments (id)
+);
+
+CREATE TABLE ai_suggestions (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    suggestion_text TEXT NOT NULL,
+    category VARCHAR(255) NOT NULL CHECK (category IN ('ENERGY_SAVING', 'COST_REDUCTION', 'SUSTAINABILITY', 'MAINTENANCE')),
+    priority VARCHAR(255) NOT NULL CHECK (priority IN ('LOW', 'MEDIUM', 'HIGH')),
+    estimated_savings_usd NUMERIC(8,2),
+    is_active BOOLEAN NOT NULL,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+-- Insert sample departments for testing
+INSERT INTO departments (name, description, total_area_sqft) VALUES
+('CSE', 'Computer Science & Engineering Department', 15000.00),
+('VLSI', 'Very Large Scale Integration Department', 8000.00),
+('Admin', 'Administrative Building', 12000.00),
+('Library', 'Central Library', 20000.00),
+('Cafeteria', 'Student Dining Hall', 5000.00);
+
+-- Insert sample AI suggestions for testing
+INSERT INTO ai_suggestions (suggestion_text, category, priority, estimated_savings_usd, is_active) VALUES
+('Switch to LED lighting in CSE building to reduce electricity consumption by 30%', 'ENERGY_SAVING', 'HIGH', 2400.00, TRUE),
+('Install smart thermostats in Admin building to optimize heating/cooling cycles', 'COST_REDUCTION', 'MEDIUM', 1800.00, TRUE),
+('Implement motion sensors in Library to automatically turn off lights in unused areas', 'ENERGY_SAVING', 'MEDIUM', 1200.00, TRUE),
+('Upgrade HVAC system in VLSI department - current system is 40% less efficient', 'MAINTENANCE', 'HIGH', 5000.00, TRUE),
+('Install solar panels on Cafeteria roof to offset 60% of electricity usage', 'SUSTAINABILITY', 'HIGH', 8000.00, TRUE),
+('Schedule equipment maintenance in CSE lab to improve energy efficiency', 'MAINTENANCE', 'LOW', 600.00, TRUE);
+
+-- Insert sample energy data for testing (last 24 hours)
+INSERT INTO energy_data (department_id, kwh_used, source_type, cost_usd, carbon_kg, timestamp) VALUES
+-- CSE Department
+(1, 150.5, 'ELECTRICITY', 18.06, 67.73, NOW() - INTERVAL '1 hour'),
+(1, 25.3, 'COOLING', 3.04, 11.39, NOW() - INTERVAL '2 hours'),
+(1, 45.2, 'TRANSPORT', 5.42, 20.34, NOW() - INTERVAL '3 hours'),
+
+-- VLSI Department
+(2, 89.7, 'ELECTRICITY', 10.76, 40.37, NOW() - INTERVAL '1 hour'),
+(2, 15.8, 'COOLING', 1.90, 7.11, NOW() - INTERVAL '2 hours'),
+
+-- Admin Building
+(3, 67.4, 'ELECTRICITY', 8.09, 30.33, NOW() - INTERVAL '1 hour'),
+(3, 12.1, 'HEATING', 1.45, 5.45, NOW() - INTERVAL '2 hours'),
+(3, 8.5, 'TRANSPORT', 1.02, 3.83, NOW() - INTERVAL '4 hours'),
+
+-- Library
+(4, 125.9, 'ELECTRICITY', 15.11, 56.66, NOW() - INTERVAL '1 hour'),
+(4, 35.7, 'COOLING', 4.28, 16.07, NOW() - INTERVAL '2 hours'),
+
+-- Cafeteria
+(5, 78.3, 'ELECTRICITY', 9.40, 35.24, NOW() - INTERVAL '1 hour'),
+(5, 22.4, 'WASTE', 2.69, 10.08, NOW() - INTERVAL '3 hours');
@@ -0,0 +1,59 @@
+-- Range-partition energy_data by month on timestamp, so range queries prune to the months they touch and
+-- retention drops whole partitions instead of deleting rows (see PartitionMaintenanceJob).
+--
+-- An existing table cannot be turned into a partitioned one, so the rows are copied into a new table.
+-- Unique keys of a partitioned table must contain the partitioning column:
+--  * the primary key becomes (id, timestamp); id is fed from a sequence and stays unique in practice
+--  * the meter dedup key becomes (meter_id, meter_sequence, timestamp)
+--
+-- Layout after this migration: energy_data_history (everything before the current month), one partition for
+-- the current month and energy_data_default. The maintenance job creates future months ahead of time, so the
+-- default partition stays empty.
+
+ALTER TABLE energy_data RENAME TO energy_data_unpartitioned;
+
+CREATE TABLE energy_data (
+    id BIGINT NOT NULL,
+    department_id BIGINT NOT NULL,
+    kwh_used NUMERIC(10,2) NOT NULL,
+    source_type VARCHAR(255) NOT NULL CHECK (source_type IN ('ELECTRICITY', 'TRANSPORT', 'WASTE', 'HEATING', 'COOLING')),
+    timestamp TIMESTAMP(6) NOT NULL,
+    cost_usd NUMERIC(8,2),
+    carbon_kg NUMERIC(10,3),
+    carbon_estimated BOOLEAN,
+    cost_estimated BOOLEAN,
+    meter_id VARCHAR(64),
+    meter_sequence BIGINT,
+    created_at TIMESTAMP(6)
+) PARTITION BY RANGE (timestamp);
+
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', now())::date;
+BEGIN
+    EXECUTE format('CREATE TABLE energy_data_history PARTITION OF energy_data FOR VALUES FROM (MINVALUE) TO (%L)',
+                   month_start);
+    EXECUTE format('CREATE TABLE %I PARTITION OF energy_data FOR VALUES FROM (%L) TO (%L)',
+                   'energy_data_p' || to_char(month_start, 'YYYYMM'), month_start, (month_start + INTERVAL '1 month')::date);
+END $$;
+
+CREATE TABLE energy_data_default PARTITION OF energy_data DEFAULT;
+
+INSERT INTO energy_data (id, department_id, kwh_used, source_type, timestamp, cost_usd, carbon_kg,
+                         carbon_estimated, cost_estimated, meter_id, meter_sequence, created_at)
+SELECT id, department_id, kwh_used, source_type, timestamp, cost_usd, carbon_kg,
+       carbon_estimated, cost_estimated, meter_id, meter_sequence, created_at
+FROM energy_data_unpartitioned;
+
+-- Dropping the old table also drops its identity sequence, so the new sequence can take the same name
+DROP TABLE energy_data_unpartitioned;
+
+CREATE SEQUENCE energy_data_id_seq OWNED BY energy_data.id;
+SELECT setval('energy_data_id_seq', COALESCE((SELECT MAX(id) FROM energy_data), 0) + 1, false);
+ALTER TABLE energy_data ALTER COLUMN id SET DEFAULT nextval('energy_data_id_seq');
+
+ALTER TABLE energy_data ADD PRIMARY KEY (id, timestamp);
+ALTER TABLE energy_data ADD CONSTRAINT uk_energy_data_meter_sequence UNIQUE (meter_id, meter_sequence, timestamp);
+ALTER TABLE energy_data ADD CONSTRAINT fk_energy_data_department FOREIGN KEY (department_id) REFERENCES departments (id);
+CREATE INDEX idx_department_timestamp ON energy_data (department_id, timestamp);
+CREATE INDEX idx_timestamp ON energy_data (timestamp, id);
@@ -0,0 +1,16 @@
+-- Readings flagged by the streaming anomaly detector (see AnomalyDetector). energy_data_id has no foreign key:
+-- energy_data is partitioned, and retention may drop the reading while the anomaly is kept.
+CREATE TABLE energy_anomalies (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    department_id BIGINT NOT NULL,
+    source_type VARCHAR(255) NOT NULL CHECK (source_type IN ('ELECTRICITY', 'TRANSPORT', 'WASTE', 'HEATING', 'COOLING')),
+    energy_data_id BIGINT,
+    reading_timestamp TIMESTAMP(6) NOT NULL,
+    kwh_used NUMERIC(10,2) NOT NULL,
+    expected_kwh NUMERIC(10,2) NOT NULL,
+    score DOUBLE PRECISION NOT NULL,
+    detected_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_anomaly_timestamp ON energy_anomalies (reading_timestamp);
+CREATE INDEX idx_anomaly_department_timestamp ON energy_anomalies (department_id, reading_timestamp);
@@ -0,0 +1,4 @@
+-- Suggestions generated by the SuggestionEngine are upserted by rule key; seed rows keep rule_key NULL.
+ALTER TABLE ai_suggestions ADD COLUMN rule_key VARCHAR(100);
+ALTER TABLE ai_suggestions ADD COLUMN department_id BIGINT;
+ALTER TABLE ai_suggestions ADD CONSTRAINT uk_ai_suggestions_rule_key UNIQUE (rule_key);
@@ -0,0 +1,14 @@
+-- Hourly quantile sketches of reading sizes per department, maintained by the rollup compaction (see QuantileSketch).
+-- Readings folded before this migration have no sketch.
+CREATE TABLE energy_sketch_hourly (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    department_id BIGINT NOT NULL,
+    bucket_start TIMESTAMP(6) NOT NULL,
+    reading_count BIGINT NOT NULL,
+    total_kwh NUMERIC(16,2) NOT NULL,
+    sketch BYTEA NOT NULL,
+    updated_at TIMESTAMP(6),
+    CONSTRAINT uk_sketch_hourly_bucket UNIQUE (department_id, bucket_start)
+);
+
+CREATE INDEX idx_sketch_hourly_bucket_start ON energy_sketch_hourly (bucket_start);
@@ -0,0 +1,126 @@
+package com.example.ecometer.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routing between two in-memory H2 databases, each of which names itself in a one-row table.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final Duration MAX_LAG = Duration.ofSeconds(5);
+
+    private SingleConnectionDataSource primary;
+    private SingleConnectionDataSource replica;
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        route(replica);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.destroy();
+        replica.destroy();
+    }
+
+    @Test
+    void replicaIsUnusedUntilLagIsKnown() {
+        assertFalse(routing.isReplicaUsable());
+        assertEquals("primary", readOnly.execute(status -> server()));
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicaWithinMaxLag() {
+        routing.recordLag(Duration.ofMillis(200));
+
+        assertEquals("replica", readOnly.execute(status -> server()));
+        assertEquals("primary", readWrite.execute(status -> server()));
+        // Statements outside a transaction auto-commit, and may write
+        assertEquals("primary", server());
+    }
+
+    @Test
+    void laggingReplicaFallsBackToThePrimary() {
+        routing.recordLag(Duration.ofMillis(200));
+        routing.recordLag(MAX_LAG.plusMillis(1));
+
+        assertFalse(routing.isReplicaUsable());
+        assertEquals("primary", readOnly.execute(status -> server()));
+
+        routing.recordLag(MAX_LAG);
+        assertEquals("replica", readOnly.execute(status -> server()));
+    }
+
+    @Test
+    void unreachableReplicaIsMarkedUnavailable() {
+        JdbcDataSource missing = new JdbcDataSource();
+        // IFEXISTS so the connection fails instead of creating an empty database
+        missing.setURL("jdbc:h2:mem:routing-missing;IFEXISTS=TRUE");
+        route(missing);
+        routing.recordLag(Duration.ofMillis(200));
+
+        assertEquals("primary", readOnly.execute(status -> server()));
+        assertFalse(routing.isReplicaUsable());
+        assertNull(routing.getLag());
+    }
+
+    @Test
+    void writesInAReadWriteTransactionLandOnThePrimary() {
+        routing.recordLag(Duration.ofMillis(200));
+
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("INSERT INTO notes (text) VALUES ('written')"));
+
+        assertEquals(1, count(primary));
+        assertEquals(0, count(replica));
+        assertTrue(routing.isReplicaUsable());
+    }
+
+    private void route(DataSource replicaDataSource) {
+        routing = new ReplicaRoutingDataSource(primary, replicaDataSource, MAX_LAG);
+        jdbcTemplate = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    private String server() {
+        return jdbcTemplate.queryForObject("SELECT name FROM server", String.class);
+    }
+
+    private static int count(SingleConnectionDataSource database) {
+        return new JdbcTemplate(database).queryForObject("SELECT COUNT(*) FROM notes", Integer.class);
+    }
+
+    // One connection per database, which keeps it alive until destroy()
+    private static SingleConnectionDataSource database(String name) {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:routing-" + name, "sa", "", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE server (name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO server (name) VALUES (?)", name);
+        jdbcTemplate.execute("CREATE TABLE notes (text VARCHAR(20))");
+        return dataSource;
+    }
+}
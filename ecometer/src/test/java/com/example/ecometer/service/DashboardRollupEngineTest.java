@@ -0,0 +1,91 @@
+package com.example.ecometer.service;
+
+import org.junit.jupiter.api.Test;
+
+import static com.example.ecometer.service.DashboardRollupEngine.WINDOW_MINUTES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DashboardRollupEngineTest {
+
+    private static final long START = 29_000_000;
+
+    private final DashboardRollupEngine.MinuteSeries series = new DashboardRollupEngine.MinuteSeries();
+
+    @Test
+    void readingsInTheSameMinuteShareABucket() {
+        series.add(START, 1_000, 200, 30);
+        series.add(START, 2_000, 400, 60);
+
+        assertTotals(2, 3_000, 600, 90);
+    }
+
+    @Test
+    void bucketsLeaveTheWindowAfterADay() {
+        series.add(START, 1_000, 100, 10);
+        series.add(START + 1, 2_000, 200, 20);
+
+        series.advanceTo(START + WINDOW_MINUTES - 1);
+        assertTotals(2, 3_000, 300, 30);
+
+        series.advanceTo(START + WINDOW_MINUTES);
+        assertTotals(1, 2_000, 200, 20);
+
+        series.advanceTo(START + WINDOW_MINUTES + 1);
+        assertTotals(0, 0, 0, 0);
+    }
+
+    @Test
+    void reusedSlotStartsFromZero() {
+        series.add(START, 1_000, 100, 10);
+        series.add(START + WINDOW_MINUTES, 5_000, 500, 50);
+
+        assertTotals(1, 5_000, 500, 50);
+    }
+
+    @Test
+    void lateReadingsInsideTheWindowAreCounted() {
+        series.add(START + 100, 1_000, 100, 10);
+        series.add(START + 100 - WINDOW_MINUTES + 1, 2_000, 200, 20);
+
+        assertTotals(2, 3_000, 300, 30);
+
+        // The late bucket is the first to leave
+        series.advanceTo(START + 101);
+        assertTotals(1, 1_000, 100, 10);
+    }
+
+    @Test
+    void readingsOlderThanTheWindowAreIgnored() {
+        series.add(START + WINDOW_MINUTES, 1_000, 100, 10);
+        series.add(START, 2_000, 200, 20);
+        series.add(START - 5 * WINDOW_MINUTES, 4_000, 400, 40);
+
+        assertTotals(1, 1_000, 100, 10);
+    }
+
+    @Test
+    void longGapsEvictEverything() {
+        for (int minute = 0; minute < WINDOW_MINUTES; minute += 7) {
+            series.add(START + minute, 10, 1, 1);
+        }
+        series.add(START + 100L * WINDOW_MINUTES, 3_000, 300, 30);
+
+        assertTotals(1, 3_000, 300, 30);
+    }
+
+    @Test
+    void advancingBackwardsChangesNothing() {
+        series.add(START + 10, 1_000, 100, 10);
+        series.advanceTo(START);
+        series.add(START + 5, 1_000, 100, 10);
+
+        assertTotals(2, 2_000, 200, 20);
+    }
+
+    private void assertTotals(long count, long milliKwh, long milligrams, long microUsd) {
+        assertEquals(count, series.count, "count");
+        assertEquals(milliKwh, series.kwh, "kwh");
+        assertEquals(milligrams, series.carbon, "carbon");
+        assertEquals(microUsd, series.cost, "cost");
+    }
+}
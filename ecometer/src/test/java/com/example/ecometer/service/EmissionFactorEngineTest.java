@@ -0,0 +1,174 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.EnergyData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class EmissionFactorEngineTest {
+
+    private static final String TABLE = """
+            {
+              "defaultCarbonKgPerKwh": 0.45,
+              "defaultCostUsdPerKwh": 0.12,
+              "rules": [
+                {"name": "off-peak", "sourceType": "ELECTRICITY", "fromHour": 22, "toHour": 7, "costUsdPerKwh": 0.08},
+                {"name": "peak", "sourceType": "ELECTRICITY", "fromHour": 16, "toHour": 21, "costUsdPerKwh": 0.18},
+                {"name": "green-2025", "sourceType": "ELECTRICITY", "effectiveFrom": "2025-01-01T00:00:00",
+                 "effectiveTo": "2026-01-01T00:00:00", "carbonKgPerKwh": 0.2},
+                {"name": "dept-7", "departmentId": 7, "carbonKgPerKwh": 0.1, "costUsdPerKwh": 0.05},
+                {"name": "dept-7-heating", "departmentId": 7, "sourceType": "HEATING", "costUsdPerKwh": 0.03}
+              ]
+            }
+            """;
+
+    @TempDir
+    Path directory;
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    @Test
+    void defaultsApplyWhereNoRuleMatches() throws IOException {
+        EmissionFactorEngine engine = engine(TABLE);
+
+        assertFactors(engine.lookup(1L, EnergyData.SourceType.WASTE, at("2024-06-01T12:00")), 450_000, 120_000);
+        assertFactors(engine.lookup(null, EnergyData.SourceType.WASTE, at("2024-06-01T12:00")), 450_000, 120_000);
+    }
+
+    @Test
+    void timeOfUseWindowsWrapPastMidnight() throws IOException {
+        EmissionFactorEngine engine = engine(TABLE);
+
+        assertEquals(80_000, cost(engine, "2024-06-01T23:30"));
+        assertEquals(80_000, cost(engine, "2024-06-01T00:00"));
+        assertEquals(80_000, cost(engine, "2024-06-01T06:59"));
+        assertEquals(120_000, cost(engine, "2024-06-01T07:00"));
+        assertEquals(120_000, cost(engine, "2024-06-01T21:59"));
+        assertEquals(80_000, cost(engine, "2024-06-01T22:00"));
+        assertEquals(180_000, cost(engine, "2024-06-01T16:00"));
+        assertEquals(180_000, cost(engine, "2024-06-01T20:59"));
+    }
+
+    @Test
+    void effectiveIntervalsStartInclusiveAndEndExclusive() throws IOException {
+        EmissionFactorEngine engine = engine(TABLE);
+
+        assertEquals(450_000, carbon(engine, "2024-12-31T23:59:59.999"));
+        assertEquals(200_000, carbon(engine, "2025-01-01T00:00"));
+        assertEquals(200_000, carbon(engine, "2025-07-15T18:00"));
+        assertEquals(450_000, carbon(engine, "2026-01-01T00:00"));
+        assertEquals(450_000, carbon(engine, "1970-01-01T00:00"));
+        assertEquals(450_000, carbon(engine, "9999-12-31T23:00"));
+        // Time-of-use still applies inside the interval
+        assertEquals(180_000, cost(engine, "2025-07-15T18:00"));
+    }
+
+    @Test
+    void moreSpecificRulesWin() throws IOException {
+        EmissionFactorEngine engine = engine(TABLE);
+
+        // Department beats the source-type rules, in and out of their windows
+        assertFactors(engine.lookup(7L, EnergyData.SourceType.ELECTRICITY, at("2025-03-01T18:00")), 100_000, 50_000);
+        // Department and source type beat department alone; carbon falls back to the department rule
+        assertFactors(engine.lookup(7L, EnergyData.SourceType.HEATING, at("2024-03-01T18:00")), 100_000, 30_000);
+    }
+
+    @Test
+    void laterOfEquallySpecificRulesWins() throws IOException {
+        EmissionFactorEngine engine = engine("""
+                {"defaultCarbonKgPerKwh": 0.45, "defaultCostUsdPerKwh": 0.12, "rules": [
+                  {"sourceType": "WASTE", "costUsdPerKwh": 0.01},
+                  {"sourceType": "WASTE", "costUsdPerKwh": 0.02}
+                ]}
+                """);
+
+        assertEquals(20_000, engine.lookup(null, EnergyData.SourceType.WASTE, at("2024-01-01T00:00")).costMicroUsdPerKwh());
+    }
+
+    @Test
+    void invalidTablesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> engine("""
+                {"defaultCostUsdPerKwh": 0.12}
+                """));
+        assertThrows(IllegalArgumentException.class, () -> engine("""
+                {"defaultCarbonKgPerKwh": 0.45, "defaultCostUsdPerKwh": 0.12, "rules": [{"sourceType": "WASTE"}]}
+                """));
+        assertThrows(IllegalArgumentException.class, () -> engine("""
+                {"defaultCarbonKgPerKwh": 0.45, "defaultCostUsdPerKwh": 0.12,
+                 "rules": [{"fromHour": 5, "toHour": 5, "costUsdPerKwh": 0.1}]}
+                """));
+        assertThrows(IllegalArgumentException.class, () -> engine("""
+                {"defaultCarbonKgPerKwh": 0.45, "defaultCostUsdPerKwh": 0.12,
+                 "rules": [{"effectiveFrom": "2025-01-01T00:00:00", "effectiveTo": "2024-01-01T00:00:00",
+                            "costUsdPerKwh": 0.1}]}
+                """));
+        assertThrows(IllegalArgumentException.class, () -> engine("""
+                {"defaultCarbonKgPerKwh": 0.45, "defaultCostUsdPerKwh": 0.12,
+                 "rules": [{"sourceType": "NUCLEAR", "costUsdPerKwh": 0.1}]}
+                """));
+        // Would overflow the fixed-point product for large readings
+        assertThrows(IllegalArgumentException.class, () -> engine("""
+                {"defaultCarbonKgPerKwh": 0.45, "defaultCostUsdPerKwh": 0.12,
+                 "rules": [{"sourceType": "WASTE", "carbonKgPerKwh": 1e6}]}
+                """));
+    }
+
+    @Test
+    void reloadSwapsTheIndexOnlyWhenTheTableChanged() throws IOException {
+        EmissionFactorEngine engine = engine(TABLE);
+
+        assertFalse(engine.reload());
+        assertEquals(1, engine.getVersion());
+
+        Files.writeString(directory.resolve("factors.json"), TABLE.replace("0.18", "0.25"));
+        assertTrue(engine.reload());
+        assertEquals(2, engine.getVersion());
+        assertEquals(250_000, cost(engine, "2024-06-01T17:00"));
+        verify(eventPublisher, times(1)).publishEvent(any(EmissionFactorsChangedEvent.class));
+
+        // A broken table leaves the current one in effect
+        Files.writeString(directory.resolve("factors.json"), "{\"defaultCostUsdPerKwh\": 0.12}");
+        assertThrows(IllegalArgumentException.class, engine::reload);
+        assertEquals(250_000, cost(engine, "2024-06-01T17:00"));
+    }
+
+    private EmissionFactorEngine engine(String json) throws IOException {
+        Path file = directory.resolve("factors.json");
+        Files.writeString(file, json);
+        return new EmissionFactorEngine(new ObjectMapper().findAndRegisterModules(), new DefaultResourceLoader(),
+                eventPublisher, file.toUri().toString());
+    }
+
+    private static long cost(EmissionFactorEngine engine, String timestamp) {
+        return engine.lookup(1L, EnergyData.SourceType.ELECTRICITY, at(timestamp)).costMicroUsdPerKwh();
+    }
+
+    private static long carbon(EmissionFactorEngine engine, String timestamp) {
+        return engine.lookup(1L, EnergyData.SourceType.ELECTRICITY, at(timestamp)).carbonMgPerKwh();
+    }
+
+    private static void assertFactors(EmissionFactorEngine.Factors factors, long carbonMgPerKwh, long costMicroUsdPerKwh) {
+        assertEquals(carbonMgPerKwh, factors.carbonMgPerKwh(), "carbon");
+        assertEquals(costMicroUsdPerKwh, factors.costMicroUsdPerKwh(), "cost");
+    }
+
+    private static LocalDateTime at(String timestamp) {
+        return LocalDateTime.parse(timestamp);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.ecometer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FixedPointTest {
+
+    @Test
+    void columnValuesRoundTripExactly() {
+        assertEquals(new BigDecimal("12.34"), FixedPoint.kwh(FixedPoint.toMilliKwh(new BigDecimal("12.34"))));
+        assertEquals(new BigDecimal("5.432"), FixedPoint.carbonKg(FixedPoint.toMilligrams(new BigDecimal("5.432"))));
+        assertEquals(new BigDecimal("0.99"), FixedPoint.costUsd(FixedPoint.toMicroUsd(new BigDecimal("0.99"))));
+        assertEquals(FixedPoint.MAX_KWH, FixedPoint.kwh(FixedPoint.toMilliKwh(FixedPoint.MAX_KWH)));
+        assertEquals(FixedPoint.MAX_CARBON_KG, FixedPoint.carbonKg(FixedPoint.toMilligrams(FixedPoint.MAX_CARBON_KG)));
+        assertEquals(FixedPoint.MAX_COST_USD, FixedPoint.costUsd(FixedPoint.toMicroUsd(FixedPoint.MAX_COST_USD)));
+    }
+
+    @Test
+    void nullCountsAsZero() {
+        assertEquals(0, FixedPoint.toMilliKwh(null));
+        assertEquals(0, FixedPoint.toMilligrams(null));
+        assertEquals(0, FixedPoint.toMicroUsd(null));
+    }
+
+    @Test
+    void conversionsRoundHalfUp() {
+        assertEquals(1235, FixedPoint.toMilliKwh(new BigDecimal("1.2345")));
+        assertEquals(1234, FixedPoint.toMilliKwh(new BigDecimal("1.2344")));
+        assertEquals(new BigDecimal("1.24"), FixedPoint.kwh(1235));
+        assertEquals(new BigDecimal("0.001"), FixedPoint.carbonKg(500));
+        assertEquals(new BigDecimal("0.00"), FixedPoint.costUsd(4_999));
+    }
+
+    @Test
+    void sumsInUnitsMatchBigDecimalSums() {
+        String[] readings = {"0.01", "12.37", "999.99", "3.50", "0.05"};
+        long total = 0;
+        BigDecimal expected = BigDecimal.ZERO;
+        for (String reading : readings) {
+            total += FixedPoint.toMilliKwh(new BigDecimal(reading));
+            expected = expected.add(new BigDecimal(reading));
+        }
+        assertEquals(expected, FixedPoint.kwh(total));
+    }
+
+    @Test
+    void applyUsesFactorsInTargetUnits() {
+        long carbonPerKwh = FixedPoint.carbonFactor(new BigDecimal("0.233"));
+        long costPerKwh = FixedPoint.costFactor(new BigDecimal("0.145"));
+        assertEquals(233_000, carbonPerKwh);
+        assertEquals(145_000, costPerKwh);
+
+        long milliKwh = FixedPoint.toMilliKwh(new BigDecimal("10.50"));
+        assertEquals(new BigDecimal("2.447"), FixedPoint.carbonKg(FixedPoint.apply(milliKwh, carbonPerKwh)));
+        assertEquals(new BigDecimal("1.52"), FixedPoint.costUsd(FixedPoint.apply(milliKwh, costPerKwh)));
+        // 0.001 kWh at 0.0005 USD/kWh is half a micro-dollar
+        assertEquals(1, FixedPoint.apply(1, FixedPoint.costFactor(new BigDecimal("0.0005"))));
+    }
+
+    @Test
+    void valuesBeyondALongAreRejected() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toMilliKwh(new BigDecimal("1e20")));
+    }
+
+    @Test
+    void applyTakesTheLargestFactorForTheLargestReadingAndRejectsOverflow() {
+        long maxMilliKwh = FixedPoint.toMilliKwh(FixedPoint.MAX_KWH);
+
+        assertEquals(FixedPoint.MAX_UNITS_PER_KWH, FixedPoint.costFactor(FixedPoint.MAX_FACTOR_PER_KWH));
+        FixedPoint.apply(maxMilliKwh, FixedPoint.MAX_UNITS_PER_KWH);
+        assertThrows(ArithmeticException.class, () -> FixedPoint.apply(maxMilliKwh, FixedPoint.MAX_UNITS_PER_KWH * 2));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.apply(Long.MAX_VALUE / 1000, 1_000_000));
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.Department;
+import com.example.ecometer.entity.EnergyData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IngestionSpoolTest {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2026, 3, 14, 9, 26, 53, 589_793_000);
+    // Header, fixed fields and no meter id
+    private static final int RECORD_BYTES = 8 + 56;
+
+    @TempDir
+    Path directory;
+
+    private final EnergyDataWriter writer = mock(EnergyDataWriter.class);
+    private final DepartmentRegistry departmentRegistry = mock(DepartmentRegistry.class);
+    private final ReadingDeduplicator deduplicator = new ReadingDeduplicator(new SimpleMeterRegistry(), 64, 100,
+            Duration.ofMinutes(30));
+    private final Department department = new Department();
+    private final List<EnergyData> written = new ArrayList<>();
+    private final List<IngestionSpool> opened = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        department.setId(3L);
+        when(departmentRegistry.findById(anyLong())).thenReturn(Optional.empty());
+        when(departmentRegistry.findById(3L)).thenReturn(Optional.of(department));
+        doAnswer(invocation -> record(invocation.getArgument(0))).when(writer).writeAll(anyList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(IngestionSpool::stop);
+    }
+
+    @Test
+    void replayWritesTheAppendedReadings() {
+        IngestionSpool spool = open();
+        EnergyData metered = reading(1);
+        metered.setMeterId("meter-1");
+        metered.setMeterSequence(77L);
+        metered.setCarbonEstimated(true);
+
+        assertTrue(spool.append(List.of(metered, reading(2))));
+        assertEquals(2, spool.pending());
+        spool.replay();
+
+        assertEquals(List.of(metered, reading(2)), written);
+        assertEquals(0, spool.pending());
+    }
+
+    @Test
+    void pendingReadingsSurviveARestart() {
+        IngestionSpool spool = open();
+        spool.append(List.of(reading(1), reading(2)));
+        spool.append(List.of(reading(3)));
+        spool.stop();
+
+        IngestionSpool reopened = open();
+        assertEquals(3, reopened.pending());
+        reopened.replay();
+
+        assertEquals(List.of(reading(1), reading(2), reading(3)), written);
+    }
+
+    @Test
+    void replayedReadingsAreNotReplayedAfterARestart() {
+        IngestionSpool spool = open();
+        spool.append(List.of(reading(1), reading(2)));
+        spool.replay();
+        spool.append(List.of(reading(3)));
+        spool.stop();
+
+        IngestionSpool reopened = open();
+        assertEquals(1, reopened.pending());
+        written.clear();
+        reopened.replay();
+
+        assertEquals(List.of(reading(3)), written);
+    }
+
+    @Test
+    void tornTailIsDroppedOnRecovery() throws IOException {
+        IngestionSpool spool = open();
+        spool.append(List.of(reading(1), reading(2), reading(3)));
+        spool.stop();
+        corrupt(onlySegment(), 2 * RECORD_BYTES + 20);
+
+        IngestionSpool reopened = open();
+        assertEquals(2, reopened.pending());
+        // New appends go where the torn record was
+        reopened.append(List.of(reading(4)));
+        reopened.replay();
+
+        assertEquals(List.of(reading(1), reading(2), reading(4)), written);
+    }
+
+    @Test
+    void outagesKeepReadingsForTheNextTick() {
+        IngestionSpool spool = open();
+        spool.append(List.of(reading(1), reading(2)));
+        doThrow(new DataAccessResourceFailureException("connection refused")).when(writer).writeAll(anyList());
+
+        spool.replay();
+        assertEquals(2, spool.pending());
+
+        doAnswer(invocation -> record(invocation.getArgument(0))).when(writer).writeAll(anyList());
+        spool.replay();
+        assertEquals(List.of(reading(1), reading(2)), written);
+        assertEquals(0, spool.pending());
+    }
+
+    @Test
+    void rowsTheDatabaseRejectsAreDroppedAndReleased() {
+        IngestionSpool spool = open();
+        EnergyData bad = reading(2);
+        bad.setMeterId("meter-1");
+        bad.setMeterSequence(5L);
+        assertTrue(deduplicator.tryClaim("meter-1", 5L));
+        spool.append(List.of(reading(1), bad, reading(3), reading(4)));
+        doAnswer(invocation -> {
+            List<EnergyData> rows = invocation.getArgument(0);
+            if (rows.stream().anyMatch(row -> "meter-1".equals(row.getMeterId()))) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            return record(rows);
+        }).when(writer).writeAll(anyList());
+
+        spool.replay();
+
+        assertEquals(List.of(reading(1), reading(3), reading(4)), written);
+        assertEquals(0, spool.pending());
+        assertTrue(deduplicator.tryClaim("meter-1", 5L));
+    }
+
+    @Test
+    void readingsOfRemovedDepartmentsAreDropped() {
+        IngestionSpool spool = open();
+        EnergyData orphan = reading(2);
+        Department removed = new Department();
+        removed.setId(99L);
+        orphan.setDepartment(removed);
+        spool.append(List.of(reading(1), orphan));
+
+        spool.replay();
+
+        assertEquals(List.of(reading(1)), written);
+        assertEquals(0, spool.pending());
+    }
+
+    @Test
+    void fullSpoolRefusesReadingsUntilReplayed() throws IOException {
+        IngestionSpool spool = open();
+        List<EnergyData> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(reading(i));
+        }
+        int appended = 0;
+        while (spool.append(batch)) {
+            appended += batch.size();
+        }
+        assertEquals(appended, spool.pending());
+        assertTrue(appended > 0);
+        assertEquals(2, segments().size());
+
+        spool.replay();
+        assertEquals(appended, written.size());
+        assertTrue(spool.append(batch));
+    }
+
+    @Test
+    void disabledOrStoppedSpoolRefusesReadings() {
+        IngestionSpool disabled = spool(false);
+        disabled.start();
+        assertFalse(disabled.append(List.of(reading(1))));
+
+        IngestionSpool spool = open();
+        spool.stop();
+        assertFalse(spool.append(List.of(reading(1))));
+    }
+
+    // Stands in for EnergyDataWriter.writeAll: keeps the rows and reports no duplicates
+    private List<EnergyData> record(List<EnergyData> rows) {
+        written.addAll(rows);
+        return List.of();
+    }
+
+    private IngestionSpool open() {
+        IngestionSpool spool = spool(true);
+        spool.start();
+        opened.add(spool);
+        return spool;
+    }
+
+    private IngestionSpool spool(boolean enabled) {
+        return new IngestionSpool(writer, departmentRegistry, deduplicator, new SimpleMeterRegistry(), enabled,
+                directory, DataSize.ofKilobytes(64), DataSize.ofKilobytes(128), 500);
+    }
+
+    private EnergyData reading(int n) {
+        EnergyData row = new EnergyData();
+        row.setDepartment(department);
+        row.setSourceType(EnergyData.SourceType.values()[n % EnergyData.SourceType.values().length]);
+        row.setKwhUsed(new BigDecimal(n + ".25"));
+        row.setCarbonKg(new BigDecimal("0.125"));
+        row.setCostUsd(new BigDecimal("1.10"));
+        row.setCarbonEstimated(false);
+        row.setCostEstimated(true);
+        row.setTimestamp(TIMESTAMP.plusMinutes(n));
+        return row;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private static void corrupt(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.flip();
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) ~b.get()}), position);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.ecometer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+
+    private static final double[] QUANTILES = {0, 0.01, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 1};
+
+    @Test
+    void quantilesAreWithinRelativeAccuracy() {
+        Random random = new Random(42);
+        double[] values = new double[20_000];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal spread over several orders of magnitude, like per-reading kWh
+            values[i] = Math.exp(random.nextGaussian() * 2);
+            sketch.add(values[i]);
+        }
+        assertQuantiles(values, sketch);
+    }
+
+    @Test
+    void mergeEqualsSketchOfCombinedValues() {
+        Random random = new Random(7);
+        QuantileSketch whole = new QuantileSketch();
+        QuantileSketch low = new QuantileSketch();
+        QuantileSketch high = new QuantileSketch();
+        double[] values = new double[5_000];
+        for (int i = 0; i < values.length; i++) {
+            // The halves cover disjoint ranges so the merge has to grow the bins on both sides
+            values[i] = i % 2 == 0 ? 0.01 + random.nextDouble() : 1_000 + random.nextDouble() * 10_000;
+            whole.add(values[i]);
+            (i % 2 == 0 ? low : high).add(values[i]);
+        }
+        QuantileSketch merged = new QuantileSketch();
+        merged.merge(high);
+        merged.merge(new QuantileSketch());
+        merged.merge(low);
+
+        assertEquals(whole.getCount(), merged.getCount());
+        assertEquals(whole.getMin(), merged.getMin());
+        assertEquals(whole.getMax(), merged.getMax());
+        assertArrayEquals(whole.toBytes(), merged.toBytes());
+        assertQuantiles(values, merged);
+    }
+
+    @Test
+    void encodingRoundTrips() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : new double[]{0, 0.0005, 0.5, 3.2, 3.2, 150, 9_999.5}) {
+            sketch.add(value);
+        }
+        QuantileSketch decoded = QuantileSketch.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.getCount(), decoded.getCount());
+        assertEquals(sketch.getMin(), decoded.getMin());
+        assertEquals(sketch.getMax(), decoded.getMax());
+        for (double q : QUANTILES) {
+            assertEquals(sketch.quantile(q), decoded.quantile(q));
+        }
+        assertArrayEquals(sketch.toBytes(), decoded.toBytes());
+    }
+
+    @Test
+    void emptySketchRoundTripsAndReportsNaN() {
+        QuantileSketch decoded = QuantileSketch.fromBytes(new QuantileSketch().toBytes());
+
+        assertEquals(0, decoded.getCount());
+        assertTrue(Double.isNaN(decoded.quantile(0.5)));
+        assertTrue(Double.isNaN(decoded.getMin()));
+        assertTrue(Double.isNaN(decoded.getMax()));
+    }
+
+    @Test
+    void valuesBelowMinimumAreReportedAsZero() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(0);
+        sketch.add(0.0001);
+        sketch.add(0.0002);
+        sketch.add(10);
+
+        assertEquals(0, sketch.quantile(0.5));
+        assertEquals(10, sketch.quantile(1));
+    }
+
+    @Test
+    void corruptEncodingsAreRejected() {
+        byte[] bytes = new QuantileSketch().toBytes();
+        bytes[0] = 9;
+        assertThrows(IllegalArgumentException.class, () -> QuantileSketch.fromBytes(bytes));
+
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(1);
+        sketch.add(100);
+        byte[] encoded = sketch.toBytes();
+        assertThrows(IllegalArgumentException.class,
+                () -> QuantileSketch.fromBytes(Arrays.copyOf(encoded, encoded.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+    }
+
+    private static void assertQuantiles(double[] values, QuantileSketch sketch) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+            double estimate = sketch.quantile(q);
+            assertTrue(Math.abs(estimate - exact) <= exact * QuantileSketch.RELATIVE_ACCURACY * 1.000001,
+                    "q=" + q + ": " + estimate + " vs exact " + exact);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.ecometer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadingDeduplicatorTest {
+
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(10);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Rounded up to 128 sequences, at most 3 meters
+    private final ReadingDeduplicator deduplicator = new ReadingDeduplicator(meterRegistry, 100, 3, IDLE_TIMEOUT);
+
+    @Test
+    void repeatsWithinTheWindowAreDuplicates() {
+        assertTrue(deduplicator.tryClaim("m-1", 1L));
+        assertTrue(deduplicator.tryClaim("m-1", 2L));
+        assertFalse(deduplicator.tryClaim("m-1", 1L));
+        assertFalse(deduplicator.tryClaim("m-1", 2L));
+    }
+
+    @Test
+    void metersAreTrackedSeparately() {
+        assertTrue(deduplicator.tryClaim("m-1", 5L));
+        assertTrue(deduplicator.tryClaim("m-2", 5L));
+        assertFalse(deduplicator.tryClaim("m-2", 5L));
+        assertEquals(2, meterRegistry.get("ecometer.ingestion.dedup.meters").gauge().value());
+    }
+
+    @Test
+    void readingsWithoutMeterIdAreNeverDuplicates() {
+        assertTrue(deduplicator.tryClaim(null, null));
+        assertTrue(deduplicator.tryClaim(null, null));
+    }
+
+    @Test
+    void outOfOrderSequencesInsideTheWindowAreClaimedOnce() {
+        assertTrue(deduplicator.tryClaim("m-1", 10L));
+        assertTrue(deduplicator.tryClaim("m-1", 7L));
+        assertFalse(deduplicator.tryClaim("m-1", 7L));
+        assertTrue(deduplicator.tryClaim("m-1", 8L));
+        assertFalse(deduplicator.tryClaim("m-1", 10L));
+    }
+
+    @Test
+    void advancingClearsReusedSlots() {
+        assertTrue(deduplicator.tryClaim("m-1", 3L));
+        // 131 reuses the slot of 3; the gap slots in between are cleared as well
+        assertTrue(deduplicator.tryClaim("m-1", 131L));
+        assertFalse(deduplicator.tryClaim("m-1", 131L));
+        assertTrue(deduplicator.tryClaim("m-1", 130L));
+        assertTrue(deduplicator.tryClaim("m-1", 4L));
+    }
+
+    @Test
+    void jumpsPastTheWholeWindowStartOver() {
+        assertTrue(deduplicator.tryClaim("m-1", 50L));
+        assertTrue(deduplicator.tryClaim("m-1", 50L + 128 * 10));
+        assertTrue(deduplicator.tryClaim("m-1", 50L + 128 * 10 - 1));
+        assertFalse(deduplicator.tryClaim("m-1", 50L + 128 * 10));
+    }
+
+    @Test
+    void sequencesBehindTheWindowAreLeftToTheDatabase() {
+        assertTrue(deduplicator.tryClaim("m-1", 0L));
+        assertTrue(deduplicator.tryClaim("m-1", 128L));
+        // 0 fell out of the window, so its repeat is let through for the unique key to catch
+        assertTrue(deduplicator.tryClaim("m-1", 0L));
+        assertTrue(deduplicator.tryClaim("m-1", 0L));
+    }
+
+    @Test
+    void releasedSequencesCanBeClaimedAgain() {
+        assertTrue(deduplicator.tryClaim("m-1", 1L));
+        assertTrue(deduplicator.tryClaim("m-1", 2L));
+        deduplicator.release("m-1", 1L);
+        assertTrue(deduplicator.tryClaim("m-1", 1L));
+        assertFalse(deduplicator.tryClaim("m-1", 2L));
+
+        // Releasing unknown meters, sequences ahead of the window and null ids is harmless
+        deduplicator.release("m-2", 1L);
+        deduplicator.release("m-1", 500L);
+        deduplicator.release(null, null);
+        assertFalse(deduplicator.tryClaim("m-1", 1L));
+    }
+
+    @Test
+    void idleMetersAreForgotten() {
+        assertTrue(deduplicator.tryClaim("m-1", 1L));
+        long claimed = System.nanoTime();
+        assertTrue(deduplicator.tryClaim("m-2", 1L));
+
+        deduplicator.evictIdle(claimed + IDLE_TIMEOUT.toNanos() / 2);
+        assertEquals(2, meterRegistry.get("ecometer.ingestion.dedup.meters").gauge().value());
+
+        assertTrue(deduplicator.tryClaim("m-2", 2L));
+        deduplicator.evictIdle(claimed + IDLE_TIMEOUT.toNanos());
+        assertEquals(1, meterRegistry.get("ecometer.ingestion.dedup.meters").gauge().value());
+        // m-1 starts over; its repeat is left to the unique key
+        assertTrue(deduplicator.tryClaim("m-1", 1L));
+        assertFalse(deduplicator.tryClaim("m-2", 2L));
+    }
+
+    @Test
+    void metersBeyondTheCapAreNotTracked() {
+        for (int meter = 1; meter <= 3; meter++) {
+            assertTrue(deduplicator.tryClaim("m-" + meter, 1L));
+        }
+        assertTrue(deduplicator.tryClaim("m-4", 1L));
+        assertTrue(deduplicator.tryClaim("m-4", 1L));
+        assertFalse(deduplicator.tryClaim("m-3", 1L));
+        assertEquals(3, meterRegistry.get("ecometer.ingestion.dedup.meters").gauge().value());
+
+        deduplicator.evictIdle(System.nanoTime() + IDLE_TIMEOUT.toNanos());
+        assertTrue(deduplicator.tryClaim("m-4", 1L));
+        assertFalse(deduplicator.tryClaim("m-4", 1L));
+    }
+}
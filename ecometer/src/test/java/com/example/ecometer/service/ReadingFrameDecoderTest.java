@@ -0,0 +1,157 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.dto.EnergyDataRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReadingFrameDecoderTest {
+
+    private static final long EPOCH_MILLIS = 1_767_225_600_000L;
+    private static final int ALL_FIELDS = ReadingFrameDecoder.HAS_CARBON | ReadingFrameDecoder.HAS_COST
+            | ReadingFrameDecoder.HAS_TIMESTAMP | ReadingFrameDecoder.HAS_SEQUENCE;
+
+    @Test
+    void decodesAllFields() throws IOException {
+        byte[] body = frame("meter-7", reading(3, 1, ALL_FIELDS, 12_345, 2_500_000, 1_750_000, EPOCH_MILLIS, 42));
+
+        ReadingFrameDecoder decoder = decoder(body);
+        List<EnergyDataRequest> readings = decoder.nextFrame();
+
+        assertEquals(1, readings.size());
+        EnergyDataRequest reading = readings.get(0);
+        assertEquals(3L, reading.getDepartmentId());
+        assertEquals("TRANSPORT", reading.getSourceType());
+        assertEquals(new BigDecimal("12.345"), reading.getKwhUsed());
+        assertEquals(new BigDecimal("2.500000"), reading.getCarbonKg());
+        assertEquals(new BigDecimal("1.750000"), reading.getCostUsd());
+        assertEquals(LocalDateTime.ofInstant(Instant.ofEpochMilli(EPOCH_MILLIS), ZoneId.systemDefault()),
+                reading.getReadingTimestamp());
+        assertEquals("meter-7", reading.getMeterId());
+        assertEquals(42L, reading.getSequence());
+        assertNull(decoder.nextFrame());
+    }
+
+    @Test
+    void absentFieldsStayNull() throws IOException {
+        List<EnergyDataRequest> readings = decoder(frame("meter-7", reading(1, 0, 0, 1_000, 9, 9, 9, 9))).nextFrame();
+
+        EnergyDataRequest reading = readings.get(0);
+        assertEquals("ELECTRICITY", reading.getSourceType());
+        assertNull(reading.getCarbonKg());
+        assertNull(reading.getCostUsd());
+        assertNull(reading.getReadingTimestamp());
+        assertNull(reading.getMeterId());
+        assertNull(reading.getSequence());
+    }
+
+    @Test
+    void decodesConsecutiveFramesOfDifferentSizes() throws IOException {
+        byte[][] many = new byte[300][];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = reading(2, 0, ReadingFrameDecoder.HAS_SEQUENCE | ReadingFrameDecoder.HAS_TIMESTAMP,
+                    i, 0, 0, EPOCH_MILLIS, i);
+        }
+        ReadingFrameDecoder decoder = decoder(concat(frame("", reading(1, 0, 0, 1, 0, 0, 0, 0)), frame("m", many)));
+
+        assertEquals(1, decoder.nextFrame().size());
+        List<EnergyDataRequest> second = decoder.nextFrame();
+        assertEquals(300, second.size());
+        assertEquals(299L, second.get(299).getSequence());
+        assertEquals(new BigDecimal("0.299"), second.get(299).getKwhUsed());
+        assertNull(decoder.nextFrame());
+    }
+
+    @Test
+    void unknownSourceTypesArePassedOnForValidation() throws IOException {
+        List<EnergyDataRequest> readings = decoder(frame("", reading(1, 200, 0, 1, 0, 0, 0, 0))).nextFrame();
+
+        assertEquals("#200", readings.get(0).getSourceType());
+    }
+
+    @Test
+    void emptyBodyHasNoFrames() throws IOException {
+        assertNull(decoder(new byte[0]).nextFrame());
+    }
+
+    @Test
+    void malformedFramesAreRejected() {
+        byte[] valid = frame("m", reading(1, 0, 0, 1, 0, 0, 0, 0));
+
+        assertInvalid(Arrays.copyOf(valid, 2));
+        assertInvalid(Arrays.copyOf(valid, valid.length - 1));
+        byte[] badMagic = valid.clone();
+        badMagic[4] = 'X';
+        assertInvalid(badMagic);
+        byte[] badVersion = valid.clone();
+        badVersion[6] = 2;
+        assertInvalid(badVersion);
+        byte[] badCount = valid.clone();
+        badCount[9] = 2;
+        assertInvalid(badCount);
+        assertInvalid(ByteBuffer.allocate(4).putInt(-1).array());
+    }
+
+    @Test
+    void sequenceWithoutMeterIdIsRejected() {
+        assertInvalid(frame("", reading(1, 0, ReadingFrameDecoder.HAS_SEQUENCE | ReadingFrameDecoder.HAS_TIMESTAMP,
+                1, 0, 0, EPOCH_MILLIS, 1)));
+    }
+
+    @Test
+    void timestampOutOfRangeIsRejected() {
+        assertInvalid(frame("m", reading(1, 0, ReadingFrameDecoder.HAS_TIMESTAMP, 1, 0, 0, Long.MAX_VALUE, 0)));
+        assertInvalid(frame("m", reading(1, 0, ReadingFrameDecoder.HAS_TIMESTAMP, 1, 0, 0, -1, 0)));
+    }
+
+    private static void assertInvalid(byte[] body) {
+        assertThrows(IllegalArgumentException.class, () -> decoder(body).nextFrame());
+    }
+
+    private static ReadingFrameDecoder decoder(byte[] body) {
+        return new ReadingFrameDecoder(new ByteArrayInputStream(body));
+    }
+
+    private static byte[] frame(String meterId, byte[]... readings) {
+        byte[] id = meterId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 6 + id.length + readings.length * 48);
+        buffer.putInt(buffer.capacity() - 4)
+                .put((byte) 'E').put((byte) 'M').put((byte) 1)
+                .put((byte) id.length).putShort((short) readings.length)
+                .put(id);
+        for (byte[] reading : readings) {
+            buffer.put(reading);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] reading(int departmentId, int sourceType, int flags, long milliKwh, long carbonMg,
+                                  long costMicroUsd, long epochMillis, long sequence) {
+        return ByteBuffer.allocate(48)
+                .putInt(departmentId).put((byte) sourceType).put((byte) flags).putShort((short) 0)
+                .putLong(milliKwh).putLong(carbonMg).putLong(costMicroUsd).putLong(epochMillis).putLong(sequence)
+                .array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
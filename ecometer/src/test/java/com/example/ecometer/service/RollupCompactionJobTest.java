@@ -0,0 +1,119 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.entity.EnergyData;
+import com.example.ecometer.entity.EnergyRollupDaily;
+import com.example.ecometer.entity.EnergyRollupHourly;
+import com.example.ecometer.entity.RollupWatermark;
+import com.example.ecometer.repository.EnergyDataRepository;
+import com.example.ecometer.repository.EnergyRollupDailyRepository;
+import com.example.ecometer.repository.EnergyRollupHourlyRepository;
+import com.example.ecometer.repository.EnergySketchHourlyRepository;
+import com.example.ecometer.repository.RollupWatermarkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RollupCompactionJobTest {
+
+    private static final Duration SETTLE_DELAY = Duration.ofSeconds(30);
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2026, 3, 14, 9, 0);
+
+    private final EnergyDataRepository energyDataRepository = mock(EnergyDataRepository.class);
+    private final EnergyRollupHourlyRepository hourlyRepository = mock(EnergyRollupHourlyRepository.class);
+    private final EnergyRollupDailyRepository dailyRepository = mock(EnergyRollupDailyRepository.class);
+    private final EnergySketchHourlyRepository sketchRepository = mock(EnergySketchHourlyRepository.class);
+    private final RollupWatermarkRepository watermarkRepository = mock(RollupWatermarkRepository.class);
+    private final RollupWatermark watermark = new RollupWatermark(RollupWatermark.ENERGY_DATA);
+    private final List<Object[]> readings = new ArrayList<>();
+    private final List<EnergyRollupHourly> hourly = new ArrayList<>();
+    private final List<EnergyRollupDaily> daily = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(watermarkRepository.findForUpdate(RollupWatermark.ENERGY_DATA)).thenReturn(Optional.of(watermark));
+        when(energyDataRepository.findUnfoldedReadings(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            Pageable page = invocation.getArgument(1);
+            return readings.stream().filter(row -> (Long) row[0] > afterId).limit(page.getPageSize()).toList();
+        });
+        when(hourlyRepository.findByBucketStartIn(anyCollection())).thenAnswer(invocation -> List.copyOf(hourly));
+        when(dailyRepository.findByBucketStartIn(anyCollection())).thenAnswer(invocation -> List.copyOf(daily));
+        doAnswer(invocation -> keep(hourly, invocation.getArgument(0))).when(hourlyRepository).saveAll(anyList());
+        doAnswer(invocation -> keep(daily, invocation.getArgument(0))).when(dailyRepository).saveAll(anyList());
+    }
+
+    @Test
+    void unsettledRowHoldsBackTheMarkForHigherIds() {
+        LocalDateTime settled = LocalDateTime.now().minusHours(1);
+        // Id 2 committed after id 3: it is still inside the settle delay when id 3 already is not
+        readings.add(reading(1, settled));
+        Object[] late = reading(2, LocalDateTime.now());
+        readings.add(late);
+        readings.add(reading(3, settled));
+
+        assertEquals(1, job(100).compact());
+        assertEquals(1L, watermark.getLastId());
+        assertEquals(1L, hourly.get(0).getReadingCount());
+
+        late[7] = settled;
+        assertEquals(2, job(100).compact());
+        assertEquals(3L, watermark.getLastId());
+        assertEquals(3L, hourly.get(0).getReadingCount());
+        assertEquals(new BigDecimal("6.00"), hourly.get(0).getTotalKwh());
+        assertEquals(3L, daily.get(0).getReadingCount());
+    }
+
+    @Test
+    void nothingIsFoldedWhileTheFirstRowIsUnsettled() {
+        readings.add(reading(1, LocalDateTime.now()));
+        readings.add(reading(2, LocalDateTime.now().minusHours(1)));
+
+        assertEquals(0, job(100).compact());
+        assertEquals(0L, watermark.getLastId());
+        assertEquals(List.of(), hourly);
+    }
+
+    @Test
+    void rowsWithoutCreatedAtAndFullChunksAreFolded() {
+        for (int id = 1; id <= 5; id++) {
+            readings.add(reading(id, null));
+        }
+
+        assertEquals(5, job(2).compact());
+        assertEquals(5L, watermark.getLastId());
+        assertEquals(5L, hourly.get(0).getReadingCount());
+    }
+
+    private RollupCompactionJob job(int chunkSize) {
+        return new RollupCompactionJob(energyDataRepository, hourlyRepository, dailyRepository, sketchRepository,
+                watermarkRepository, mock(PlatformTransactionManager.class), chunkSize, SETTLE_DELAY);
+    }
+
+    // Stands in for saveAll: rollups are found again by the next chunk, and updated in place
+    private static <T> List<T> keep(List<T> stored, List<T> rows) {
+        rows.stream().filter(row -> stored.stream().noneMatch(existing -> existing == row)).forEach(stored::add);
+        return rows;
+    }
+
+    private static Object[] reading(long id, LocalDateTime createdAt) {
+        return new Object[] {id, 1L, EnergyData.SourceType.ELECTRICITY, TIMESTAMP.plusMinutes(id),
+                new BigDecimal(id + ".00"), new BigDecimal("0.500"), new BigDecimal("0.10"), createdAt};
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.ecometer.service;
+
+import com.example.ecometer.dto.SuggestionResponse;
+import com.example.ecometer.entity.AiSuggestion;
+import com.example.ecometer.repository.AiSuggestionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SuggestionCacheTest {
+
+    private static final int DRAWS = 200_000;
+
+    private final AiSuggestionRepository repository = mock(AiSuggestionRepository.class);
+    private final DataVersion dataVersion = new DataVersion();
+
+    @Test
+    void weightedDrawsFollowPriorityAndSavings() {
+        SuggestionCache cache = cache(true,
+                suggestion(1, AiSuggestion.Priority.LOW, "0"),
+                suggestion(2, AiSuggestion.Priority.MEDIUM, null),
+                suggestion(3, AiSuggestion.Priority.HIGH, "0"),
+                suggestion(4, AiSuggestion.Priority.MEDIUM, "19"));
+        double[] weights = {1, 2, 3, 2 * (1 + Math.log(20))};
+
+        double[] frequencies = frequencies(cache, 4);
+
+        double total = weights[0] + weights[1] + weights[2] + weights[3];
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(weights[i] / total, frequencies[i], 0.01, "suggestion " + (i + 1));
+        }
+    }
+
+    @Test
+    void uniformDrawsAreEven() {
+        SuggestionCache cache = cache(false,
+                suggestion(1, AiSuggestion.Priority.LOW, "0"),
+                suggestion(2, AiSuggestion.Priority.HIGH, "500"),
+                suggestion(3, AiSuggestion.Priority.MEDIUM, "10"));
+
+        for (double frequency : frequencies(cache, 3)) {
+            assertEquals(1.0 / 3, frequency, 0.01);
+        }
+    }
+
+    @Test
+    void samplesAreDistinct() {
+        List<AiSuggestion> suggestions = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            // One dominant weight makes repeated alias draws likely
+            suggestions.add(suggestion(i, i == 1 ? AiSuggestion.Priority.HIGH : AiSuggestion.Priority.LOW,
+                    i == 1 ? "99999" : "0"));
+        }
+        for (boolean weighted : new boolean[]{true, false}) {
+            SuggestionCache cache = cache(weighted, suggestions.toArray(AiSuggestion[]::new));
+            for (int round = 0; round < 1_000; round++) {
+                List<SuggestionResponse> sample = cache.sample(15);
+                assertEquals(15, sample.size());
+                assertEquals(15, sample.stream().map(SuggestionResponse::getId).distinct().count());
+            }
+        }
+    }
+
+    @Test
+    void askingForAtLeastAllReturnsEverything() {
+        SuggestionCache cache = cache(true,
+                suggestion(1, AiSuggestion.Priority.LOW, "0"),
+                suggestion(2, AiSuggestion.Priority.HIGH, "0"));
+
+        Set<Long> ids = new HashSet<>();
+        cache.sample(5).forEach(s -> ids.add(s.getId()));
+        assertEquals(Set.of(1L, 2L), ids);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void emptyCacheSamplesNothing() {
+        SuggestionCache cache = cache(true);
+
+        assertTrue(cache.sample(3).isEmpty());
+    }
+
+    @Test
+    void refreshBumpsTheVersionOnlyOnChange() {
+        SuggestionCache cache = cache(true, suggestion(1, AiSuggestion.Priority.LOW, "0"));
+        long version = dataVersion.current(DataVersion.Kind.SUGGESTIONS);
+
+        cache.refresh();
+        assertEquals(version, dataVersion.current(DataVersion.Kind.SUGGESTIONS));
+
+        when(repository.findByIsActiveTrue()).thenReturn(List.of(suggestion(2, AiSuggestion.Priority.HIGH, "0")));
+        cache.refresh();
+        assertEquals(version + 1, dataVersion.current(DataVersion.Kind.SUGGESTIONS));
+        assertEquals(2L, cache.sample(1).get(0).getId());
+    }
+
+    private SuggestionCache cache(boolean weighted, AiSuggestion... suggestions) {
+        when(repository.findByIsActiveTrue()).thenReturn(List.of(suggestions));
+        SuggestionCache cache = new SuggestionCache(repository, dataVersion, mock(PlatformTransactionManager.class), weighted);
+        cache.refresh();
+        return cache;
+    }
+
+    // Share of single-item draws that picked each suggestion, by id
+    private static double[] frequencies(SuggestionCache cache, int suggestions) {
+        long[] counts = new long[suggestions];
+        for (int i = 0; i < DRAWS; i++) {
+            counts[(int) (cache.sample(1).get(0).getId() - 1)]++;
+        }
+        double[] frequencies = new double[suggestions];
+        for (int i = 0; i < suggestions; i++) {
+            frequencies[i] = (double) counts[i] / DRAWS;
+        }
+        return frequencies;
+    }
+
+    private static AiSuggestion suggestion(long id, AiSuggestion.Priority priority, String savings) {
+        AiSuggestion suggestion = new AiSuggestion();
+        suggestion.setId(id);
+        suggestion.setSuggestionText("Suggestion " + id);
+        suggestion.setCategory(AiSuggestion.Category.ENERGY_SAVING);
+        suggestion.setPriority(priority);
+        suggestion.setEstimatedSavingsUsd(savings != null ? new BigDecimal(savings) : null);
+        return suggestion;
+    }
+}
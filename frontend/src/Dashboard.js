@@ -32,14 +32,39 @@ const Dashboard = () => {
     }
   };
 
-  // Fetch data on component mount
+  // Apply a live totals event: snapshots replace the department list, updates only replace changed departments
+  const applyStreamEvent = (payload, isSnapshot) => {
+    setDashboardData((current) => {
+      if (!current) {
+        return current;
+      }
+      let summaries = payload.departmentSummaries || [];
+      if (!isSnapshot) {
+        const changed = new Set(summaries.map((summary) => summary.departmentName));
+        summaries = current.departmentSummaries
+          .filter((summary) => !changed.has(summary.departmentName))
+          .concat(summaries.filter((summary) => summary.readingCount > 0));
+      }
+      return {
+        ...current,
+        totalCarbonFootprint: payload.totalCarbonFootprint,
+        totalCostUsd: payload.totalCostUsd,
+        totalKwhUsed: payload.totalKwhUsed,
+        departmentSummaries: summaries,
+      };
+    });
+    setLastUpdated(new Date().toLocaleTimeString());
+  };
+
+  // Fetch data on component mount, then follow live totals over Server-Sent Events
   useEffect(() => {
     fetchDashboardData();
-    
-    // Auto-refresh every 30 seconds (for demo purposes)
-    const interval = setInterval(fetchDashboardData, 30000);
-    
-    return () => clearInterval(interval);
+
+    const source = new EventSource(`${API_BASE_URL}/stream/dashboard`);
+    source.addEventListener('snapshot', (event) => applyStreamEvent(JSON.parse(event.data), true));
+    source.addEventListener('update', (event) => applyStreamEvent(JSON.parse(event.data), false));
+
+    return () => source.close();
   }, []);
 
   // Handle manual refresh